@@ -17,16 +17,73 @@
  */
 package org.linqs.psl.utils.graph;
 
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface Graph {
 	public Node createNode();
 	
+	/**
+	 * Creates several nodes at once.
+	 *
+	 * @param count the number of nodes to create
+	 * @return the new nodes, in creation order
+	 */
+	public List<? extends Node> createNodes(int count);
+	
+	/**
+	 * Creates several relationships at once.
+	 *
+	 * The i-th relationship starts at nodes[sources[i]], ends at nodes[targets[i]]
+	 * and has type types[typeIndexes[i]]. All arguments are checked before any
+	 * relationship is created.
+	 *
+	 * @param nodes the nodes referred to by sources and targets
+	 * @param types the relationship types referred to by typeIndexes
+	 * @param sources indexes into nodes of the start nodes
+	 * @param targets indexes into nodes of the end nodes
+	 * @param typeIndexes indexes into types of the relationship types
+	 * @return the new relationships, in the order of the arrays
+	 */
+	public List<? extends Relationship> createRelationships(List<? extends Node> nodes, String[] types,
+			int[] sources, int[] targets, int[] typeIndexes);
+	
 	public void createPropertyType(String name, Class<?> type);
 	
 	public void createRelationshipType(String name);
 	
+	/**
+	 * Returns the handle of a property type, for use in hot loops that should
+	 * not look the type up by name on every access.
+	 *
+	 * @throws IllegalArgumentException if the property type does not exist
+	 */
+	public PropertyType getPropertyType(String name);
+	
+	/**
+	 * Returns the handle of a relationship type, see {@link #getPropertyType(String)}.
+	 *
+	 * @throws IllegalArgumentException if the relationship type does not exist
+	 */
+	public RelationshipType getRelationshipType(String name);
+	
 	public Iterable<? extends Node> getNodeSnapshot();
 	
+	/**
+	 * Returns a stream of the nodes of this graph that can be split for parallel
+	 * processing without copying the nodes first.
+	 *
+	 * The graph must not be modified while the stream is consumed.
+	 */
+	public Stream<? extends Node> nodes();
+	
+	/**
+	 * Returns a stream of the relationships of a type, listing every relationship once.
+	 *
+	 * The graph must not be modified while the stream is consumed.
+	 */
+	public Stream<? extends Relationship> relationships(String type);
+	
 	public Set<Node> getNodeSnapshotByAttribute(String propertyType, Object attribute);
 }
@@ -0,0 +1,245 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+
+/**
+ * Reads a {@link MemoryGraph} written by a {@link GraphWriter}.
+ *
+ * Relationships are created in batches through
+ * {@link Graph#createRelationships(List, String[], int[], int[], int[])}.
+ */
+public class GraphReader implements Closeable {
+
+	private static final int batchSize = 1 << 20;
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	public GraphReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(GraphWriter.bufferSize);
+		buffer.flip();
+	}
+
+	/**
+	 * Reads a graph from a file.
+	 */
+	public static MemoryGraph read(File file) throws IOException {
+		GraphReader reader = new GraphReader(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+		try {
+			return reader.read();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads the next graph from the channel.
+	 */
+	public MemoryGraph read() throws IOException {
+		ensure(4);
+		if (buffer.getInt() != GraphWriter.magic)
+			throw new IOException("Not a graph.");
+		if (readVarInt() != GraphWriter.version)
+			throw new IOException("Unsupported graph version.");
+
+		MemoryGraph graph = new MemoryGraph();
+
+		int noPropertyTypes = readVarInt();
+		String[] propertyTypes = new String[noPropertyTypes];
+		Class<?>[] propertyClasses = new Class<?>[noPropertyTypes];
+		for (int i = 0; i < noPropertyTypes; i++) {
+			propertyTypes[i] = readString();
+			String className = readString();
+			try {
+				propertyClasses[i] = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unknown class of property type " + propertyTypes[i] + ": " + className, e);
+			}
+			graph.createPropertyType(propertyTypes[i], propertyClasses[i]);
+		}
+
+		int noRelationshipTypes = readVarInt();
+		String[] relationshipTypes = new String[noRelationshipTypes];
+		for (int i = 0; i < noRelationshipTypes; i++) {
+			relationshipTypes[i] = readString();
+			graph.createRelationshipType(relationshipTypes[i]);
+		}
+
+		List<MemoryNode> nodes = graph.createNodes(readVarInt());
+		int[] sources = new int[batchSize];
+		int[] targets = new int[batchSize];
+		int[] types = new int[batchSize];
+		int size = 0;
+		for (int v = 0; v < nodes.size(); v++) {
+			MemoryNode n = nodes.get(v);
+			int noProperties = readVarInt();
+			for (int i = 0; i < noProperties; i++) {
+				int pt = readIndex(noPropertyTypes);
+				n.createProperty(propertyTypes[pt], readValue(propertyClasses[pt]));
+			}
+
+			int noRelationships = readVarInt();
+			int end = 0;
+			for (int i = 0; i < noRelationships; i++) {
+				types[size] = readIndex(noRelationshipTypes);
+				end += readVarInt();
+				sources[size] = v;
+				targets[size] = end;
+				if (++size == batchSize) {
+					graph.createRelationships(nodes, relationshipTypes, sources, targets, types);
+					size = 0;
+				}
+			}
+		}
+		if (size > 0)
+			graph.createRelationships(nodes, relationshipTypes, Arrays.copyOf(sources, size),
+					Arrays.copyOf(targets, size), Arrays.copyOf(types, size));
+		return graph;
+	}
+
+	private int readIndex(int bound) throws IOException {
+		int index = readVarInt();
+		if (index < 0 || index >= bound)
+			throw new IOException("Corrupt graph: unknown type " + index);
+		return index;
+	}
+
+	private Object readValue(Class<?> clazz) throws IOException {
+		ensure(1);
+		byte tag = buffer.get();
+		switch (tag) {
+			case GraphWriter.tagFalse:
+				return Boolean.FALSE;
+			case GraphWriter.tagTrue:
+				return Boolean.TRUE;
+			case GraphWriter.tagInteger:
+				return (int) unZigZag(readVarLong());
+			case GraphWriter.tagLong:
+				return unZigZag(readVarLong());
+			case GraphWriter.tagShort:
+				return (short) unZigZag(readVarLong());
+			case GraphWriter.tagByte:
+				ensure(1);
+				return buffer.get();
+			case GraphWriter.tagDouble:
+				ensure(8);
+				return buffer.getDouble();
+			case GraphWriter.tagFloat:
+				ensure(4);
+				return buffer.getFloat();
+			case GraphWriter.tagString:
+				return readString();
+			case GraphWriter.tagEnum:
+				return clazz.getEnumConstants()[readVarInt()];
+			case GraphWriter.tagSerialized:
+				ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes()));
+				try {
+					return in.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Unknown class of attribute.", e);
+				} finally {
+					in.close();
+				}
+			default:
+				throw new IOException("Corrupt graph: unknown value tag " + tag);
+		}
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			ensure(1);
+			byte b = buffer.get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IOException("Corrupt graph: varint too long.");
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			ensure(1);
+			byte b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IOException("Corrupt graph: varint too long.");
+	}
+
+	private String readString() throws IOException {
+		return new String(readBytes(), GraphWriter.utf8);
+	}
+
+	private byte[] readBytes() throws IOException {
+		int length = readVarInt();
+		if (length < 0)
+			throw new IOException("Corrupt graph: negative length.");
+		byte[] bytes = new byte[length];
+		int done = 0;
+		while (done < length) {
+			ensure(1);
+			int chunk = Math.min(length - done, buffer.remaining());
+			buffer.get(bytes, done, chunk);
+			done += chunk;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Makes sure the buffer holds at least the given number of bytes.
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return;
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0)
+				throw new EOFException("Unexpected end of graph.");
+		}
+		buffer.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
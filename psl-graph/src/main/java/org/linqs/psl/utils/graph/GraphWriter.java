@@ -0,0 +1,289 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+import org.linqs.psl.utils.graph.memory.MemoryProperty;
+import org.linqs.psl.utils.graph.memory.MemoryRelationship;
+
+/**
+ * Writes a {@link MemoryGraph} to a channel in a compact binary format that is
+ * read back by {@link GraphReader}.
+ *
+ * The format starts with the property and relationship type tables and the number
+ * of nodes. Nodes are numbered in the order of {@link MemoryGraph#getNodeSnapshot()}.
+ * For every node follow its properties, each a type index and a typed value, and
+ * the relationships starting at it, sorted by end node and stored as a type index
+ * and the varint-encoded gap to the previous end node.
+ *
+ * Properties of relationships are not written.
+ */
+public class GraphWriter implements Closeable {
+
+	static final int magic = 0x50534c42;
+	static final int version = 1;
+
+	static final int bufferSize = 1 << 16;
+
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	/* Tags of attribute values */
+	static final byte tagFalse = 0;
+	static final byte tagTrue = 1;
+	static final byte tagInteger = 2;
+	static final byte tagLong = 3;
+	static final byte tagShort = 4;
+	static final byte tagByte = 5;
+	static final byte tagDouble = 6;
+	static final byte tagFloat = 7;
+	static final byte tagString = 8;
+	static final byte tagEnum = 9;
+	static final byte tagSerialized = 10;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	public GraphWriter(WritableByteChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Writes a graph to a file, replacing its contents.
+	 */
+	public static void write(MemoryGraph graph, File file) throws IOException {
+		GraphWriter writer = new GraphWriter(FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+		try {
+			writer.write(graph);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes a graph to the channel. The graph must not change while it is written.
+	 */
+	public void write(MemoryGraph graph) throws IOException {
+		buffer.putInt(magic);
+		writeVarInt(version);
+
+		Map<String, Class<?>> propertyTypes = graph.getPropertyTypes();
+		Map<String, Integer> propertyIndexes = new HashMap<String, Integer>();
+		Class<?>[] propertyClasses = new Class<?>[propertyTypes.size()];
+		writeVarInt(propertyTypes.size());
+		for (Map.Entry<String, Class<?>> pt : propertyTypes.entrySet()) {
+			propertyClasses[propertyIndexes.size()] = pt.getValue();
+			propertyIndexes.put(pt.getKey(), propertyIndexes.size());
+			writeString(pt.getKey());
+			writeString(pt.getValue().getName());
+		}
+
+		List<String> relationshipTypes = graph.getRelationshipTypes();
+		Map<String, Integer> relationshipIndexes = new HashMap<String, Integer>();
+		writeVarInt(relationshipTypes.size());
+		for (String rt : relationshipTypes) {
+			relationshipIndexes.put(rt, relationshipIndexes.size());
+			writeString(rt);
+		}
+
+		/* Numbers the nodes densely, their ids have gaps where nodes were deleted */
+		Collection<MemoryNode> nodes = graph.getNodeSnapshot();
+		int idBound = 0;
+		for (MemoryNode n : nodes)
+			idBound = Math.max(idBound, n.getId() + 1);
+		int[] ids = new int[idBound];
+		int noNodes = 0;
+		for (MemoryNode n : nodes)
+			ids[n.getId()] = noNodes++;
+		writeVarInt(noNodes);
+
+		long[] adjacency = new long[16];
+		Set<MemoryRelationship> selfLoops = new HashSet<MemoryRelationship>();
+		for (MemoryNode n : nodes) {
+			Collection<MemoryProperty> properties = n.getProperties();
+			writeVarInt(properties.size());
+			for (MemoryProperty p : properties) {
+				int pt = propertyIndexes.get(p.getPropertyType());
+				writeVarInt(pt);
+				writeValue(propertyClasses[pt], p.getAttribute());
+			}
+
+			/* Sorts the outgoing relationships by end node, then type */
+			int size = 0;
+			for (MemoryRelationship r : n.getRelationships()) {
+				if (!n.equals(r.getStart()))
+					continue;
+				/* Self-loops are listed twice in the adjacency of their node */
+				if (n.equals(r.getEnd()) && !selfLoops.add(r))
+					continue;
+				if (size == adjacency.length)
+					adjacency = Arrays.copyOf(adjacency, size * 2);
+				adjacency[size++] = ((long) ids[((MemoryNode) r.getEnd()).getId()] << 32)
+						| relationshipIndexes.get(r.getRelationshipType());
+			}
+			selfLoops.clear();
+			Arrays.sort(adjacency, 0, size);
+
+			writeVarInt(size);
+			int previous = 0;
+			for (int i = 0; i < size; i++) {
+				int end = (int) (adjacency[i] >>> 32);
+				writeVarInt((int) adjacency[i]);
+				writeVarInt(end - previous);
+				previous = end;
+			}
+		}
+		flush();
+	}
+
+	private void writeValue(Class<?> clazz, Object value) throws IOException {
+		ensure(11);
+		if (value instanceof Boolean) {
+			buffer.put(((Boolean) value) ? tagTrue : tagFalse);
+		}
+		else if (value instanceof Integer) {
+			buffer.put(tagInteger);
+			writeVarLong(zigZag((Integer) value));
+		}
+		else if (value instanceof Long) {
+			buffer.put(tagLong);
+			writeVarLong(zigZag((Long) value));
+		}
+		else if (value instanceof Short) {
+			buffer.put(tagShort);
+			writeVarLong(zigZag((Short) value));
+		}
+		else if (value instanceof Byte) {
+			buffer.put(tagByte);
+			buffer.put((Byte) value);
+		}
+		else if (value instanceof Double) {
+			buffer.put(tagDouble);
+			buffer.putDouble((Double) value);
+		}
+		else if (value instanceof Float) {
+			buffer.put(tagFloat);
+			buffer.putFloat((Float) value);
+		}
+		else if (value instanceof String) {
+			buffer.put(tagString);
+			writeString((String) value);
+		}
+		else if (clazz.isEnum()) {
+			buffer.put(tagEnum);
+			writeVarInt(((Enum<?>) value).ordinal());
+		}
+		else if (value instanceof Serializable) {
+			buffer.put(tagSerialized);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close();
+			writeBytes(bytes.toByteArray());
+		}
+		else
+			throw new IllegalArgumentException("Attribute cannot be written: " + value);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private void writeVarInt(int value) throws IOException {
+		ensure(5);
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void writeVarLong(long value) throws IOException {
+		ensure(10);
+		while ((value & ~0x7fL) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void writeString(String s) throws IOException {
+		writeBytes(s.getBytes(utf8));
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		writeVarInt(bytes.length);
+		int done = 0;
+		while (done < bytes.length) {
+			if (!buffer.hasRemaining())
+				drain();
+			int length = Math.min(bytes.length - done, buffer.remaining());
+			buffer.put(bytes, done, length);
+			done += length;
+		}
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes)
+			drain();
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Writes all buffered bytes to the channel.
+	 */
+	public void flush() throws IOException {
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
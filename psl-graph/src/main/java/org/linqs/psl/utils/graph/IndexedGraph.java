@@ -0,0 +1,64 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph;
+
+import org.linqs.psl.utils.graph.subgraph.Subgraph;
+
+import com.google.common.base.Predicate;
+
+/**
+ * A {@link Graph} whose nodes are numbered by int ids, so that algorithms can keep
+ * their state for each node in arrays.
+ *
+ * Ids are stable: a node keeps its id for as long as it exists.
+ */
+public interface IndexedGraph extends Graph {
+
+	/**
+	 * Returns one more than the largest id of any node of this graph.
+	 */
+	public int getIdBound();
+
+	/**
+	 * Returns the id of a node of this graph.
+	 *
+	 * @throws IllegalArgumentException if the node does not belong to this graph
+	 */
+	public int getNodeId(Node n);
+
+	/**
+	 * Returns the node with the given id, or null if it has been deleted.
+	 *
+	 * @throws IndexOutOfBoundsException if the id is not less than {@link #getIdBound()}
+	 */
+	public Node getNode(int id);
+
+	/**
+	 * Returns a read-only view of the subgraph induced by the nodes for which
+	 * nodeFilter holds, without copying nodes or relationships.
+	 *
+	 * @param nodeFilter selects the nodes of the view, applied once to every node
+	 * @param relationshipFilter selects the relationships of the view among those
+	 *            between its nodes, applied as relationships are accessed
+	 * @see Subgraph
+	 */
+	public default Subgraph subgraph(Predicate<? super Node> nodeFilter,
+			Predicate<? super Relationship> relationshipFilter) {
+		return new Subgraph(this, nodeFilter, relationshipFilter);
+	}
+}
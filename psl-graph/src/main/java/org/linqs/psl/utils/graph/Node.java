@@ -28,6 +28,14 @@ public interface Node {
 	public Object getAttribute(String type);
 	 
 	public <O> O getAttribute(String type, Class<O> c);
+	
+	/**
+	 * Returns the attribute of the property of a type, see {@link #getAttribute(String)}.
+	 * Implementations resolve the handle without looking up the name of the type.
+	 */
+	public default Object getAttribute(PropertyType type) {
+		return getAttribute(type.getName());
+	}
 
 	public Iterator<? extends Edge> getEdgeIterator();
 	 
@@ -46,6 +54,10 @@ public interface Node {
 	public Iterator<? extends Property> getPropertyIterator(String type);
 	 
 	public Iterable<? extends Property> getProperties(String type);
+	
+	public default Iterable<? extends Property> getProperties(PropertyType type) {
+		return getProperties(type.getName());
+	}
 	 
 	public Iterator<? extends Relationship> getRelationshipIterator();
 
@@ -55,5 +67,9 @@ public interface Node {
 	 
 	public Iterable<? extends Relationship> getRelationships(String type);
 	
+	public default Iterable<? extends Relationship> getRelationships(RelationshipType type) {
+		return getRelationships(type.getName());
+	}
+	
 	public void delete();
 }
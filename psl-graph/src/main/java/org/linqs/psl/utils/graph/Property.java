@@ -23,4 +23,6 @@ public interface Property extends Edge {
 	 public <O> O getAttribute(Class<O> clazz);
 
 	 public String getPropertyType();
+	 
+	 public PropertyType getType();
 }
@@ -25,4 +25,6 @@ public interface Relationship extends Edge {
 	 public boolean isSelfLoop(Node node);
 	 
 	 public String getRelationshipType();
+	 
+	 public RelationshipType getType();
 }
@@ -0,0 +1,55 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph;
+
+/**
+ * A handle on a relationship type of a graph.
+ *
+ * A graph creates one handle per relationship type, so handles can be compared
+ * by identity. Accessors that take a handle instead of the name of the type do
+ * not need to look the type up. A handle can only be used with the graph that
+ * created it.
+ *
+ * @see Graph#getRelationshipType(String)
+ */
+public final class RelationshipType {
+
+	private final int id;
+	private final String name;
+
+	public RelationshipType(int id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	/**
+	 * Returns the id of this type, which is unique among the relationship types of its graph.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.csr;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.linqs.psl.utils.graph.IndexedGraph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
+
+/**
+ * An immutable graph in compressed sparse row form.
+ *
+ * Nodes are identified by consecutive int ids. The relationships incident on a node
+ * are stored contiguously in an adjacency array, grouped by relationship type, and
+ * properties are stored the same way. The {@link Node}, {@link Relationship} and
+ * {@link org.linqs.psl.utils.graph.Property} objects handed out by this graph are
+ * lightweight handles onto these arrays that compare equal if they refer to the same element.
+ *
+ * Relationships do not carry properties of their own. All mutating operations
+ * throw {@link UnsupportedOperationException}.
+ *
+ * Instances are created by a {@link CSRGraphBuilder} or by freezing a
+ * {@link org.linqs.psl.utils.graph.memory.MemoryGraph}.
+ */
+public class CSRGraph implements IndexedGraph {
+
+	final String[] propertyTypeNames;
+	final Class<?>[] propertyClasses;
+	final PropertyType[] propertyTypeHandles;
+	final private Map<String, Integer> propertyTypes;
+
+	final String[] relationshipTypeNames;
+	final RelationshipType[] relationshipTypeHandles;
+	final private Map<String, Integer> relationshipTypes;
+
+	final int noNodes;
+
+	/* Adjacency: relationships incident on node v are at [relOffsets[v], relOffsets[v+1]) */
+	final int[] relOffsets;
+	final int[] relIds;
+	final int[] relNeighbors;
+
+	/* Relationship columns, indexed by relationship id */
+	final int[] edgeStart;
+	final int[] edgeEnd;
+	final int[] edgeTypes;
+	final double[] edgeWeights;
+
+	/* Properties of node v are at [propOffsets[v], propOffsets[v+1]) */
+	final int[] propOffsets;
+	final int[] propTypes;
+	final Object[] propValues;
+
+	CSRGraph(String[] propertyTypeNames, Class<?>[] propertyClasses, String[] relationshipTypeNames,
+			int noNodes, int[] relOffsets, int[] relIds, int[] relNeighbors,
+			int[] edgeStart, int[] edgeEnd, int[] edgeTypes, double[] edgeWeights,
+			int[] propOffsets, int[] propTypes, Object[] propValues) {
+		this.propertyTypeNames = propertyTypeNames;
+		this.propertyClasses = propertyClasses;
+		this.relationshipTypeNames = relationshipTypeNames;
+		this.noNodes = noNodes;
+		this.relOffsets = relOffsets;
+		this.relIds = relIds;
+		this.relNeighbors = relNeighbors;
+		this.edgeStart = edgeStart;
+		this.edgeEnd = edgeEnd;
+		this.edgeTypes = edgeTypes;
+		this.edgeWeights = edgeWeights;
+		this.propOffsets = propOffsets;
+		this.propTypes = propTypes;
+		this.propValues = propValues;
+
+		propertyTypes = new HashMap<String, Integer>(propertyTypeNames.length * 2);
+		propertyTypeHandles = new PropertyType[propertyTypeNames.length];
+		for (int i = 0; i < propertyTypeNames.length; i++) {
+			propertyTypes.put(propertyTypeNames[i], i);
+			propertyTypeHandles[i] = new PropertyType(i, propertyTypeNames[i], propertyClasses[i]);
+		}
+		relationshipTypes = new HashMap<String, Integer>(relationshipTypeNames.length * 2);
+		relationshipTypeHandles = new RelationshipType[relationshipTypeNames.length];
+		for (int i = 0; i < relationshipTypeNames.length; i++) {
+			relationshipTypes.put(relationshipTypeNames[i], i);
+			relationshipTypeHandles[i] = new RelationshipType(i, relationshipTypeNames[i]);
+		}
+	}
+
+	@Override
+	public Node createNode() {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public List<CSRNode> createNodes(int count) {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public List<CSRRelationship> createRelationships(List<? extends Node> nodes, String[] types,
+			int[] sources, int[] targets, int[] typeIndexes) {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public void createPropertyType(String name, Class<?> type) {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public void createRelationshipType(String name) {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public PropertyType getPropertyType(String name) {
+		return propertyTypeHandles[getPropertyTypeId(name)];
+	}
+
+	@Override
+	public RelationshipType getRelationshipType(String name) {
+		return relationshipTypeHandles[getRelationshipTypeId(name)];
+	}
+
+	@Override
+	public List<CSRNode> getNodeSnapshot() {
+		return new AbstractList<CSRNode>() {
+			@Override
+			public CSRNode get(int index) {
+				return getNode(index);
+			}
+
+			@Override
+			public int size() {
+				return noNodes;
+			}
+		};
+	}
+
+	@Override
+	public Stream<CSRNode> nodes() {
+		return IntStream.range(0, noNodes).mapToObj(this::getNode);
+	}
+
+	@Override
+	public Stream<CSRRelationship> relationships(String type) {
+		int rt = getRelationshipTypeId(type);
+		/* Relationship ids are ordered by type, so those of one type form a range */
+		int from = lowerBound(edgeTypes, 0, edgeTypes.length, rt);
+		int to = lowerBound(edgeTypes, from, edgeTypes.length, rt + 1);
+		return IntStream.range(from, to).mapToObj(r -> new CSRRelationship(this, r));
+	}
+
+	@Override
+	public Set<Node> getNodeSnapshotByAttribute(String propertyType, Object attribute) {
+		int pt = getPropertyTypeId(propertyType);
+		if (!propertyClasses[pt].equals(attribute.getClass()))
+			throw new IllegalArgumentException("Attribute "
+					+ attribute + " is not a valid value for property " + propertyType);
+
+		Set<Node> nodes = new HashSet<Node>();
+		for (int v = 0; v < noNodes; v++) {
+			for (int i = lowerBound(propTypes, propOffsets[v], propOffsets[v + 1], pt);
+					i < propOffsets[v + 1] && propTypes[i] == pt; i++) {
+				if (attribute.equals(propValues[i])) {
+					nodes.add(getNode(v));
+					break;
+				}
+			}
+		}
+		return nodes;
+	}
+
+	public int getNoNodes() {
+		return noNodes;
+	}
+
+	public int getNoRelationships() {
+		return edgeStart.length;
+	}
+
+	@Override
+	public int getIdBound() {
+		return noNodes;
+	}
+
+	@Override
+	public CSRNode getNode(int id) {
+		if (id < 0 || id >= noNodes)
+			throw new IndexOutOfBoundsException("Unknown node: " + id);
+		return new CSRNode(this, id);
+	}
+
+	@Override
+	public int getNodeId(Node n) {
+		if (n instanceof CSRNode && ((CSRNode) n).graph == this)
+			return ((CSRNode) n).id;
+		else
+			throw new IllegalArgumentException("Node does not belong to this graph.");
+	}
+
+	/**
+	 * Returns the position of the first relationship incident on a node in the adjacency array.
+	 */
+	public int getAdjacencyStart(int node) {
+		return relOffsets[node];
+	}
+
+	/**
+	 * Returns one past the position of the last relationship incident on a node in the adjacency array.
+	 */
+	public int getAdjacencyEnd(int node) {
+		return relOffsets[node + 1];
+	}
+
+	/**
+	 * Returns the id of the node on the other side of the relationship at an adjacency position.
+	 */
+	public int getNeighbor(int position) {
+		return relNeighbors[position];
+	}
+
+	/**
+	 * Returns the id of the relationship at an adjacency position.
+	 */
+	public int getRelationshipId(int position) {
+		return relIds[position];
+	}
+
+	public int getRelationshipTypeId(int relationship) {
+		return edgeTypes[relationship];
+	}
+
+	public double getWeight(int relationship) {
+		return edgeWeights[relationship];
+	}
+
+	/**
+	 * Returns a weighter that reads the weights this graph was built with.
+	 */
+	public RelationshipWeighter getRelationshipWeighter() {
+		return new RelationshipWeighter() {
+			@Override
+			public double getWeight(Relationship r) {
+				if (r instanceof CSRRelationship && ((CSRRelationship) r).graph == CSRGraph.this)
+					return edgeWeights[((CSRRelationship) r).id];
+				else
+					throw new IllegalArgumentException("Relationship does not belong to this graph.");
+			}
+		};
+	}
+
+	int getPropertyTypeId(String type) {
+		Integer pt = propertyTypes.get(type);
+		if (pt != null)
+			return pt;
+		else
+			throw new IllegalArgumentException("Unknown property type.");
+	}
+
+	int getRelationshipTypeId(String type) {
+		Integer rt = relationshipTypes.get(type);
+		if (rt != null)
+			return rt;
+		else
+			throw new IllegalArgumentException("Unknown relationship type.");
+	}
+
+	int getPropertyTypeId(PropertyType type) {
+		int pt = type.getId();
+		if (pt < propertyTypeHandles.length && propertyTypeHandles[pt] == type)
+			return pt;
+		else
+			throw new IllegalArgumentException("Property type does not belong to this graph.");
+	}
+
+	int getRelationshipTypeId(RelationshipType type) {
+		int rt = type.getId();
+		if (rt < relationshipTypeHandles.length && relationshipTypeHandles[rt] == type)
+			return rt;
+		else
+			throw new IllegalArgumentException("Relationship type does not belong to this graph.");
+	}
+
+	/**
+	 * Returns the first position in [from, to) whose type is not less than type.
+	 * The positions are expected to be sorted by type.
+	 */
+	static int lowerBound(int[] types, int from, int to, int type) {
+		int lo = from, hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (types[mid] < type)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the first adjacency position in [from, to) whose relationship type is not less than type.
+	 */
+	int relationshipLowerBound(int from, int to, int type) {
+		int lo = from, hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (edgeTypes[relIds[mid]] < type)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
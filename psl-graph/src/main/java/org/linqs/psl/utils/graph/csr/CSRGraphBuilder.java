@@ -0,0 +1,249 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.csr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects nodes, relationships and properties and compresses them into an
+ * immutable {@link CSRGraph}.
+ *
+ * Nodes are identified by the consecutive int ids returned from {@link #addNode()}.
+ * A builder can only be used to build a single graph.
+ */
+public class CSRGraphBuilder {
+
+	private static final int initialCapacity = 16;
+
+	final private List<String> propertyTypeNames;
+	final private List<Class<?>> propertyClasses;
+	final private Map<String, Integer> propertyTypes;
+
+	final private List<String> relationshipTypeNames;
+	final private Map<String, Integer> relationshipTypes;
+
+	private int noNodes;
+
+	private int noRelationships;
+	private int[] relStart;
+	private int[] relEnd;
+	private int[] relType;
+	private double[] relWeight;
+
+	private int noProperties;
+	private int[] propNode;
+	private int[] propType;
+	private Object[] propValue;
+
+	private boolean built;
+
+	public CSRGraphBuilder() {
+		propertyTypeNames = new ArrayList<String>();
+		propertyClasses = new ArrayList<Class<?>>();
+		propertyTypes = new HashMap<String, Integer>();
+		relationshipTypeNames = new ArrayList<String>();
+		relationshipTypes = new HashMap<String, Integer>();
+		noNodes = 0;
+		noRelationships = 0;
+		relStart = new int[initialCapacity];
+		relEnd = new int[initialCapacity];
+		relType = new int[initialCapacity];
+		relWeight = new double[initialCapacity];
+		noProperties = 0;
+		propNode = new int[initialCapacity];
+		propType = new int[initialCapacity];
+		propValue = new Object[initialCapacity];
+		built = false;
+	}
+
+	public void addPropertyType(String name, Class<?> type) {
+		Integer pt = propertyTypes.get(name);
+		if (pt == null) {
+			propertyTypes.put(name, propertyTypeNames.size());
+			propertyTypeNames.add(name);
+			propertyClasses.add(type);
+		}
+		else if (!propertyClasses.get(pt).equals(type))
+			throw new IllegalArgumentException("Property type already exists with different data type: " + propertyClasses.get(pt));
+	}
+
+	public void addRelationshipType(String name) {
+		if (relationshipTypes.get(name) == null) {
+			relationshipTypes.put(name, relationshipTypeNames.size());
+			relationshipTypeNames.add(name);
+		}
+	}
+
+	/**
+	 * Adds a node to the graph.
+	 *
+	 * @return the id of the new node
+	 */
+	public int addNode() {
+		return noNodes++;
+	}
+
+	public void addRelationship(String type, int start, int end) {
+		addRelationship(type, start, end, 1.0);
+	}
+
+	public void addRelationship(String type, int start, int end, double weight) {
+		Integer rt = relationshipTypes.get(type);
+		if (rt == null)
+			throw new IllegalArgumentException("Unknown relationship type.");
+		checkNode(start);
+		checkNode(end);
+
+		if (noRelationships == relStart.length) {
+			int capacity = relStart.length * 2;
+			relStart = Arrays.copyOf(relStart, capacity);
+			relEnd = Arrays.copyOf(relEnd, capacity);
+			relType = Arrays.copyOf(relType, capacity);
+			relWeight = Arrays.copyOf(relWeight, capacity);
+		}
+		relStart[noRelationships] = start;
+		relEnd[noRelationships] = end;
+		relType[noRelationships] = rt;
+		relWeight[noRelationships] = weight;
+		noRelationships++;
+	}
+
+	public void addProperty(String type, int node, Object attribute) {
+		Integer pt = propertyTypes.get(type);
+		if (pt == null)
+			throw new IllegalArgumentException("Unknown property type.");
+		if (!propertyClasses.get(pt).isInstance(attribute))
+			throw new IllegalArgumentException("Attribute is not of the correct type.");
+		checkNode(node);
+
+		if (noProperties == propNode.length) {
+			int capacity = propNode.length * 2;
+			propNode = Arrays.copyOf(propNode, capacity);
+			propType = Arrays.copyOf(propType, capacity);
+			propValue = Arrays.copyOf(propValue, capacity);
+		}
+		propNode[noProperties] = node;
+		propType[noProperties] = pt;
+		propValue[noProperties] = attribute;
+		noProperties++;
+	}
+
+	private void checkNode(int node) {
+		if (node < 0 || node >= noNodes)
+			throw new IllegalArgumentException("Unknown node: " + node);
+	}
+
+	/**
+	 * Compresses the collected elements into a {@link CSRGraph}.
+	 *
+	 * The adjacency of every node is grouped by type, with relationships of the
+	 * same type kept in insertion order.
+	 */
+	public CSRGraph build() {
+		if (built)
+			throw new IllegalStateException("Graph has already been built.");
+		built = true;
+
+		/* Orders relationships by type so that each node's adjacency is grouped by type */
+		int[] relOrder = sortByType(relType, noRelationships, relationshipTypeNames.size());
+
+		int[] relOffsets = new int[noNodes + 1];
+		for (int i = 0; i < noRelationships; i++) {
+			relOffsets[relStart[i] + 1]++;
+			relOffsets[relEnd[i] + 1]++;
+		}
+		for (int i = 0; i < noNodes; i++)
+			relOffsets[i + 1] += relOffsets[i];
+
+		int[] relIds = new int[relOffsets[noNodes]];
+		int[] relNeighbors = new int[relOffsets[noNodes]];
+		int[] fill = Arrays.copyOf(relOffsets, noNodes);
+		for (int i = 0; i < noRelationships; i++) {
+			int r = relOrder[i];
+			int pos = fill[relStart[r]]++;
+			relIds[pos] = i;
+			relNeighbors[pos] = relEnd[r];
+			pos = fill[relEnd[r]]++;
+			relIds[pos] = i;
+			relNeighbors[pos] = relStart[r];
+		}
+
+		int[] edgeStart = new int[noRelationships];
+		int[] edgeEnd = new int[noRelationships];
+		int[] edgeTypes = new int[noRelationships];
+		double[] edgeWeights = new double[noRelationships];
+		for (int i = 0; i < noRelationships; i++) {
+			int r = relOrder[i];
+			edgeStart[i] = relStart[r];
+			edgeEnd[i] = relEnd[r];
+			edgeTypes[i] = relType[r];
+			edgeWeights[i] = relWeight[r];
+		}
+
+		int[] propOrder = sortByType(propType, noProperties, propertyTypeNames.size());
+
+		int[] propOffsets = new int[noNodes + 1];
+		for (int i = 0; i < noProperties; i++)
+			propOffsets[propNode[i] + 1]++;
+		for (int i = 0; i < noNodes; i++)
+			propOffsets[i + 1] += propOffsets[i];
+
+		int[] propTypes = new int[noProperties];
+		Object[] propValues = new Object[noProperties];
+		fill = Arrays.copyOf(propOffsets, noNodes);
+		for (int i = 0; i < noProperties; i++) {
+			int p = propOrder[i];
+			int pos = fill[propNode[p]]++;
+			propTypes[pos] = propType[p];
+			propValues[pos] = propValue[p];
+		}
+
+		/* Releases the staging arrays */
+		relStart = relEnd = relType = propNode = propType = null;
+		relWeight = null;
+		propValue = null;
+
+		return new CSRGraph(
+				propertyTypeNames.toArray(new String[propertyTypeNames.size()]),
+				propertyClasses.toArray(new Class<?>[propertyClasses.size()]),
+				relationshipTypeNames.toArray(new String[relationshipTypeNames.size()]),
+				noNodes,
+				relOffsets, relIds, relNeighbors,
+				edgeStart, edgeEnd, edgeTypes, edgeWeights,
+				propOffsets, propTypes, propValues);
+	}
+
+	/**
+	 * Stable counting sort of the indexes [0, size) by their type.
+	 */
+	private static int[] sortByType(int[] types, int size, int noTypes) {
+		int[] counts = new int[noTypes + 1];
+		for (int i = 0; i < size; i++)
+			counts[types[i] + 1]++;
+		for (int t = 0; t < noTypes; t++)
+			counts[t + 1] += counts[t];
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++)
+			order[counts[types[i]]++] = i;
+		return order;
+	}
+}
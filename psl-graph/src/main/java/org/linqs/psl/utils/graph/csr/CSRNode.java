@@ -0,0 +1,250 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.csr;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Edge;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+public class CSRNode implements Node {
+
+	final CSRGraph graph;
+	final int id;
+
+	CSRNode(CSRGraph g, int id) {
+		graph = g;
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public Property createProperty(String type, Object attribute) {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public Relationship createRelationship(String type, Node n) {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public Object getAttribute(String type) {
+		return getAttribute(getProperties(type));
+	}
+
+	@Override
+	public Object getAttribute(PropertyType type) {
+		return getAttribute(getProperties(type));
+	}
+
+	private static Object getAttribute(List<CSRProperty> properties) {
+		if (properties.size() == 0)
+			return null;
+		else if (properties.size() == 1)
+			return properties.get(0).getAttribute();
+		else
+			throw new IllegalArgumentException("Node contains multiple properties of the specified type.");
+	}
+
+	@Override
+	public <O> O getAttribute(String type, Class<O> c) {
+		return c.cast(getAttribute(type));
+	}
+
+	@Override
+	public Iterator<? extends Edge> getEdgeIterator() {
+		return getEdges().iterator();
+	}
+
+	@Override
+	public List<? extends Edge> getEdges() {
+		final int noProperties = getNoProperties();
+		final int noEdges = getNoEdges();
+		return new AbstractList<Edge>() {
+			@Override
+			public Edge get(int index) {
+				if (index < 0 || index >= noEdges)
+					throw new IndexOutOfBoundsException("Out of bounds: " + index);
+				if (index < noProperties)
+					return new CSRProperty(graph, graph.propOffsets[id] + index);
+				else
+					return new CSRRelationship(graph, graph.relIds[graph.relOffsets[id] + index - noProperties]);
+			}
+
+			@Override
+			public int size() {
+				return noEdges;
+			}
+		};
+	}
+
+	@Override
+	public int getNoEdges() {
+		return getNoProperties() + getNoRelationships();
+	}
+
+	@Override
+	public int getNoProperties() {
+		return graph.propOffsets[id + 1] - graph.propOffsets[id];
+	}
+
+	@Override
+	public int getNoRelationships() {
+		return graph.relOffsets[id + 1] - graph.relOffsets[id];
+	}
+
+	@Override
+	public Iterator<CSRProperty> getPropertyIterator() {
+		return getProperties().iterator();
+	}
+
+	@Override
+	public List<CSRProperty> getProperties() {
+		return new PropertyList(graph, graph.propOffsets[id], graph.propOffsets[id + 1]);
+	}
+
+	@Override
+	public Iterator<CSRProperty> getPropertyIterator(String type) {
+		return getProperties(type).iterator();
+	}
+
+	@Override
+	public List<CSRProperty> getProperties(String type) {
+		return getProperties(graph.getPropertyTypeId(type));
+	}
+
+	@Override
+	public List<CSRProperty> getProperties(PropertyType type) {
+		return getProperties(graph.getPropertyTypeId(type));
+	}
+
+	private List<CSRProperty> getProperties(int pt) {
+		int end = graph.propOffsets[id + 1];
+		int from = CSRGraph.lowerBound(graph.propTypes, graph.propOffsets[id], end, pt);
+		int to = CSRGraph.lowerBound(graph.propTypes, from, end, pt + 1);
+		return new PropertyList(graph, from, to);
+	}
+
+	@Override
+	public Iterator<CSRRelationship> getRelationshipIterator() {
+		return getRelationships().iterator();
+	}
+
+	@Override
+	public List<CSRRelationship> getRelationships() {
+		return new RelationshipList(graph, graph.relOffsets[id], graph.relOffsets[id + 1]);
+	}
+
+	@Override
+	public Iterator<CSRRelationship> getRelationshipIterator(String type) {
+		return getRelationships(type).iterator();
+	}
+
+	@Override
+	public List<CSRRelationship> getRelationships(String type) {
+		return getRelationships(graph.getRelationshipTypeId(type));
+	}
+
+	@Override
+	public List<CSRRelationship> getRelationships(RelationshipType type) {
+		return getRelationships(graph.getRelationshipTypeId(type));
+	}
+
+	private List<CSRRelationship> getRelationships(int rt) {
+		int end = graph.relOffsets[id + 1];
+		int from = graph.relationshipLowerBound(graph.relOffsets[id], end, rt);
+		int to = graph.relationshipLowerBound(from, end, rt + 1);
+		return new RelationshipList(graph, from, to);
+	}
+
+	@Override
+	public void delete() {
+		throw new UnsupportedOperationException("Graph is frozen.");
+	}
+
+	@Override
+	public int hashCode() {
+		return id * 31 + 7;
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof CSRNode)) return false;
+		CSRNode n = (CSRNode) oth;
+		return id == n.id && graph == n.graph;
+	}
+
+	static class PropertyList extends AbstractList<CSRProperty> {
+		private final CSRGraph graph;
+		private final int from;
+		private final int to;
+
+		PropertyList(CSRGraph graph, int from, int to) {
+			this.graph = graph;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public CSRProperty get(int index) {
+			if (index < 0 || index >= to - from)
+				throw new IndexOutOfBoundsException("Out of bounds: " + index);
+			return new CSRProperty(graph, from + index);
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+
+	static class RelationshipList extends AbstractList<CSRRelationship> {
+		private final CSRGraph graph;
+		private final int from;
+		private final int to;
+
+		RelationshipList(CSRGraph graph, int from, int to) {
+			this.graph = graph;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public CSRRelationship get(int index) {
+			if (index < 0 || index >= to - from)
+				throw new IndexOutOfBoundsException("Out of bounds: " + index);
+			return new CSRRelationship(graph, graph.relIds[from + index]);
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+}
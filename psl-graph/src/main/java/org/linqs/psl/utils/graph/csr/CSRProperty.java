@@ -0,0 +1,108 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.csr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
+
+public class CSRProperty extends CSREdge implements Property {
+
+	CSRProperty(CSRGraph g, int position) {
+		super(g, position);
+	}
+
+	@Override
+	public boolean isProperty() {
+		return true;
+	}
+
+	@Override
+	public boolean isRelationship() {
+		return false;
+	}
+
+	@Override
+	public Object getAttribute() {
+		return graph.propValues[id];
+	}
+
+	@Override
+	public <O> O getAttribute(Class<O> clazz) {
+		return clazz.cast(graph.propValues[id]);
+	}
+
+	@Override
+	public String getPropertyType() {
+		return graph.propertyTypeNames[graph.propTypes[id]];
+	}
+
+	@Override
+	public PropertyType getType() {
+		return graph.propertyTypeHandles[graph.propTypes[id]];
+	}
+
+	@Override
+	public Node getStart() {
+		return graph.getNode(getOwner());
+	}
+
+	@Override
+	public Collection<? extends Node> getNodes() {
+		List<CSRNode> nodes = new ArrayList<CSRNode>(1);
+		nodes.add(graph.getNode(getOwner()));
+		return nodes;
+	}
+
+	@Override
+	public boolean isIncidentOn(Node n) {
+		return getStart().equals(n);
+	}
+
+	/**
+	 * Finds the node whose property range contains this property.
+	 */
+	private int getOwner() {
+		int lo = 0, hi = graph.noNodes - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (graph.propOffsets[mid] <= id)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	@Override
+	public int hashCode() {
+		return id * 41 + 13;
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof CSRProperty)) return false;
+		CSRProperty p = (CSRProperty) oth;
+		return id == p.id && graph == p.graph;
+	}
+}
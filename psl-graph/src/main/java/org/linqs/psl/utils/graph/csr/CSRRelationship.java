@@ -0,0 +1,113 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.csr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+public class CSRRelationship extends CSREdge implements Relationship {
+
+	CSRRelationship(CSRGraph g, int id) {
+		super(g, id);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public double getWeight() {
+		return graph.edgeWeights[id];
+	}
+
+	@Override
+	public boolean isProperty() {
+		return false;
+	}
+
+	@Override
+	public boolean isRelationship() {
+		return true;
+	}
+
+	@Override
+	public Node getStart() {
+		return graph.getNode(graph.edgeStart[id]);
+	}
+
+	@Override
+	public Node getEnd() {
+		return graph.getNode(graph.edgeEnd[id]);
+	}
+
+	@Override
+	public Node getOtherNode(Node n) {
+		int other = graph.getNodeId(n);
+		if (graph.edgeStart[id] == other)
+			return getEnd();
+		else if (graph.edgeEnd[id] == other)
+			return getStart();
+		else
+			throw new IllegalArgumentException("Node is not incident on this edge.");
+	}
+
+	@Override
+	public String getRelationshipType() {
+		return graph.relationshipTypeNames[graph.edgeTypes[id]];
+	}
+
+	@Override
+	public RelationshipType getType() {
+		return graph.relationshipTypeHandles[graph.edgeTypes[id]];
+	}
+
+	@Override
+	public boolean isSelfLoop(Node node) {
+		return graph.edgeStart[id] == graph.edgeEnd[id];
+	}
+
+	@Override
+	public boolean isIncidentOn(Node n) {
+		return getStart().equals(n) || getEnd().equals(n);
+	}
+
+	@Override
+	public Collection<? extends Node> getNodes() {
+		List<CSRNode> nodes = new ArrayList<CSRNode>(2);
+		nodes.add(graph.getNode(graph.edgeStart[id]));
+		nodes.add(graph.getNode(graph.edgeEnd[id]));
+		return nodes;
+	}
+
+	@Override
+	public int hashCode() {
+		return id * 37 + 11;
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof CSRRelationship)) return false;
+		CSRRelationship r = (CSRRelationship) oth;
+		return id == r.id && graph == r.graph;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.generator;
+
+import java.util.SplittableRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Generates Barabasi-Albert graphs by preferential attachment, which have
+ * power-law degree distributions.
+ *
+ * The first edgesPerNode + 1 nodes form a clique. Every further node is connected
+ * to edgesPerNode distinct earlier nodes, each chosen with probability
+ * proportional to its degree.
+ */
+public class BarabasiAlbertGenerator extends GraphGenerator {
+
+	private final int noNodes;
+	private final int edgesPerNode;
+
+	public BarabasiAlbertGenerator(int noNodes, int edgesPerNode, long seed) {
+		super(seed);
+		Preconditions.checkArgument(edgesPerNode > 0, "Need to provide a positive number of edges per node");
+		Preconditions.checkArgument(noNodes > edgesPerNode, "Need more nodes than edges per node");
+		Preconditions.checkArgument(2L * noNodes * edgesPerNode <= Integer.MAX_VALUE, "Too many edges");
+		this.noNodes = noNodes;
+		this.edgesPerNode = edgesPerNode;
+	}
+
+	@Override
+	public int getNoNodes() {
+		return noNodes;
+	}
+
+	@Override
+	protected void generate(SplittableRandom rand, EdgeSink sink) {
+		/* Every node appears once per incident edge, so a uniform entry is degree-proportional */
+		int[] ends = new int[2 * noNodes * edgesPerNode];
+		int size = 0;
+		for (int v = 1; v <= edgesPerNode; v++) {
+			for (int w = 0; w < v; w++) {
+				sink.edge(w, v, nextWeight(rand));
+				ends[size++] = w;
+				ends[size++] = v;
+			}
+		}
+
+		int[] targets = new int[edgesPerNode];
+		for (int v = edgesPerNode + 1; v < noNodes; v++) {
+			int noTargets = 0;
+			while (noTargets < edgesPerNode) {
+				int target = ends[rand.nextInt(size)];
+				if (!contains(targets, noTargets, target))
+					targets[noTargets++] = target;
+			}
+			for (int i = 0; i < noTargets; i++) {
+				sink.edge(targets[i], v, nextWeight(rand));
+				ends[size++] = targets[i];
+				ends[size++] = v;
+			}
+		}
+	}
+
+	private static boolean contains(int[] values, int size, int value) {
+		for (int i = 0; i < size; i++)
+			if (values[i] == value)
+				return true;
+		return false;
+	}
+}
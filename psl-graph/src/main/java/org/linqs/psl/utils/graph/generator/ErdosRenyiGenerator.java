@@ -0,0 +1,50 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.generator;
+
+import java.util.SplittableRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Generates G(n, p) random graphs, in which every pair of distinct nodes is
+ * connected with probability p, in time proportional to the number of edges.
+ */
+public class ErdosRenyiGenerator extends GraphGenerator {
+
+	private final int noNodes;
+	private final double p;
+
+	public ErdosRenyiGenerator(int noNodes, double p, long seed) {
+		super(seed);
+		Preconditions.checkArgument(noNodes >= 0, "Need to provide a non-negative number of nodes");
+		Preconditions.checkArgument(p >= 0.0 && p <= 1.0, "Probability out of range: %s", p);
+		this.noNodes = noNodes;
+		this.p = p;
+	}
+
+	@Override
+	public int getNoNodes() {
+		return noNodes;
+	}
+
+	@Override
+	protected void generate(SplittableRandom rand, EdgeSink sink) {
+		sampleTriangle(rand, 0, noNodes, p, sink);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.generator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.weight.HashRelationshipWeighter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Generates random graphs for testing and benchmarking.
+ *
+ * Generators are deterministic: the same generator with the same seed always
+ * produces the same edges in the same order. Edge weights are drawn uniformly
+ * from a range, which is [1, 1] unless set otherwise.
+ *
+ * Edges can be received one at a time through {@link #generate(EdgeSink)}, for
+ * example to fill a {@link org.linqs.psl.utils.graph.csr.CSRGraphBuilder}, or
+ * written into any {@link Graph} in batches through
+ * {@link Graph#createRelationships(List, String[], int[], int[], int[])}.
+ */
+public abstract class GraphGenerator {
+
+	private static final int batchSize = 1 << 20;
+
+	private final long seed;
+	private double minWeight;
+	private double maxWeight;
+
+	protected GraphGenerator(long seed) {
+		this.seed = seed;
+		minWeight = 1.0;
+		maxWeight = 1.0;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the range edge weights are drawn from.
+	 */
+	public void setWeightRange(double min, double max) {
+		Preconditions.checkArgument(min <= max, "Empty weight range: [%s, %s]", min, max);
+		minWeight = min;
+		maxWeight = max;
+	}
+
+	/**
+	 * Returns the number of nodes of the generated graphs.
+	 */
+	public abstract int getNoNodes();
+
+	/**
+	 * Generates the edges of the graph, calling sink once per edge.
+	 */
+	public void generate(EdgeSink sink) {
+		generate(new SplittableRandom(seed), sink);
+	}
+
+	/**
+	 * Generates the edges of the graph, drawing all random numbers from rand.
+	 */
+	protected abstract void generate(SplittableRandom rand, EdgeSink sink);
+
+	/**
+	 * Returns the weight of the next edge.
+	 */
+	protected double nextWeight(SplittableRandom rand) {
+		return (minWeight == maxWeight) ? minWeight : minWeight + rand.nextDouble() * (maxWeight - minWeight);
+	}
+
+	/**
+	 * Creates the nodes and relationships of a generated graph in g.
+	 *
+	 * @param type the relationship type of the edges, which must exist in g
+	 * @return the new nodes, numbered as the nodes of the generator
+	 */
+	public List<? extends Node> write(Graph g, String type) {
+		return write(g, type, null);
+	}
+
+	/**
+	 * Creates the nodes and relationships of a generated graph in g, recording the
+	 * weights of the relationships.
+	 *
+	 * @param type the relationship type of the edges, which must exist in g
+	 * @param weights receives the weight of every relationship, or null to drop the weights
+	 * @return the new nodes, numbered as the nodes of the generator
+	 */
+	public List<? extends Node> write(final Graph g, String type, final HashRelationshipWeighter weights) {
+		final List<? extends Node> nodes = g.createNodes(getNoNodes());
+		final String[] types = new String[] {type};
+		final int[] typeIndexes = new int[batchSize];
+		final int[] sources = new int[batchSize];
+		final int[] targets = new int[batchSize];
+		final double[] batchWeights = new double[batchSize];
+
+		class BatchSink implements EdgeSink {
+			private int size = 0;
+
+			@Override
+			public void edge(int source, int target, double weight) {
+				sources[size] = source;
+				targets[size] = target;
+				batchWeights[size] = weight;
+				if (++size == batchSize)
+					flush();
+			}
+
+			void flush() {
+				List<? extends Relationship> created = (size == batchSize)
+						? g.createRelationships(nodes, types, sources, targets, typeIndexes)
+						: g.createRelationships(nodes, types, Arrays.copyOf(sources, size),
+								Arrays.copyOf(targets, size), Arrays.copyOf(typeIndexes, size));
+				if (weights != null)
+					for (int i = 0; i < size; i++)
+						weights.setWeight(created.get(i), batchWeights[i]);
+				size = 0;
+			}
+		}
+
+		BatchSink batch = new BatchSink();
+		generate(batch);
+		batch.flush();
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of candidates to skip before the next one that is drawn
+	 * with probability p, so that sampling a set of candidates takes time
+	 * proportional to the number drawn.
+	 */
+	static long nextSkip(SplittableRandom rand, double p) {
+		if (p >= 1.0)
+			return 0;
+		double skip = Math.floor(Math.log(1.0 - rand.nextDouble()) / Math.log(1.0 - p));
+		return (skip < Long.MAX_VALUE / 2) ? (long) skip : Long.MAX_VALUE / 2;
+	}
+
+	/**
+	 * Draws every pair of distinct nodes in [offset, offset + size) with probability p.
+	 */
+	void sampleTriangle(SplittableRandom rand, int offset, int size, double p, EdgeSink sink) {
+		if (p <= 0.0)
+			return;
+		/* Pairs (v, w) with w < v are enumerated row by row */
+		long v = 1, w = -1;
+		while (v < size) {
+			w += 1 + nextSkip(rand, p);
+			while (w >= v && v < size) {
+				w -= v;
+				v++;
+			}
+			if (v < size)
+				sink.edge(offset + (int) w, offset + (int) v, nextWeight(rand));
+		}
+	}
+
+	/**
+	 * Draws every pair of a node in [fromOffset, fromOffset + fromSize) and a node in
+	 * [toOffset, toOffset + toSize) with probability p.
+	 */
+	void sampleRectangle(SplittableRandom rand, int fromOffset, int fromSize, int toOffset, int toSize,
+			double p, EdgeSink sink) {
+		if (p <= 0.0)
+			return;
+		long noPairs = (long) fromSize * toSize;
+		for (long k = nextSkip(rand, p); k < noPairs; k += 1 + nextSkip(rand, p))
+			sink.edge(fromOffset + (int) (k / toSize), toOffset + (int) (k % toSize), nextWeight(rand));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.generator;
+
+import java.util.SplittableRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Generates graphs with a planted partition: the nodes are split into blocks of
+ * equal size, and two distinct nodes are connected with probability pIn if they
+ * are in the same block and pOut otherwise.
+ *
+ * Node i belongs to block i / blockSize, which partitioners can be checked against.
+ */
+public class PlantedPartitionGenerator extends GraphGenerator {
+
+	private final int noBlocks;
+	private final int blockSize;
+	private final double pIn;
+	private final double pOut;
+
+	public PlantedPartitionGenerator(int noBlocks, int blockSize, double pIn, double pOut, long seed) {
+		super(seed);
+		Preconditions.checkArgument(noBlocks > 0 && blockSize > 0, "Need to provide positive block counts and sizes");
+		Preconditions.checkArgument((long) noBlocks * blockSize <= Integer.MAX_VALUE, "Too many nodes");
+		Preconditions.checkArgument(pIn >= 0.0 && pIn <= 1.0, "Probability out of range: %s", pIn);
+		Preconditions.checkArgument(pOut >= 0.0 && pOut <= 1.0, "Probability out of range: %s", pOut);
+		this.noBlocks = noBlocks;
+		this.blockSize = blockSize;
+		this.pIn = pIn;
+		this.pOut = pOut;
+	}
+
+	@Override
+	public int getNoNodes() {
+		return noBlocks * blockSize;
+	}
+
+	public int getBlock(int node) {
+		return node / blockSize;
+	}
+
+	@Override
+	protected void generate(SplittableRandom rand, EdgeSink sink) {
+		for (int a = 0; a < noBlocks; a++) {
+			sampleTriangle(rand, a * blockSize, blockSize, pIn, sink);
+			for (int b = a + 1; b < noBlocks; b++)
+				sampleRectangle(rand, a * blockSize, blockSize, b * blockSize, blockSize, pOut, sink);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.generator;
+
+import java.util.SplittableRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Generates R-MAT graphs, whose skewed degree distributions and community
+ * structure resemble those of real networks.
+ *
+ * The graph has 2^scale nodes. Every edge is placed by descending scale levels
+ * of the adjacency matrix, choosing the top left, top right, bottom left or
+ * bottom right quadrant with probabilities a, b, c and 1 - a - b - c. As in the
+ * Graph500 generator, duplicate edges and self-loops are kept.
+ */
+public class RMatGenerator extends GraphGenerator {
+
+	private final int scale;
+	private final long noEdges;
+	private final double a, b, c;
+
+	/**
+	 * Creates a generator with the Graph500 probabilities a = 0.57, b = c = 0.19.
+	 */
+	public RMatGenerator(int scale, long noEdges, long seed) {
+		this(scale, noEdges, 0.57, 0.19, 0.19, seed);
+	}
+
+	public RMatGenerator(int scale, long noEdges, double a, double b, double c, long seed) {
+		super(seed);
+		Preconditions.checkArgument(scale >= 0 && scale <= 30, "Scale out of range: %s", scale);
+		Preconditions.checkArgument(noEdges >= 0, "Need to provide a non-negative number of edges");
+		Preconditions.checkArgument(a >= 0 && b >= 0 && c >= 0 && a + b + c <= 1.0,
+				"Invalid quadrant probabilities: %s, %s, %s", a, b, c);
+		this.scale = scale;
+		this.noEdges = noEdges;
+		this.a = a;
+		this.b = b;
+		this.c = c;
+	}
+
+	@Override
+	public int getNoNodes() {
+		return 1 << scale;
+	}
+
+	@Override
+	protected void generate(SplittableRandom rand, EdgeSink sink) {
+		for (long e = 0; e < noEdges; e++) {
+			int source = 0, target = 0;
+			for (int level = 0; level < scale; level++) {
+				double r = rand.nextDouble();
+				source <<= 1;
+				target <<= 1;
+				if (r < a) {
+					/* Top left */
+				} else if (r < a + b) {
+					target |= 1;
+				} else if (r < a + b + c) {
+					source |= 1;
+				} else {
+					source |= 1;
+					target |= 1;
+				}
+			}
+			sink.edge(source, target, nextWeight(rand));
+		}
+	}
+}
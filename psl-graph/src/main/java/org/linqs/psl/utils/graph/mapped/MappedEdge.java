@@ -0,0 +1,133 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Edge;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.Relationship;
+
+/**
+ * Base class of the edges of a {@link MappedGraph}, which have no edges of their own.
+ */
+abstract public class MappedEdge implements Edge {
+
+	final MappedGraph graph;
+	final int id;
+
+	MappedEdge(MappedGraph g, int id) {
+		graph = g;
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public Property createProperty(String type, Object attribute) {
+		throw new UnsupportedOperationException("Edges of a MappedGraph cannot have properties.");
+	}
+
+	@Override
+	public Relationship createRelationship(String type, Node n) {
+		throw new UnsupportedOperationException("Edges of a MappedGraph cannot have relationships.");
+	}
+
+	@Override
+	public Object getAttribute(String type) {
+		graph.getPropertyTypeId(type);
+		return null;
+	}
+
+	@Override
+	public <O> O getAttribute(String type, Class<O> c) {
+		return c.cast(getAttribute(type));
+	}
+
+	@Override
+	public Iterator<? extends Edge> getEdgeIterator() {
+		return getEdges().iterator();
+	}
+
+	@Override
+	public List<? extends Edge> getEdges() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public int getNoEdges() {
+		return 0;
+	}
+
+	@Override
+	public int getNoProperties() {
+		return 0;
+	}
+
+	@Override
+	public int getNoRelationships() {
+		return 0;
+	}
+
+	@Override
+	public Iterator<MappedProperty> getPropertyIterator() {
+		return getProperties().iterator();
+	}
+
+	@Override
+	public List<MappedProperty> getProperties() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Iterator<MappedProperty> getPropertyIterator(String type) {
+		return getProperties(type).iterator();
+	}
+
+	@Override
+	public List<MappedProperty> getProperties(String type) {
+		graph.getPropertyTypeId(type);
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Iterator<MappedRelationship> getRelationshipIterator() {
+		return getRelationships().iterator();
+	}
+
+	@Override
+	public List<MappedRelationship> getRelationships() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Iterator<MappedRelationship> getRelationshipIterator(String type) {
+		return getRelationships(type).iterator();
+	}
+
+	@Override
+	public List<MappedRelationship> getRelationships(String type) {
+		graph.getRelationshipTypeId(type);
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A file accessed through memory-mapped segments of a fixed size.
+ *
+ * Segments are mapped on first access, which grows the file as needed. Callers
+ * must not read or write ints and longs that straddle two segments. Reads can run
+ * in several threads at once.
+ */
+class MappedFile implements Closeable {
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int segmentSize;
+	/* Replaced, never modified, when segments are added */
+	private volatile MappedByteBuffer[] segments;
+
+	MappedFile(File f, int segmentSize) throws IOException {
+		this.file = new RandomAccessFile(f, "rw");
+		this.channel = file.getChannel();
+		this.segmentSize = segmentSize;
+		this.segments = new MappedByteBuffer[0];
+	}
+
+	private MappedByteBuffer segment(long position) {
+		int index = (int) (position / segmentSize);
+		MappedByteBuffer[] current = segments;
+		return (index < current.length) ? current[index] : map(index);
+	}
+
+	private synchronized MappedByteBuffer map(int index) {
+		MappedByteBuffer[] current = segments;
+		if (index < current.length)
+			return current[index];
+		MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+		for (int i = current.length; i <= index; i++) {
+			try {
+				grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+			} catch (IOException e) {
+				throw new RuntimeException("Could not map segment " + i, e);
+			}
+		}
+		segments = grown;
+		return grown[index];
+	}
+
+	int getInt(long position) {
+		return segment(position).getInt((int) (position % segmentSize));
+	}
+
+	void putInt(long position, int value) {
+		segment(position).putInt((int) (position % segmentSize), value);
+	}
+
+	long getLong(long position) {
+		return segment(position).getLong((int) (position % segmentSize));
+	}
+
+	void putLong(long position, long value) {
+		segment(position).putLong((int) (position % segmentSize), value);
+	}
+
+	void get(long position, byte[] bytes) {
+		int done = 0;
+		while (done < bytes.length) {
+			MappedByteBuffer segment = segment(position + done);
+			int offset = (int) ((position + done) % segmentSize);
+			int length = Math.min(bytes.length - done, segmentSize - offset);
+			ByteBuffer view = segment.duplicate();
+			view.position(offset);
+			view.get(bytes, done, length);
+			done += length;
+		}
+	}
+
+	void put(long position, byte[] bytes) {
+		int done = 0;
+		while (done < bytes.length) {
+			MappedByteBuffer segment = segment(position + done);
+			int offset = (int) ((position + done) % segmentSize);
+			int length = Math.min(bytes.length - done, segmentSize - offset);
+			ByteBuffer view = segment.duplicate();
+			view.position(offset);
+			view.put(bytes, done, length);
+			done += length;
+		}
+	}
+
+	/**
+	 * Writes the changes in all mapped segments to disk.
+	 */
+	void force() {
+		for (MappedByteBuffer segment : segments)
+			segment.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		segments = new MappedByteBuffer[0];
+		channel.close();
+		file.close();
+	}
+}
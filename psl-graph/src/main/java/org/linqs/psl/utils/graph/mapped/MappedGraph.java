@@ -0,0 +1,824 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.linqs.psl.utils.graph.IndexedGraph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An {@link IndexedGraph} whose nodes, relationships and properties live in memory-mapped
+ * files, so it can grow beyond the heap and be reopened without being rebuilt.
+ *
+ * The graph is stored in a directory holding one file of fixed-size records each
+ * for nodes, relationships and properties, a file of variable-length attribute
+ * values and a small metadata file with the type tables and record counts. Every
+ * node keeps doubly-linked lists of its relationships and properties, so edges are
+ * created and deleted in constant time.
+ *
+ * Booleans, enums, Strings and the boxed primitive numbers are stored natively,
+ * other attributes must be {@link Serializable}. Relationships cannot have
+ * properties, and the records and values of deleted elements are not reused.
+ *
+ * Changes to the records are written through the mapped files; the metadata is
+ * written by {@link #flush()} and {@link #close()}. A MappedGraph can be read
+ * by several threads at once, for example through a parallel stream, but must not
+ * be read while it is modified.
+ */
+public class MappedGraph implements IndexedGraph, Closeable {
+
+	private static final int magic = 0x50534c47;
+	private static final int version = 1;
+
+	private static final String metaFileName = "graph.meta";
+	private static final String nodeFileName = "nodes.db";
+	private static final String relationshipFileName = "relationships.db";
+	private static final String propertyFileName = "properties.db";
+	private static final String valueFileName = "values.db";
+
+	private static final int recordsPerSegment = 1 << 14;
+	private static final int valueSegmentSize = 1 << 20;
+
+	private static final Charset utf8 = Charset.forName("UTF-8");
+
+	/* Node records */
+	private static final int nodeRecordSize = 28;
+	private static final int nodeInUse = 0;
+	private static final int nodeFirstRelationship = 4;
+	private static final int nodeLastRelationship = 8;
+	private static final int nodeFirstProperty = 12;
+	private static final int nodeLastProperty = 16;
+	private static final int nodeNoRelationships = 20;
+	private static final int nodeNoProperties = 24;
+
+	/*
+	 * Relationship records. Each relationship is linked into the lists of its start
+	 * and end node through two half-edges, 2*id for the start and 2*id+1 for the end.
+	 */
+	private static final int relationshipRecordSize = 32;
+	private static final int relationshipInUse = 0;
+	private static final int relationshipStart = 4;
+	private static final int relationshipEnd = 8;
+	private static final int relationshipType = 12;
+	private static final int relationshipLinks = 16;
+
+	/* Property records */
+	private static final int propertyRecordSize = 32;
+	private static final int propertyInUse = 0;
+	private static final int propertyNode = 4;
+	private static final int propertyType = 8;
+	private static final int propertyNext = 12;
+	private static final int propertyPrevious = 16;
+	private static final int propertyValue = 20;
+	private static final int propertyLength = 28;
+
+	static final int none = -1;
+
+	/* Encodings of attribute values */
+	private static final int encodingBoolean = 0;
+	private static final int encodingEnum = 1;
+	private static final int encodingString = 2;
+	private static final int encodingIntegral = 3;
+	private static final int encodingFloating = 4;
+	private static final int encodingSerialized = 5;
+
+	private final File directory;
+
+	private final MappedFile nodeFile;
+	private final MappedFile relationshipFile;
+	private final MappedFile propertyFile;
+	private final MappedFile valueFile;
+
+	private int noNodeRecords;
+	private int noRelationshipRecords;
+	private int noPropertyRecords;
+	private long valueSize;
+
+	private final List<String> propertyTypeNames;
+	private final List<Class<?>> propertyClasses;
+	private final List<Integer> propertyEncodings;
+	private final List<PropertyType> propertyTypeHandles;
+	private final Map<String, Integer> propertyTypes;
+	private final List<String> relationshipTypeNames;
+	private final List<RelationshipType> relationshipTypeHandles;
+	private final Map<String, Integer> relationshipTypes;
+
+	private MappedGraph(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create directory " + directory);
+		this.directory = directory;
+
+		propertyTypeNames = new ArrayList<String>();
+		propertyClasses = new ArrayList<Class<?>>();
+		propertyEncodings = new ArrayList<Integer>();
+		propertyTypeHandles = new ArrayList<PropertyType>();
+		propertyTypes = new HashMap<String, Integer>();
+		relationshipTypeNames = new ArrayList<String>();
+		relationshipTypeHandles = new ArrayList<RelationshipType>();
+		relationshipTypes = new HashMap<String, Integer>();
+
+		File meta = new File(directory, metaFileName);
+		if (meta.exists())
+			readMeta(meta);
+		else
+			writeMeta();
+
+		nodeFile = new MappedFile(new File(directory, nodeFileName), nodeRecordSize * recordsPerSegment);
+		relationshipFile = new MappedFile(new File(directory, relationshipFileName), relationshipRecordSize * recordsPerSegment);
+		propertyFile = new MappedFile(new File(directory, propertyFileName), propertyRecordSize * recordsPerSegment);
+		valueFile = new MappedFile(new File(directory, valueFileName), valueSegmentSize);
+	}
+
+	/**
+	 * Opens the graph stored in a directory, creating an empty graph if the
+	 * directory does not contain one.
+	 */
+	public static MappedGraph open(File directory) throws IOException {
+		return new MappedGraph(directory);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Writes all changes to disk.
+	 */
+	public void flush() throws IOException {
+		nodeFile.force();
+		relationshipFile.force();
+		propertyFile.force();
+		valueFile.force();
+		writeMeta();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writeMeta();
+		nodeFile.close();
+		relationshipFile.close();
+		propertyFile.close();
+		valueFile.close();
+	}
+
+	private void readMeta(File meta) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(meta)));
+		try {
+			if (in.readInt() != magic)
+				throw new IOException("Not a graph directory: " + directory);
+			if (in.readInt() != version)
+				throw new IOException("Unsupported graph version in " + directory);
+			noNodeRecords = in.readInt();
+			noRelationshipRecords = in.readInt();
+			noPropertyRecords = in.readInt();
+			valueSize = in.readLong();
+
+			int noPropertyTypes = in.readInt();
+			for (int i = 0; i < noPropertyTypes; i++) {
+				String name = in.readUTF();
+				String className = in.readUTF();
+				try {
+					addPropertyType(name, Class.forName(className, false, Thread.currentThread().getContextClassLoader()));
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Unknown class of property type " + name + ": " + className, e);
+				}
+			}
+			int noRelationshipTypes = in.readInt();
+			for (int i = 0; i < noRelationshipTypes; i++)
+				addRelationshipType(in.readUTF());
+		} finally {
+			in.close();
+		}
+	}
+
+	private void writeMeta() throws IOException {
+		File meta = new File(directory, metaFileName);
+		File tmp = new File(directory, metaFileName + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeInt(noNodeRecords);
+			out.writeInt(noRelationshipRecords);
+			out.writeInt(noPropertyRecords);
+			out.writeLong(valueSize);
+			out.writeInt(propertyTypeNames.size());
+			for (int i = 0; i < propertyTypeNames.size(); i++) {
+				out.writeUTF(propertyTypeNames.get(i));
+				out.writeUTF(propertyClasses.get(i).getName());
+			}
+			out.writeInt(relationshipTypeNames.size());
+			for (String name : relationshipTypeNames)
+				out.writeUTF(name);
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), meta.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void writeMetaUnchecked() {
+		try {
+			writeMeta();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write metadata of graph " + directory, e);
+		}
+	}
+
+	@Override
+	public MappedNode createNode() {
+		if (noNodeRecords == Integer.MAX_VALUE)
+			throw new IllegalStateException("Graph cannot hold more nodes.");
+		int v = noNodeRecords++;
+		long pos = nodePosition(v);
+		nodeFile.putInt(pos + nodeInUse, 1);
+		nodeFile.putInt(pos + nodeFirstRelationship, none);
+		nodeFile.putInt(pos + nodeLastRelationship, none);
+		nodeFile.putInt(pos + nodeFirstProperty, none);
+		nodeFile.putInt(pos + nodeLastProperty, none);
+		nodeFile.putInt(pos + nodeNoRelationships, 0);
+		nodeFile.putInt(pos + nodeNoProperties, 0);
+		return new MappedNode(this, v);
+	}
+
+	@Override
+	public List<MappedNode> createNodes(int count) {
+		Preconditions.checkArgument(count >= 0, "Need to provide a non-negative number");
+		List<MappedNode> created = new ArrayList<MappedNode>(count);
+		for (int i = 0; i < count; i++)
+			created.add(createNode());
+		return created;
+	}
+
+	@Override
+	public List<MappedRelationship> createRelationships(List<? extends Node> nodes, String[] types,
+			int[] sources, int[] targets, int[] typeIndexes) {
+		if (sources.length != targets.length || sources.length != typeIndexes.length)
+			throw new IllegalArgumentException("Sources, targets and types must have the same length.");
+
+		int[] rts = new int[types.length];
+		for (int t = 0; t < types.length; t++)
+			rts[t] = getRelationshipTypeId(types[t]);
+
+		int[] ids = new int[nodes.size()];
+		int pos = 0;
+		for (Node n : nodes)
+			ids[pos++] = getNodeId(n);
+
+		for (int i = 0; i < sources.length; i++) {
+			if (sources[i] < 0 || sources[i] >= ids.length || targets[i] < 0 || targets[i] >= ids.length)
+				throw new IllegalArgumentException("Unknown node index for relationship " + i);
+			if (typeIndexes[i] < 0 || typeIndexes[i] >= types.length)
+				throw new IllegalArgumentException("Unknown type index for relationship " + i);
+		}
+
+		List<MappedRelationship> created = new ArrayList<MappedRelationship>(sources.length);
+		for (int i = 0; i < sources.length; i++)
+			created.add(new MappedRelationship(this,
+					createRelationship(rts[typeIndexes[i]], ids[sources[i]], ids[targets[i]])));
+		return created;
+	}
+
+	@Override
+	public void createPropertyType(String name, Class<?> type) {
+		Integer pt = propertyTypes.get(name);
+		if (pt == null) {
+			addPropertyType(name, type);
+			writeMetaUnchecked();
+		}
+		else if (!propertyClasses.get(pt).equals(type))
+			throw new IllegalArgumentException("Property type already exists with different data type: " + propertyClasses.get(pt));
+	}
+
+	@Override
+	public void createRelationshipType(String name) {
+		if (relationshipTypes.get(name) == null) {
+			addRelationshipType(name);
+			writeMetaUnchecked();
+		}
+	}
+
+	private void addPropertyType(String name, Class<?> type) {
+		int pt = propertyTypeNames.size();
+		propertyTypes.put(name, pt);
+		propertyTypeNames.add(name);
+		propertyClasses.add(type);
+		propertyEncodings.add(getEncoding(type));
+		propertyTypeHandles.add(new PropertyType(pt, name, type));
+	}
+
+	private void addRelationshipType(String name) {
+		int rt = relationshipTypeNames.size();
+		relationshipTypes.put(name, rt);
+		relationshipTypeNames.add(name);
+		relationshipTypeHandles.add(new RelationshipType(rt, name));
+	}
+
+	@Override
+	public PropertyType getPropertyType(String name) {
+		return propertyTypeHandles.get(getPropertyTypeId(name));
+	}
+
+	@Override
+	public RelationshipType getRelationshipType(String name) {
+		return relationshipTypeHandles.get(getRelationshipTypeId(name));
+	}
+
+	/**
+	 * Returns the live nodes of the graph. Only the node ids are copied.
+	 */
+	@Override
+	public List<MappedNode> getNodeSnapshot() {
+		int[] ids = new int[noNodeRecords];
+		int size = 0;
+		for (int v = 0; v < noNodeRecords; v++)
+			if (isNodeInUse(v))
+				ids[size++] = v;
+
+		final int[] snapshot = (size == ids.length) ? ids : Arrays.copyOf(ids, size);
+		return new AbstractList<MappedNode>() {
+			@Override
+			public MappedNode get(int index) {
+				return new MappedNode(MappedGraph.this, snapshot[index]);
+			}
+
+			@Override
+			public int size() {
+				return snapshot.length;
+			}
+		};
+	}
+
+	@Override
+	public Stream<MappedNode> nodes() {
+		return IntStream.range(0, noNodeRecords)
+				.filter(this::isNodeInUse)
+				.mapToObj(v -> new MappedNode(this, v));
+	}
+
+	@Override
+	public Stream<MappedRelationship> relationships(String type) {
+		int rt = getRelationshipTypeId(type);
+		return IntStream.range(0, noRelationshipRecords)
+				.filter(r -> isRelationshipInUse(r) && getRelationshipTypeId(r) == rt)
+				.mapToObj(r -> new MappedRelationship(this, r));
+	}
+
+	/**
+	 * Returns the nodes that have a property of the given type with the given attribute
+	 * by scanning the property records.
+	 */
+	@Override
+	public Set<Node> getNodeSnapshotByAttribute(String propertyType, Object attribute) {
+		int pt = getPropertyTypeId(propertyType);
+		if (!propertyClasses.get(pt).isInstance(attribute))
+			throw new IllegalArgumentException("Attribute "
+					+ attribute + " is not a valid value for property " + propertyType);
+
+		Set<Node> nodes = new HashSet<Node>();
+		for (int p = 0; p < noPropertyRecords; p++) {
+			long pos = propertyPosition(p);
+			if (propertyFile.getInt(pos + propertyInUse) != 0 && propertyFile.getInt(pos + MappedGraph.propertyType) == pt
+					&& attribute.equals(getPropertyValue(p)))
+				nodes.add(new MappedNode(this, propertyFile.getInt(pos + propertyNode)));
+		}
+		return nodes;
+	}
+
+	@Override
+	public int getIdBound() {
+		return noNodeRecords;
+	}
+
+	@Override
+	public MappedNode getNode(int id) {
+		if (id < 0 || id >= noNodeRecords)
+			throw new IndexOutOfBoundsException("Unknown node: " + id);
+		return isNodeInUse(id) ? new MappedNode(this, id) : null;
+	}
+
+	@Override
+	public int getNodeId(Node n) {
+		if (n instanceof MappedNode && ((MappedNode) n).graph == this && isNodeInUse(((MappedNode) n).id))
+			return ((MappedNode) n).id;
+		else
+			throw new IllegalArgumentException("Nodes do not belong to same graph.");
+	}
+
+	int getPropertyTypeId(String type) {
+		Integer pt = propertyTypes.get(type);
+		if (pt != null)
+			return pt;
+		else
+			throw new IllegalArgumentException("Unknown property type.");
+	}
+
+	int getRelationshipTypeId(String type) {
+		Integer rt = relationshipTypes.get(type);
+		if (rt != null)
+			return rt;
+		else
+			throw new IllegalArgumentException("Unknown relationship type.");
+	}
+
+	int getPropertyTypeId(PropertyType type) {
+		int pt = type.getId();
+		if (pt < propertyTypeHandles.size() && propertyTypeHandles.get(pt) == type)
+			return pt;
+		else
+			throw new IllegalArgumentException("Property type does not belong to this graph.");
+	}
+
+	int getRelationshipTypeId(RelationshipType type) {
+		int rt = type.getId();
+		if (rt < relationshipTypeHandles.size() && relationshipTypeHandles.get(rt) == type)
+			return rt;
+		else
+			throw new IllegalArgumentException("Relationship type does not belong to this graph.");
+	}
+
+	PropertyType getPropertyType(int pt) {
+		return propertyTypeHandles.get(pt);
+	}
+
+	RelationshipType getRelationshipType(int rt) {
+		return relationshipTypeHandles.get(rt);
+	}
+
+	String getPropertyTypeName(int pt) {
+		return propertyTypeNames.get(pt);
+	}
+
+	String getRelationshipTypeName(int rt) {
+		return relationshipTypeNames.get(rt);
+	}
+
+	/*
+	 * Nodes
+	 */
+
+	private static long nodePosition(int v) {
+		return (long) v * nodeRecordSize;
+	}
+
+	boolean isNodeInUse(int v) {
+		return v >= 0 && v < noNodeRecords && nodeFile.getInt(nodePosition(v) + nodeInUse) != 0;
+	}
+
+	int getNoRelationships(int v) {
+		return nodeFile.getInt(nodePosition(v) + nodeNoRelationships);
+	}
+
+	int getNoProperties(int v) {
+		return nodeFile.getInt(nodePosition(v) + nodeNoProperties);
+	}
+
+	int getFirstHalfEdge(int v) {
+		return nodeFile.getInt(nodePosition(v) + nodeFirstRelationship);
+	}
+
+	int getFirstProperty(int v) {
+		return nodeFile.getInt(nodePosition(v) + nodeFirstProperty);
+	}
+
+	void deleteNode(int v) {
+		if (!isNodeInUse(v))
+			return;
+		/* Collects the edges first since deleting them changes the lists */
+		List<Integer> properties = new ArrayList<Integer>(getNoProperties(v));
+		for (int p = getFirstProperty(v); p != none; p = getNextProperty(p))
+			properties.add(p);
+		for (int p : properties)
+			deleteProperty(p);
+		List<Integer> relationships = new ArrayList<Integer>(getNoRelationships(v));
+		for (int h = getFirstHalfEdge(v); h != none; h = getNextHalfEdge(h))
+			relationships.add(h >>> 1);
+		for (int r : relationships)
+			deleteRelationship(r);
+		nodeFile.putInt(nodePosition(v) + nodeInUse, 0);
+	}
+
+	/*
+	 * Relationships
+	 */
+
+	private static long relationshipPosition(int r) {
+		return (long) r * relationshipRecordSize;
+	}
+
+	private static long linkPosition(int h) {
+		return relationshipPosition(h >>> 1) + relationshipLinks + (h & 1) * 8;
+	}
+
+	boolean isRelationshipInUse(int r) {
+		return relationshipFile.getInt(relationshipPosition(r) + relationshipInUse) != 0;
+	}
+
+	int getStart(int r) {
+		return relationshipFile.getInt(relationshipPosition(r) + relationshipStart);
+	}
+
+	int getEnd(int r) {
+		return relationshipFile.getInt(relationshipPosition(r) + relationshipEnd);
+	}
+
+	int getRelationshipTypeId(int r) {
+		return relationshipFile.getInt(relationshipPosition(r) + relationshipType);
+	}
+
+	int getNextHalfEdge(int h) {
+		return relationshipFile.getInt(linkPosition(h));
+	}
+
+	private int getPreviousHalfEdge(int h) {
+		return relationshipFile.getInt(linkPosition(h) + 4);
+	}
+
+	int createRelationship(int rt, int start, int end) {
+		if (noRelationshipRecords == Integer.MAX_VALUE / 2)
+			throw new IllegalStateException("Graph cannot hold more relationships.");
+		int r = noRelationshipRecords++;
+		long pos = relationshipPosition(r);
+		relationshipFile.putInt(pos + relationshipInUse, 1);
+		relationshipFile.putInt(pos + relationshipStart, start);
+		relationshipFile.putInt(pos + relationshipEnd, end);
+		relationshipFile.putInt(pos + relationshipType, rt);
+		linkHalfEdge(start, 2 * r);
+		linkHalfEdge(end, 2 * r + 1);
+		return r;
+	}
+
+	void deleteRelationship(int r) {
+		if (!isRelationshipInUse(r))
+			return;
+		unlinkHalfEdge(getStart(r), 2 * r);
+		unlinkHalfEdge(getEnd(r), 2 * r + 1);
+		relationshipFile.putInt(relationshipPosition(r) + relationshipInUse, 0);
+	}
+
+	private void linkHalfEdge(int v, int h) {
+		long node = nodePosition(v);
+		int last = nodeFile.getInt(node + nodeLastRelationship);
+		relationshipFile.putInt(linkPosition(h), none);
+		relationshipFile.putInt(linkPosition(h) + 4, last);
+		if (last == none)
+			nodeFile.putInt(node + nodeFirstRelationship, h);
+		else
+			relationshipFile.putInt(linkPosition(last), h);
+		nodeFile.putInt(node + nodeLastRelationship, h);
+		nodeFile.putInt(node + nodeNoRelationships, nodeFile.getInt(node + nodeNoRelationships) + 1);
+	}
+
+	private void unlinkHalfEdge(int v, int h) {
+		long node = nodePosition(v);
+		int next = getNextHalfEdge(h);
+		int previous = getPreviousHalfEdge(h);
+		if (previous == none)
+			nodeFile.putInt(node + nodeFirstRelationship, next);
+		else
+			relationshipFile.putInt(linkPosition(previous), next);
+		if (next == none)
+			nodeFile.putInt(node + nodeLastRelationship, previous);
+		else
+			relationshipFile.putInt(linkPosition(next) + 4, previous);
+		nodeFile.putInt(node + nodeNoRelationships, nodeFile.getInt(node + nodeNoRelationships) - 1);
+	}
+
+	/*
+	 * Properties
+	 */
+
+	private static long propertyPosition(int p) {
+		return (long) p * propertyRecordSize;
+	}
+
+	boolean isPropertyInUse(int p) {
+		return propertyFile.getInt(propertyPosition(p) + propertyInUse) != 0;
+	}
+
+	int getPropertyNode(int p) {
+		return propertyFile.getInt(propertyPosition(p) + propertyNode);
+	}
+
+	int getPropertyTypeId(int p) {
+		return propertyFile.getInt(propertyPosition(p) + propertyType);
+	}
+
+	int getNextProperty(int p) {
+		return propertyFile.getInt(propertyPosition(p) + propertyNext);
+	}
+
+	int createProperty(int v, int pt, Object attribute) {
+		if (!propertyClasses.get(pt).isInstance(attribute))
+			throw new IllegalArgumentException("Attribute is not of the correct type.");
+		if (noPropertyRecords == Integer.MAX_VALUE)
+			throw new IllegalStateException("Graph cannot hold more properties.");
+
+		int p = noPropertyRecords++;
+		long pos = propertyPosition(p);
+		putPropertyValue(pos, propertyEncodings.get(pt), attribute);
+		propertyFile.putInt(pos + propertyInUse, 1);
+		propertyFile.putInt(pos + propertyNode, v);
+		propertyFile.putInt(pos + propertyType, pt);
+
+		long node = nodePosition(v);
+		int last = nodeFile.getInt(node + nodeLastProperty);
+		propertyFile.putInt(pos + propertyNext, none);
+		propertyFile.putInt(pos + propertyPrevious, last);
+		if (last == none)
+			nodeFile.putInt(node + nodeFirstProperty, p);
+		else
+			propertyFile.putInt(propertyPosition(last) + propertyNext, p);
+		nodeFile.putInt(node + nodeLastProperty, p);
+		nodeFile.putInt(node + nodeNoProperties, nodeFile.getInt(node + nodeNoProperties) + 1);
+		return p;
+	}
+
+	void deleteProperty(int p) {
+		if (!isPropertyInUse(p))
+			return;
+		long pos = propertyPosition(p);
+		long node = nodePosition(getPropertyNode(p));
+		int next = propertyFile.getInt(pos + propertyNext);
+		int previous = propertyFile.getInt(pos + propertyPrevious);
+		if (previous == none)
+			nodeFile.putInt(node + nodeFirstProperty, next);
+		else
+			propertyFile.putInt(propertyPosition(previous) + propertyNext, next);
+		if (next == none)
+			nodeFile.putInt(node + nodeLastProperty, previous);
+		else
+			propertyFile.putInt(propertyPosition(next) + propertyPrevious, previous);
+		nodeFile.putInt(node + nodeNoProperties, nodeFile.getInt(node + nodeNoProperties) - 1);
+		propertyFile.putInt(pos + propertyInUse, 0);
+	}
+
+	/*
+	 * Attribute values
+	 */
+
+	private static int getEncoding(Class<?> type) {
+		if (Boolean.class.equals(type))
+			return encodingBoolean;
+		else if (Enum.class.isAssignableFrom(type))
+			return encodingEnum;
+		else if (String.class.equals(type))
+			return encodingString;
+		else if (Integer.class.equals(type) || Long.class.equals(type)
+				|| Short.class.equals(type) || Byte.class.equals(type))
+			return encodingIntegral;
+		else if (Double.class.equals(type) || Float.class.equals(type))
+			return encodingFloating;
+		else
+			return encodingSerialized;
+	}
+
+	private void putPropertyValue(long pos, int encoding, Object attribute) {
+		long value;
+		int length = 0;
+		switch (encoding) {
+			case encodingBoolean:
+				value = ((Boolean) attribute) ? 1 : 0;
+				break;
+			case encodingEnum:
+				value = ((Enum<?>) attribute).ordinal();
+				break;
+			case encodingString:
+				byte[] chars = ((String) attribute).getBytes(utf8);
+				value = appendValue(chars);
+				length = chars.length;
+				break;
+			case encodingIntegral:
+				value = ((Number) attribute).longValue();
+				break;
+			case encodingFloating:
+				value = Double.doubleToRawLongBits(((Number) attribute).doubleValue());
+				break;
+			default:
+				byte[] bytes = serialize(attribute);
+				value = appendValue(bytes);
+				length = bytes.length;
+		}
+		propertyFile.putLong(pos + propertyValue, value);
+		propertyFile.putInt(pos + propertyLength, length);
+	}
+
+	Object getPropertyValue(int p) {
+		long pos = propertyPosition(p);
+		int pt = propertyFile.getInt(pos + propertyType);
+		Class<?> clazz = propertyClasses.get(pt);
+		long value = propertyFile.getLong(pos + propertyValue);
+		switch (propertyEncodings.get(pt)) {
+			case encodingBoolean:
+				return value != 0;
+			case encodingEnum:
+				return clazz.getEnumConstants()[(int) value];
+			case encodingString:
+				return new String(readValue(value, propertyFile.getInt(pos + propertyLength)), utf8);
+			case encodingIntegral:
+				if (Integer.class.equals(clazz))
+					return (int) value;
+				else if (Short.class.equals(clazz))
+					return (short) value;
+				else if (Byte.class.equals(clazz))
+					return (byte) value;
+				else
+					return value;
+			case encodingFloating:
+				double d = Double.longBitsToDouble(value);
+				if (Float.class.equals(clazz))
+					return (float) d;
+				else
+					return d;
+			default:
+				return deserialize(readValue(value, propertyFile.getInt(pos + propertyLength)));
+		}
+	}
+
+	private long appendValue(byte[] bytes) {
+		long offset = valueSize;
+		valueFile.put(offset, bytes);
+		valueSize += bytes.length;
+		return offset;
+	}
+
+	private byte[] readValue(long offset, int length) {
+		byte[] bytes = new byte[length];
+		valueFile.get(offset, bytes);
+		return bytes;
+	}
+
+	private static byte[] serialize(Object attribute) {
+		if (!(attribute instanceof Serializable))
+			throw new IllegalArgumentException("Attribute is not serializable: " + attribute);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(attribute);
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not serialize attribute: " + attribute, e);
+		}
+	}
+
+	private static Object deserialize(byte[] bytes) {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			try {
+				return in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read attribute.", e);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("Could not read attribute.", e);
+		}
+	}
+}
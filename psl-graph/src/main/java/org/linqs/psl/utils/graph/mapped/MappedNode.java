@@ -0,0 +1,322 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.linqs.psl.utils.graph.Edge;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * A node of a {@link MappedGraph}. Nodes are handles onto the node records and
+ * compare equal if they refer to the same record.
+ */
+public class MappedNode implements Node {
+
+	final MappedGraph graph;
+	final int id;
+
+	MappedNode(MappedGraph g, int id) {
+		graph = g;
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public MappedProperty createProperty(String type, Object attribute) {
+		int pt = graph.getPropertyTypeId(type);
+		return new MappedProperty(graph, graph.createProperty(graph.getNodeId(this), pt, attribute));
+	}
+
+	@Override
+	public MappedRelationship createRelationship(String type, Node n) {
+		int rt = graph.getRelationshipTypeId(type);
+		int end = graph.getNodeId(n);
+		return new MappedRelationship(graph, graph.createRelationship(rt, graph.getNodeId(this), end));
+	}
+
+	@Override
+	public Object getAttribute(String type) {
+		return getAttribute(graph.getPropertyTypeId(type));
+	}
+
+	@Override
+	public Object getAttribute(PropertyType type) {
+		return getAttribute(graph.getPropertyTypeId(type));
+	}
+
+	private Object getAttribute(int pt) {
+		Object attribute = null;
+		boolean found = false;
+		for (int p = graph.getFirstProperty(id); p != MappedGraph.none; p = graph.getNextProperty(p)) {
+			if (graph.getPropertyTypeId(p) == pt) {
+				if (found)
+					throw new IllegalArgumentException("Node contains multiple properties of the specified type.");
+				attribute = graph.getPropertyValue(p);
+				found = true;
+			}
+		}
+		return attribute;
+	}
+
+	@Override
+	public <O> O getAttribute(String type, Class<O> c) {
+		return c.cast(getAttribute(type));
+	}
+
+	@Override
+	public Iterator<? extends Edge> getEdgeIterator() {
+		return getEdges().iterator();
+	}
+
+	@Override
+	public Collection<? extends Edge> getEdges() {
+		return new AbstractCollection<Edge>() {
+			@Override
+			public Iterator<Edge> iterator() {
+				return Iterators.<Edge>concat(getPropertyIterator(), getRelationshipIterator());
+			}
+
+			@Override
+			public int size() {
+				return getNoEdges();
+			}
+		};
+	}
+
+	@Override
+	public int getNoEdges() {
+		return getNoProperties() + getNoRelationships();
+	}
+
+	@Override
+	public int getNoProperties() {
+		return graph.getNoProperties(id);
+	}
+
+	@Override
+	public int getNoRelationships() {
+		return graph.getNoRelationships(id);
+	}
+
+	@Override
+	public Iterator<MappedProperty> getPropertyIterator() {
+		return new PropertyIterator(graph, id, -1);
+	}
+
+	@Override
+	public Collection<MappedProperty> getProperties() {
+		return new AbstractCollection<MappedProperty>() {
+			@Override
+			public Iterator<MappedProperty> iterator() {
+				return getPropertyIterator();
+			}
+
+			@Override
+			public int size() {
+				return getNoProperties();
+			}
+		};
+	}
+
+	@Override
+	public Iterator<MappedProperty> getPropertyIterator(String type) {
+		return new PropertyIterator(graph, id, graph.getPropertyTypeId(type));
+	}
+
+	@Override
+	public Collection<MappedProperty> getProperties(String type) {
+		return getProperties(graph.getPropertyTypeId(type));
+	}
+
+	@Override
+	public Collection<MappedProperty> getProperties(PropertyType type) {
+		return getProperties(graph.getPropertyTypeId(type));
+	}
+
+	private Collection<MappedProperty> getProperties(final int pt) {
+		return new AbstractCollection<MappedProperty>() {
+			@Override
+			public Iterator<MappedProperty> iterator() {
+				return new PropertyIterator(graph, id, pt);
+			}
+
+			@Override
+			public int size() {
+				return Iterators.size(iterator());
+			}
+		};
+	}
+
+	@Override
+	public Iterator<MappedRelationship> getRelationshipIterator() {
+		return new RelationshipIterator(graph, id, -1);
+	}
+
+	@Override
+	public Collection<MappedRelationship> getRelationships() {
+		return new AbstractCollection<MappedRelationship>() {
+			@Override
+			public Iterator<MappedRelationship> iterator() {
+				return getRelationshipIterator();
+			}
+
+			@Override
+			public int size() {
+				return getNoRelationships();
+			}
+		};
+	}
+
+	@Override
+	public Iterator<MappedRelationship> getRelationshipIterator(String type) {
+		return new RelationshipIterator(graph, id, graph.getRelationshipTypeId(type));
+	}
+
+	@Override
+	public Collection<MappedRelationship> getRelationships(String type) {
+		return getRelationships(graph.getRelationshipTypeId(type));
+	}
+
+	@Override
+	public Collection<MappedRelationship> getRelationships(RelationshipType type) {
+		return getRelationships(graph.getRelationshipTypeId(type));
+	}
+
+	private Collection<MappedRelationship> getRelationships(final int rt) {
+		return new AbstractCollection<MappedRelationship>() {
+			@Override
+			public Iterator<MappedRelationship> iterator() {
+				return new RelationshipIterator(graph, id, rt);
+			}
+
+			@Override
+			public int size() {
+				return Iterators.size(iterator());
+			}
+		};
+	}
+
+	@Override
+	public void delete() {
+		graph.deleteNode(id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id * 31 + 7;
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof MappedNode)) return false;
+		MappedNode n = (MappedNode) oth;
+		return id == n.id && graph == n.graph;
+	}
+
+	/**
+	 * Walks the property list of a node, optionally only the properties of one type.
+	 */
+	private static class PropertyIterator implements Iterator<MappedProperty> {
+		private final MappedGraph graph;
+		private final int type;
+		private int next;
+
+		PropertyIterator(MappedGraph graph, int node, int type) {
+			this.graph = graph;
+			this.type = type;
+			next = skip(graph.getFirstProperty(node));
+		}
+
+		private int skip(int p) {
+			while (type != -1 && p != MappedGraph.none && graph.getPropertyTypeId(p) != type)
+				p = graph.getNextProperty(p);
+			return p;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != MappedGraph.none;
+		}
+
+		@Override
+		public MappedProperty next() {
+			if (next == MappedGraph.none)
+				throw new NoSuchElementException();
+			int p = next;
+			next = skip(graph.getNextProperty(p));
+			return new MappedProperty(graph, p);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("Delete the property instead.");
+		}
+	}
+
+	/**
+	 * Walks the half-edges of a node, optionally only those of one relationship type.
+	 */
+	private static class RelationshipIterator implements Iterator<MappedRelationship> {
+		private final MappedGraph graph;
+		private final int type;
+		private int next;
+
+		RelationshipIterator(MappedGraph graph, int node, int type) {
+			this.graph = graph;
+			this.type = type;
+			next = skip(graph.getFirstHalfEdge(node));
+		}
+
+		private int skip(int h) {
+			while (type != -1 && h != MappedGraph.none && graph.getRelationshipTypeId(h >>> 1) != type)
+				h = graph.getNextHalfEdge(h);
+			return h;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != MappedGraph.none;
+		}
+
+		@Override
+		public MappedRelationship next() {
+			if (next == MappedGraph.none)
+				throw new NoSuchElementException();
+			int h = next;
+			next = skip(graph.getNextHalfEdge(h));
+			return new MappedRelationship(graph, h >>> 1);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("Delete the relationship instead.");
+		}
+	}
+}
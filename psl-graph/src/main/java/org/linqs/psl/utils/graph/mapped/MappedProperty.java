@@ -0,0 +1,95 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
+
+public class MappedProperty extends MappedEdge implements Property {
+
+	MappedProperty(MappedGraph g, int id) {
+		super(g, id);
+	}
+
+	@Override
+	public boolean isProperty() {
+		return true;
+	}
+
+	@Override
+	public boolean isRelationship() {
+		return false;
+	}
+
+	@Override
+	public Object getAttribute() {
+		return graph.getPropertyValue(id);
+	}
+
+	@Override
+	public <O> O getAttribute(Class<O> clazz) {
+		return clazz.cast(getAttribute());
+	}
+
+	@Override
+	public String getPropertyType() {
+		return graph.getPropertyTypeName(graph.getPropertyTypeId(id));
+	}
+
+	@Override
+	public PropertyType getType() {
+		return graph.getPropertyType(graph.getPropertyTypeId(id));
+	}
+
+	@Override
+	public MappedNode getStart() {
+		return new MappedNode(graph, graph.getPropertyNode(id));
+	}
+
+	@Override
+	public Collection<MappedNode> getNodes() {
+		return Collections.singletonList(getStart());
+	}
+
+	@Override
+	public boolean isIncidentOn(Node n) {
+		return getStart().equals(n);
+	}
+
+	@Override
+	public void delete() {
+		graph.deleteProperty(id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id * 41 + 13;
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof MappedProperty)) return false;
+		MappedProperty p = (MappedProperty) oth;
+		return id == p.id && graph == p.graph;
+	}
+}
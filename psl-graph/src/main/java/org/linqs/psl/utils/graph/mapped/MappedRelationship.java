@@ -0,0 +1,110 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+public class MappedRelationship extends MappedEdge implements Relationship {
+
+	MappedRelationship(MappedGraph g, int id) {
+		super(g, id);
+	}
+
+	@Override
+	public boolean isProperty() {
+		return false;
+	}
+
+	@Override
+	public boolean isRelationship() {
+		return true;
+	}
+
+	@Override
+	public MappedNode getStart() {
+		return new MappedNode(graph, graph.getStart(id));
+	}
+
+	@Override
+	public MappedNode getEnd() {
+		return new MappedNode(graph, graph.getEnd(id));
+	}
+
+	@Override
+	public MappedNode getOtherNode(Node n) {
+		int other = graph.getNodeId(n);
+		if (graph.getStart(id) == other)
+			return getEnd();
+		else if (graph.getEnd(id) == other)
+			return getStart();
+		else
+			throw new IllegalArgumentException("Node is not incident on this edge.");
+	}
+
+	@Override
+	public String getRelationshipType() {
+		return graph.getRelationshipTypeName(graph.getRelationshipTypeId(id));
+	}
+
+	@Override
+	public RelationshipType getType() {
+		return graph.getRelationshipType(graph.getRelationshipTypeId(id));
+	}
+
+	@Override
+	public boolean isSelfLoop(Node node) {
+		return graph.getStart(id) == graph.getEnd(id);
+	}
+
+	@Override
+	public boolean isIncidentOn(Node n) {
+		return getStart().equals(n) || getEnd().equals(n);
+	}
+
+	@Override
+	public Collection<MappedNode> getNodes() {
+		List<MappedNode> nodes = new ArrayList<MappedNode>(2);
+		nodes.add(getStart());
+		nodes.add(getEnd());
+		return nodes;
+	}
+
+	@Override
+	public void delete() {
+		graph.deleteRelationship(id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id * 37 + 11;
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof MappedRelationship)) return false;
+		MappedRelationship r = (MappedRelationship) oth;
+		return id == r.id && graph == r.graph;
+	}
+}
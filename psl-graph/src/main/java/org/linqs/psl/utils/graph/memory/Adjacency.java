@@ -0,0 +1,182 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The properties or relationships incident on a node, in one list per type id.
+ *
+ * Every edge knows its slot in the lists it is in, so an edge is removed in
+ * constant time by moving the last edge of its list into its slot. Removing edges
+ * therefore changes the order of the remaining edges of that type.
+ */
+class Adjacency<E extends MemoryEdge> {
+
+	private static final Object[][] emptyLists = new Object[0][];
+	private static final int[] emptySizes = new int[0];
+
+	private final MemoryNode owner;
+	private Object[][] lists;
+	private int[] sizes;
+	private int size;
+
+	Adjacency(MemoryNode owner) {
+		this.owner = owner;
+		lists = emptyLists;
+		sizes = emptySizes;
+		size = 0;
+	}
+
+	/**
+	 * Appends an edge to the list of a type and returns its slot.
+	 */
+	int add(int type, E e) {
+		ensureCapacity(type, 1);
+		int slot = sizes[type]++;
+		lists[type][slot] = e;
+		size++;
+		return slot;
+	}
+
+	/**
+	 * Removes the edge at a slot of the list of a type. The edge moved into the
+	 * slot is told about its new slot.
+	 */
+	void remove(int type, int slot) {
+		Object[] list = lists[type];
+		int last = --sizes[type];
+		if (slot != last) {
+			E moved = get(type, last);
+			list[slot] = moved;
+			moved.moveSlot(owner, last, slot);
+		}
+		list[last] = null;
+		size--;
+		if (last == 0)
+			lists[type] = null;
+	}
+
+	/**
+	 * Makes room for additional edges of a type.
+	 */
+	void ensureCapacity(int type, int additional) {
+		if (type >= lists.length) {
+			lists = Arrays.copyOf(lists, type + 1);
+			sizes = Arrays.copyOf(sizes, type + 1);
+		}
+		Object[] list = lists[type];
+		int required = sizes[type] + additional;
+		if (list == null)
+			lists[type] = new Object[Math.max(required, 2)];
+		else if (required > list.length)
+			lists[type] = Arrays.copyOf(list, Math.max(required, list.length * 2));
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns one more than the largest type id with a list.
+	 */
+	int getNoTypes() {
+		return lists.length;
+	}
+
+	/**
+	 * Returns the length of the list of a type, or -1 if the type has no list.
+	 */
+	int getCapacity(int type) {
+		return (lists[type] != null) ? lists[type].length : -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E get(int type, int slot) {
+		return (E) lists[type][slot];
+	}
+
+	/**
+	 * Returns a read-only view of the edges of a type.
+	 */
+	List<E> get(final int type) {
+		if (type >= sizes.length || sizes[type] == 0)
+			return Collections.emptyList();
+		return new AbstractList<E>() {
+			@Override
+			public E get(int index) {
+				if (index < 0 || index >= size())
+					throw new IndexOutOfBoundsException("Out of bounds: " + index);
+				return Adjacency.this.get(type, index);
+			}
+
+			@Override
+			public int size() {
+				return (type < sizes.length) ? sizes[type] : 0;
+			}
+		};
+	}
+
+	/**
+	 * Returns a read-only view of the edges of all types.
+	 */
+	Collection<E> values() {
+		return new AbstractCollection<E>() {
+			@Override
+			public Iterator<E> iterator() {
+				return new Iterator<E>() {
+					private int type = 0;
+					private int slot = 0;
+
+					@Override
+					public boolean hasNext() {
+						while (type < sizes.length && slot >= sizes[type]) {
+							type++;
+							slot = 0;
+						}
+						return type < sizes.length;
+					}
+
+					@Override
+					public E next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						return get(type, slot++);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException("Adjacency is read-only.");
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+}
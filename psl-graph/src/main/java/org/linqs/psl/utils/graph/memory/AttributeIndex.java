@@ -0,0 +1,111 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * Maps the attributes of one property type to the nodes that have a property
+ * with that attribute.
+ *
+ * A node can have several properties with the same attribute, so buckets count
+ * them and a node leaves a bucket once its last such property is removed.
+ *
+ * Buckets are copied on write once they have been handed out, so lookups
+ * return read-only sets in constant time that do not change afterwards.
+ */
+abstract class AttributeIndex {
+
+	final protected Map<Object, Bucket> buckets;
+
+	AttributeIndex(Map<Object, Bucket> buckets) {
+		this.buckets = buckets;
+	}
+
+	abstract IndexKind getKind();
+
+	void add(Object attribute, Node n) {
+		Bucket bucket = buckets.get(attribute);
+		if (bucket == null) {
+			bucket = new Bucket();
+			buckets.put(attribute, bucket);
+		}
+		bucket.add(n);
+	}
+
+	void remove(Object attribute, Node n) {
+		Bucket bucket = buckets.get(attribute);
+		if (bucket != null && bucket.remove(n))
+			buckets.remove(attribute);
+	}
+
+	/**
+	 * Returns the set of nodes with the given attribute.
+	 */
+	Set<Node> get(Object attribute) {
+		Bucket bucket = buckets.get(attribute);
+		return (bucket != null) ? bucket.share() : Collections.<Node>emptySet();
+	}
+
+	static class Bucket {
+		/* Number of properties with the bucket's attribute per node */
+		private Map<Node, Integer> counts = new HashMap<Node, Integer>();
+		private boolean shared = false;
+
+		private Map<Node, Integer> getForWrite() {
+			if (shared) {
+				counts = new HashMap<Node, Integer>(counts);
+				shared = false;
+			}
+			return counts;
+		}
+
+		void add(Node n) {
+			Integer count = counts.get(n);
+			getForWrite().put(n, (count == null) ? 1 : count + 1);
+		}
+
+		/**
+		 * Returns whether the bucket is empty afterwards.
+		 */
+		boolean remove(Node n) {
+			Integer count = counts.get(n);
+			if (count == null)
+				return counts.isEmpty();
+			else if (count == 1)
+				getForWrite().remove(n);
+			else
+				getForWrite().put(n, count - 1);
+			return counts.isEmpty();
+		}
+
+		Set<Node> share() {
+			shared = true;
+			return Collections.unmodifiableSet(counts.keySet());
+		}
+
+		Set<Node> getNodes() {
+			return counts.keySet();
+		}
+	}
+}
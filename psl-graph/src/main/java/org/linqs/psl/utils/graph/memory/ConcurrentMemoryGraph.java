@@ -0,0 +1,213 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * A {@link MemoryGraph} that can be built by many threads at once.
+ *
+ * Nodes, properties and relationships can be created and deleted concurrently.
+ * A node is marked deleted before its edges are removed under its lock, and no
+ * edge is added to a deleted node, so deleting a node never leaves an edge behind.
+ * Uids are drawn from an atomic counter, the type tables are concurrent maps, and
+ * the adjacency of each node is guarded by the node's own lock, so threads only
+ * contend when they modify the same node. The node store and the attribute indexes
+ * are each guarded by a single lock.
+ *
+ * Reading the edges of a node while other threads modify that same node is not
+ * supported; read the graph once the threads building it have been joined.
+ */
+public class ConcurrentMemoryGraph extends MemoryGraph {
+
+	final private AtomicLong uidCounter;
+	final private Object nodeLock;
+	final private Object indexLock;
+
+	public ConcurrentMemoryGraph() {
+		super(true);
+		uidCounter = new AtomicLong(0);
+		nodeLock = new Object();
+		indexLock = new Object();
+	}
+
+	@Override
+	public Collection<MemoryNode> getNodeSnapshot() {
+		synchronized (nodeLock) {
+			return super.getNodeSnapshot();
+		}
+	}
+
+	@Override
+	public synchronized void createPropertyType(String name, Class<?> type) {
+		super.createPropertyType(name, type);
+	}
+
+	@Override
+	public synchronized void createRelationshipType(String name) {
+		super.createRelationshipType(name);
+	}
+
+	@Override
+	public synchronized DoubleColumn createDoubleColumn(String name, double defaultValue) {
+		return super.createDoubleColumn(name, defaultValue);
+	}
+
+	@Override
+	public synchronized LongColumn createLongColumn(String name, long defaultValue) {
+		return super.createLongColumn(name, defaultValue);
+	}
+
+	@Override
+	public synchronized void addListener(GraphListener listener) {
+		super.addListener(listener);
+	}
+
+	@Override
+	public synchronized void removeListener(GraphListener listener) {
+		super.removeListener(listener);
+	}
+
+	@Override
+	public Set<Node> getNodeSnapshotByAttribute(String propertyType, Object attribute) {
+		synchronized (indexLock) {
+			return super.getNodeSnapshotByAttribute(propertyType, attribute);
+		}
+	}
+
+	@Override
+	public Set<Node> getNodeSnapshotByAttributeRange(String propertyType, Object from, boolean fromInclusive,
+			Object to, boolean toInclusive) {
+		synchronized (indexLock) {
+			return super.getNodeSnapshotByAttributeRange(propertyType, from, fromInclusive, to, toInclusive);
+		}
+	}
+
+	@Override
+	public void createIndex(String propertyType, IndexKind kind) {
+		synchronized (indexLock) {
+			super.createIndex(propertyType, kind);
+		}
+	}
+
+	@Override
+	void indexProperties(MemoryNode n, int pt, AttributeIndex index) {
+		synchronized (n) {
+			super.indexProperties(n, pt, index);
+		}
+	}
+
+	@Override
+	long getUID() {
+		return uidCounter.getAndIncrement();
+	}
+
+	@Override
+	void notifyNodeCreated(MemoryNode n) {
+		synchronized (nodeLock) {
+			super.notifyNodeCreated(n);
+		}
+	}
+
+	@Override
+	void notifyNodeDeleted(MemoryNode n) {
+		synchronized (nodeLock) {
+			super.notifyNodeDeleted(n);
+		}
+	}
+
+	@Override
+	void addProperty(MemoryNode n, int pt, MemoryProperty p) {
+		synchronized (n) {
+			super.addProperty(n, pt, p);
+		}
+	}
+
+	@Override
+	void removeProperty(MemoryNode n, int pt, MemoryProperty p) {
+		synchronized (n) {
+			super.removeProperty(n, pt, p);
+		}
+	}
+
+	@Override
+	void addRelationship(MemoryNode n, int rt, MemoryRelationship r) {
+		synchronized (n) {
+			super.addRelationship(n, rt, r);
+		}
+	}
+
+	@Override
+	void attachRelationship(MemoryRelationship r) {
+		/* Locks both nodes in uid order, so neither is deleted between the check and the adds */
+		MemoryNode first = (r.startNode.uid <= r.endNode.uid) ? r.startNode : r.endNode;
+		MemoryNode second = (first == r.startNode) ? r.endNode : r.startNode;
+		synchronized (first) {
+			synchronized (second) {
+				super.attachRelationship(r);
+			}
+		}
+	}
+
+	@Override
+	List<MemoryProperty> copyProperties(MemoryNode n) {
+		synchronized (n) {
+			return super.copyProperties(n);
+		}
+	}
+
+	@Override
+	List<MemoryRelationship> copyRelationships(MemoryNode n) {
+		synchronized (n) {
+			return super.copyRelationships(n);
+		}
+	}
+
+	@Override
+	void ensureRelationshipCapacity(MemoryNode n, int rt, int additional) {
+		synchronized (n) {
+			super.ensureRelationshipCapacity(n, rt, additional);
+		}
+	}
+
+	@Override
+	void removeRelationship(MemoryNode n, int rt, MemoryRelationship r) {
+		synchronized (n) {
+			super.removeRelationship(n, rt, r);
+		}
+	}
+
+	@Override
+	void notifyPropertyCreated(MemoryNode n, MemoryProperty p) {
+		synchronized (indexLock) {
+			super.notifyPropertyCreated(n, p);
+		}
+	}
+
+	@Override
+	void notifyPropertyDeleted(MemoryNode n, MemoryProperty p) {
+		synchronized (indexLock) {
+			super.notifyPropertyDeleted(n, p);
+		}
+	}
+}
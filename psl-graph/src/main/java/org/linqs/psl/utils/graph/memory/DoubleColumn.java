@@ -0,0 +1,66 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.util.Arrays;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * A double property of the nodes of a {@link MemoryGraph}, stored unboxed in an
+ * array indexed by node id.
+ *
+ * Nodes whose value has not been set have the default value of the column.
+ *
+ * @see MemoryGraph#createDoubleColumn(String, double)
+ */
+public class DoubleColumn extends NodeColumn {
+
+	final private double defaultValue;
+	private double[] values;
+
+	DoubleColumn(MemoryGraph graph, String name, double defaultValue) {
+		super(graph, name);
+		this.defaultValue = defaultValue;
+		values = new double[0];
+	}
+
+	public double getDefaultValue() {
+		return defaultValue;
+	}
+
+	public double get(Node n) {
+		int id = graph.getNodeId(n);
+		return (id < values.length) ? values[id] : defaultValue;
+	}
+
+	@Override
+	int getCapacity() {
+		return values.length;
+	}
+
+	public void set(Node n, double value) {
+		int id = graph.getNodeId(n);
+		if (id >= values.length) {
+			int capacity = values.length;
+			values = Arrays.copyOf(values, grownCapacity(id, capacity));
+			Arrays.fill(values, capacity, values.length, defaultValue);
+		}
+		values[id] = value;
+	}
+}
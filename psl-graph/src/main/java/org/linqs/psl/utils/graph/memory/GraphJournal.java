@@ -0,0 +1,174 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link GraphListener} that records the changes to a graph in a ring buffer,
+ * so that consumers can process them in batches.
+ *
+ * Consumers periodically drain the journal, which replays the recorded changes in
+ * order to a listener of their own. If more changes are made between two drains
+ * than the journal can hold, the oldest ones are discarded and the consumer has
+ * to rescan the graph instead.
+ *
+ * Journals are thread-safe. Changes are replayed outside of the lock of the
+ * journal, so the graph can keep changing while a batch is processed.
+ */
+public class GraphJournal implements GraphListener {
+
+	private static final byte nodeCreated = 0;
+	private static final byte nodeDeleted = 1;
+	private static final byte propertyCreated = 2;
+	private static final byte propertyDeleted = 3;
+	private static final byte relationshipCreated = 4;
+	private static final byte relationshipDeleted = 5;
+
+	private final byte[] kinds;
+	/* Nodes, properties or relationships, all of which are MemoryNodes */
+	private final MemoryNode[] elements;
+	private final int mask;
+
+	/* Positions of the oldest and of the next change; slots are positions modulo capacity */
+	private long head;
+	private long tail;
+	private boolean overflowed;
+
+	/**
+	 * @param capacity the number of changes the journal can hold, rounded up to a power of two
+	 */
+	public GraphJournal(int capacity) {
+		Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "Capacity out of range: %s", capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		kinds = new byte[size];
+		elements = new MemoryNode[size];
+		mask = size - 1;
+		head = 0;
+		tail = 0;
+		overflowed = false;
+	}
+
+	public int getCapacity() {
+		return kinds.length;
+	}
+
+	/**
+	 * Returns the number of changes recorded since the last drain.
+	 */
+	public synchronized int size() {
+		return (int) (tail - head);
+	}
+
+	/**
+	 * Removes the recorded changes and replays them to a listener in the order they
+	 * were made.
+	 *
+	 * @return false if changes have been discarded since the last drain, in which
+	 *         case only the most recent changes are replayed
+	 */
+	public boolean drainTo(GraphListener listener) {
+		byte[] batchKinds;
+		MemoryNode[] batch;
+		boolean complete;
+		synchronized (this) {
+			int size = (int) (tail - head);
+			batchKinds = new byte[size];
+			batch = new MemoryNode[size];
+			for (int i = 0; i < size; i++) {
+				int slot = (int) ((head + i) & mask);
+				batchKinds[i] = kinds[slot];
+				batch[i] = elements[slot];
+				elements[slot] = null;
+			}
+			head = tail;
+			complete = !overflowed;
+			overflowed = false;
+		}
+
+		for (int i = 0; i < batch.length; i++) {
+			switch (batchKinds[i]) {
+				case nodeCreated:
+					listener.nodeCreated(batch[i]);
+					break;
+				case nodeDeleted:
+					listener.nodeDeleted(batch[i]);
+					break;
+				case propertyCreated:
+					listener.propertyCreated((MemoryProperty) batch[i]);
+					break;
+				case propertyDeleted:
+					listener.propertyDeleted((MemoryProperty) batch[i]);
+					break;
+				case relationshipCreated:
+					listener.relationshipCreated((MemoryRelationship) batch[i]);
+					break;
+				case relationshipDeleted:
+					listener.relationshipDeleted((MemoryRelationship) batch[i]);
+					break;
+				default:
+					throw new IllegalStateException("Unknown change: " + batchKinds[i]);
+			}
+		}
+		return complete;
+	}
+
+	private synchronized void record(byte kind, MemoryNode element) {
+		if (tail - head == kinds.length) {
+			elements[(int) (head & mask)] = null;
+			head++;
+			overflowed = true;
+		}
+		int slot = (int) (tail & mask);
+		kinds[slot] = kind;
+		elements[slot] = element;
+		tail++;
+	}
+
+	@Override
+	public void nodeCreated(MemoryNode n) {
+		record(nodeCreated, n);
+	}
+
+	@Override
+	public void nodeDeleted(MemoryNode n) {
+		record(nodeDeleted, n);
+	}
+
+	@Override
+	public void propertyCreated(MemoryProperty p) {
+		record(propertyCreated, p);
+	}
+
+	@Override
+	public void propertyDeleted(MemoryProperty p) {
+		record(propertyDeleted, p);
+	}
+
+	@Override
+	public void relationshipCreated(MemoryRelationship r) {
+		record(relationshipCreated, r);
+	}
+
+	@Override
+	public void relationshipDeleted(MemoryRelationship r) {
+		record(relationshipDeleted, r);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+/**
+ * Receives the changes made to a {@link MemoryGraph}.
+ *
+ * Listeners are called by the thread making a change, right after nodes and
+ * edges are created and right before edges are deleted; nodes are reported
+ * deleted after their edges. Listeners must not modify the graph, and those of a
+ * {@link ConcurrentMemoryGraph} must be thread-safe. All methods do nothing by
+ * default.
+ *
+ * @see MemoryGraph#addListener(GraphListener)
+ */
+public interface GraphListener {
+
+	public default void nodeCreated(MemoryNode n) {
+	}
+
+	public default void nodeDeleted(MemoryNode n) {
+	}
+
+	public default void propertyCreated(MemoryProperty p) {
+	}
+
+	public default void propertyDeleted(MemoryProperty p) {
+	}
+
+	public default void relationshipCreated(MemoryRelationship r) {
+	}
+
+	public default void relationshipDeleted(MemoryRelationship r) {
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * The size of a {@link MemoryGraph} and an estimate of the heap it retains.
+ *
+ * Sizes are estimated for a 64-bit JVM with compressed references, that is, 12
+ * byte object headers, 4 byte references and objects aligned to 8 bytes. Attributes
+ * are counted once per property even if properties share them, and cached boxes,
+ * such as Booleans, enums and small Integers, are not counted.
+ *
+ * @see MemoryGraph#getStats()
+ */
+public class GraphStats {
+
+	private static final int headerBytes = 12;
+	private static final int arrayHeaderBytes = 16;
+	private static final int referenceBytes = 4;
+
+	/* Shallow sizes of the objects of a graph, see the fields of each class */
+	private static final long nodeFieldBytes = headerBytes + 3 * referenceBytes + 8 + 4;
+	private static final long nodeBytes = align(nodeFieldBytes);
+	private static final long relationshipBytes = align(nodeFieldBytes + 2 * referenceBytes + 3 * 4);
+	private static final long propertyBytes = align(nodeFieldBytes + 2 * referenceBytes + 2 * 4);
+	private static final long adjacencyBytes = align(headerBytes + 3 * referenceBytes + 4);
+
+	/* Estimates for hash maps at their default load factor, amortizing the table over the entries */
+	private static final long hashMapBytes = 48;
+	private static final long hashEntryBytes = 32 + 8;
+	private static final long treeMapBytes = 48;
+	private static final long treeEntryBytes = 40;
+	private static final long bucketBytes = align(headerBytes + referenceBytes + 1);
+
+	private final int noNodes;
+	private final long noRelationships;
+	private final long noProperties;
+	private final Map<String, Long> relationshipCounts;
+	private final Map<String, Long> propertyCounts;
+
+	private long nodeStoreSize;
+	private long nodeSize;
+	private long adjacencySize;
+	private long relationshipSize;
+	private long propertySize;
+	private long attributeSize;
+	private long indexSize;
+	private long columnSize;
+
+	GraphStats(MemoryGraph g, NodeStore store) {
+		long[] relationships = new long[g.getRelationshipTypes().size()];
+		long[] properties = new long[g.getPropertyTypes().size()];
+
+		nodeStoreSize = 2 * arrayHeaderBytes + align((long) store.getCapacity() * referenceBytes)
+				+ (long) store.getCapacity() * 8;
+		int count = 0;
+		for (int id = 0; id < store.getIdBound(); id++) {
+			MemoryNode n = store.get(id);
+			if (n == null)
+				continue;
+			count++;
+			nodeSize += nodeBytes;
+			adjacencySize += sizeOf(n.properties) + sizeOf(n.relationships);
+
+			for (int pt = 0; pt < n.properties.getNoTypes(); pt++) {
+				for (MemoryProperty p : n.properties.get(pt)) {
+					properties[pt]++;
+					propertySize += propertyBytes + 2 * adjacencyBytes;
+					attributeSize += sizeOf(p.getAttribute());
+				}
+			}
+			for (int rt = 0; rt < n.relationships.getNoTypes(); rt++) {
+				int slot = 0;
+				for (MemoryRelationship r : n.relationships.get(rt)) {
+					/* Every relationship is counted at the slot of its start node */
+					if (r.isStartSlot(n, slot++)) {
+						relationships[rt]++;
+						relationshipSize += relationshipBytes + 2 * adjacencyBytes;
+					}
+				}
+			}
+		}
+		noNodes = count;
+
+		relationshipCounts = new LinkedHashMap<String, Long>();
+		long total = 0;
+		for (int rt = 0; rt < relationships.length; rt++) {
+			relationshipCounts.put(g.getRelationshipTypeName(rt), relationships[rt]);
+			total += relationships[rt];
+		}
+		noRelationships = total;
+
+		propertyCounts = new LinkedHashMap<String, Long>();
+		total = 0;
+		for (int pt = 0; pt < properties.length; pt++) {
+			propertyCounts.put(g.getPropertyTypeName(pt), properties[pt]);
+			total += properties[pt];
+		}
+		noProperties = total;
+
+		for (AttributeIndex index : g.getIndexes())
+			indexSize += sizeOf(index);
+		for (NodeColumn column : g.getColumns())
+			columnSize += arrayHeaderBytes + (long) column.getCapacity() * 8;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	private static long arrayBytes(long length, int elementBytes) {
+		return align(arrayHeaderBytes + length * elementBytes);
+	}
+
+	private static long sizeOf(Adjacency<?> adjacency) {
+		int noTypes = adjacency.getNoTypes();
+		if (noTypes == 0)
+			return adjacencyBytes;
+		long size = adjacencyBytes + arrayBytes(noTypes, referenceBytes) + arrayBytes(noTypes, 4);
+		for (int type = 0; type < noTypes; type++) {
+			int capacity = adjacency.getCapacity(type);
+			if (capacity >= 0)
+				size += arrayBytes(capacity, referenceBytes);
+		}
+		return size;
+	}
+
+	private static long sizeOf(Object attribute) {
+		if (attribute instanceof Boolean || attribute instanceof Enum)
+			return 0;
+		else if (attribute instanceof Long || attribute instanceof Double)
+			return align(headerBytes + 8);
+		else if (attribute instanceof Number || attribute instanceof Character)
+			return align(headerBytes + 4);
+		else if (attribute instanceof String)
+			return align(headerBytes + referenceBytes + 4) + arrayBytes(((String) attribute).length(), 2);
+		else
+			return align(headerBytes);
+	}
+
+	private static long sizeOf(AttributeIndex index) {
+		boolean sorted = index.getKind() == IndexKind.SORTED;
+		long size = (sorted) ? treeMapBytes : hashMapBytes;
+		for (Map.Entry<Object, AttributeIndex.Bucket> entry : index.buckets.entrySet()) {
+			size += ((sorted) ? treeEntryBytes : hashEntryBytes) + bucketBytes + hashMapBytes;
+			size += entry.getValue().getNodes().size() * hashEntryBytes;
+		}
+		return size;
+	}
+
+	public int getNoNodes() {
+		return noNodes;
+	}
+
+	public long getNoRelationships() {
+		return noRelationships;
+	}
+
+	public long getNoProperties() {
+		return noProperties;
+	}
+
+	/**
+	 * Returns the number of relationships of each relationship type, in the order
+	 * the types were created.
+	 */
+	public Map<String, Long> getRelationshipCounts() {
+		return Collections.unmodifiableMap(relationshipCounts);
+	}
+
+	/**
+	 * Returns the number of properties of each property type, in the order the
+	 * types were created.
+	 */
+	public Map<String, Long> getPropertyCounts() {
+		return Collections.unmodifiableMap(propertyCounts);
+	}
+
+	/**
+	 * Returns the estimated size of the {@link Node} objects.
+	 */
+	public long getNodeBytes() {
+		return nodeSize;
+	}
+
+	/**
+	 * Returns the estimated size of the arrays holding the nodes of the graph.
+	 */
+	public long getNodeStoreBytes() {
+		return nodeStoreSize;
+	}
+
+	/**
+	 * Returns the estimated size of the per-node lists of incident properties and relationships.
+	 */
+	public long getAdjacencyBytes() {
+		return adjacencySize;
+	}
+
+	public long getRelationshipBytes() {
+		return relationshipSize;
+	}
+
+	/**
+	 * Returns the estimated size of the property objects, without their attributes.
+	 */
+	public long getPropertyBytes() {
+		return propertySize;
+	}
+
+	/**
+	 * Returns the estimated size of the attributes of the properties.
+	 */
+	public long getAttributeBytes() {
+		return attributeSize;
+	}
+
+	public long getIndexBytes() {
+		return indexSize;
+	}
+
+	public long getColumnBytes() {
+		return columnSize;
+	}
+
+	public long getTotalBytes() {
+		return nodeStoreSize + nodeSize + adjacencySize + relationshipSize + propertySize
+				+ attributeSize + indexSize + columnSize;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append("Nodes: ").append(noNodes).append('\n');
+		s.append("Relationships: ").append(noRelationships).append(' ').append(relationshipCounts).append('\n');
+		s.append("Properties: ").append(noProperties).append(' ').append(propertyCounts).append('\n');
+		s.append("Estimated bytes: ").append(getTotalBytes()).append('\n');
+		s.append("  node store: ").append(nodeStoreSize).append('\n');
+		s.append("  nodes: ").append(nodeSize).append('\n');
+		s.append("  adjacency: ").append(adjacencySize).append('\n');
+		s.append("  relationships: ").append(relationshipSize).append('\n');
+		s.append("  properties: ").append(propertySize).append('\n');
+		s.append("  attributes: ").append(attributeSize).append('\n');
+		s.append("  indexes: ").append(indexSize).append('\n');
+		s.append("  columns: ").append(columnSize).append('\n');
+		return s.toString();
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+/**
+ * The kinds of attribute indexes a {@link MemoryGraph} can maintain for a property type.
+ */
+public enum IndexKind {
+	/** Supports lookups of nodes by attribute equality for attributes of any type. */
+	HASH,
+
+	/** Supports lookups of nodes by attribute equality and by attribute range for Comparable attributes. */
+	SORTED
+}
@@ -35,4 +35,9 @@ abstract public class MemoryEdge extends MemoryNode implements Edge {
 			throw new IllegalStateException();
 		return startNode;
 	}
+
+	/**
+	 * Called when this edge is moved from one slot to another in the adjacency of n.
+	 */
+	abstract void moveSlot(MemoryNode n, int from, int to);
 }
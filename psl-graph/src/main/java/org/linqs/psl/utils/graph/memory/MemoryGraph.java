@@ -17,106 +17,519 @@
  */
 package org.linqs.psl.utils.graph.memory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.IndexedGraph;
 import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.RelationshipType;
+import org.linqs.psl.utils.graph.csr.CSRGraph;
+import org.linqs.psl.utils.graph.csr.CSRGraphBuilder;
+import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.base.Preconditions;
 
-public class MemoryGraph implements Graph {
+public class MemoryGraph implements IndexedGraph {
 	
-	final private Map<String, Map<Object, Set<Node>>> index;
+	final private Map<Integer, List<AttributeIndex>> indexes;
 	
-	final private Set<Node> nodes;
+	final private NodeStore nodes;
 	
-	final private BiMap<String, Integer> propertyTypes;
-	final private BiMap<String, Integer> relationshipTypes;
+	final private Map<String, Integer> propertyTypes;
+	final private Map<String, Integer> relationshipTypes;
 	
-	final private Map<Integer, Class<?>> propertyClasses;
+	/* Type handles indexed by type id, replaced whenever a type is created */
+	private volatile PropertyType[] propertyTypeHandles;
+	private volatile RelationshipType[] relationshipTypeHandles;
+	
+	final private Map<String, NodeColumn> columns;
+	
+	/* Replaced, never modified, when listeners are added or removed */
+	private volatile GraphListener[] listeners;
 	
 	private long uidCounter;
 	
 	public MemoryGraph() {
-		index = new HashMap<String, Map<Object,Set<Node>>>();
-		nodes = new HashSet<Node>();
-		propertyTypes = HashBiMap.create();
-		relationshipTypes = HashBiMap.create();
-		propertyClasses = new HashMap<Integer, Class<?>>();
+		this(false);
+	}
+
+	/**
+	 * @param concurrent whether the node set and type tables must support concurrent access
+	 */
+	MemoryGraph(boolean concurrent) {
+		indexes = new HashMap<Integer, List<AttributeIndex>>();
+		nodes = new NodeStore();
+		propertyTypes = createMap(concurrent);
+		relationshipTypes = createMap(concurrent);
+		propertyTypeHandles = new PropertyType[0];
+		relationshipTypeHandles = new RelationshipType[0];
+		columns = createMap(concurrent);
+		listeners = new GraphListener[0];
 		uidCounter = 0;
 	}
 
+	private static <K, V> Map<K, V> createMap(boolean concurrent) {
+		return (concurrent) ? new ConcurrentHashMap<K, V>() : new HashMap<K, V>();
+	}
+
 	@Override
 	public Node createNode() {
-		Node node = new MemoryNode(this);
-		nodes.add(node);
+		MemoryNode node = new MemoryNode(this);
+		notifyNodeCreated(node);
 		return node;
 	}
 
+	@Override
+	public List<MemoryNode> createNodes(int count) {
+		Preconditions.checkArgument(count >= 0, "Need to provide a non-negative number");
+		List<MemoryNode> created = new ArrayList<MemoryNode>(count);
+		for (int i = 0; i < count; i++) {
+			MemoryNode node = new MemoryNode(this);
+			notifyNodeCreated(node);
+			created.add(node);
+		}
+		return created;
+	}
+
+	@Override
+	public List<MemoryRelationship> createRelationships(List<? extends Node> nodes, String[] types,
+			int[] sources, int[] targets, int[] typeIndexes) {
+		if (sources.length != targets.length || sources.length != typeIndexes.length)
+			throw new IllegalArgumentException("Sources, targets and types must have the same length.");
+
+		/* Resolves the types once instead of once per relationship */
+		int[] rts = new int[types.length];
+		for (int t = 0; t < types.length; t++)
+			rts[t] = getRelationshipTypeId(types[t]);
+
+		int noNodes = nodes.size();
+		List<? extends Node> indexed = (nodes instanceof RandomAccess) ? nodes : new ArrayList<Node>(nodes);
+
+		/*
+		 * Counts the new relationships per node and type to presize the adjacency.
+		 * Sorting the endpoints keeps the cost proportional to the batch, and only
+		 * the nodes it references are checked.
+		 */
+		long[] endpoints = new long[2 * sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			if (sources[i] < 0 || sources[i] >= noNodes || targets[i] < 0 || targets[i] >= noNodes)
+				throw new IllegalArgumentException("Unknown node index for relationship " + i);
+			if (typeIndexes[i] < 0 || typeIndexes[i] >= types.length)
+				throw new IllegalArgumentException("Unknown type index for relationship " + i);
+			endpoints[2 * i] = (long) typeIndexes[i] * noNodes + sources[i];
+			endpoints[2 * i + 1] = (long) typeIndexes[i] * noNodes + targets[i];
+		}
+		Arrays.sort(endpoints);
+		for (int i = 0; i < endpoints.length; ) {
+			int j = i + 1;
+			while (j < endpoints.length && endpoints[j] == endpoints[i])
+				j++;
+			Node n = indexed.get((int) (endpoints[i] % noNodes));
+			if (!(n instanceof MemoryNode) || !equals(((MemoryNode) n).graph))
+				throw new IllegalArgumentException("Nodes do not belong to same graph.");
+			if (((MemoryNode) n).isDeleted())
+				throw new IllegalStateException("Node has been deleted.");
+			ensureRelationshipCapacity((MemoryNode) n, rts[(int) (endpoints[i] / noNodes)], j - i);
+			i = j;
+		}
+
+		List<MemoryRelationship> created = new ArrayList<MemoryRelationship>(sources.length);
+		for (int i = 0; i < sources.length; i++) {
+			int rt = rts[typeIndexes[i]];
+			MemoryNode start = (MemoryNode) indexed.get(sources[i]);
+			MemoryNode end = (MemoryNode) indexed.get(targets[i]);
+			MemoryRelationship r = new MemoryRelationship(this, rt, start, end);
+			attachRelationship(r);
+			notifyRelationshipCreated(r);
+			created.add(r);
+		}
+		return created;
+	}
+
 	@Override
 	public void createPropertyType(String name, Class<?> type) {
-		Integer uid = propertyTypes.get(name);
-		if (uid == null) {
-			uid = (int) getUID();
-			propertyTypes.put(name, uid);
-			propertyClasses.put(uid, type);
+		if (columns.containsKey(name))
+			throw new IllegalArgumentException("A column already exists with name: " + name);
+		Integer pt = propertyTypes.get(name);
+		if (pt == null) {
+			/* Type ids are dense since they index the adjacency of nodes */
+			pt = propertyTypeHandles.length;
+			PropertyType[] handles = Arrays.copyOf(propertyTypeHandles, pt + 1);
+			handles[pt] = new PropertyType(pt, name, type);
+			propertyTypeHandles = handles;
+			propertyTypes.put(name, pt);
+			/* Boolean and enum attributes are always indexed */
+			if (Boolean.class.equals(type) || Enum.class.isAssignableFrom(type))
+				createIndex(name, IndexKind.HASH);
 		}
-		else if (!propertyClasses.get(uid).equals(type))
-			throw new IllegalArgumentException("Property type already exists with different data type: " + propertyClasses.get(uid));
+		else if (!getPropertyClass(pt).equals(type))
+			throw new IllegalArgumentException("Property type already exists with different data type: " + getPropertyClass(pt));
 	}
 
 	@Override
 	public void createRelationshipType(String name) {
 		if (relationshipTypes.get(name) == null) {
-			Integer uid = (int) getUID();
-			relationshipTypes.put(name, uid);
+			int rt = relationshipTypeHandles.length;
+			RelationshipType[] handles = Arrays.copyOf(relationshipTypeHandles, rt + 1);
+			handles[rt] = new RelationshipType(rt, name);
+			relationshipTypeHandles = handles;
+			relationshipTypes.put(name, rt);
 		}
 	}
+	
+	@Override
+	public PropertyType getPropertyType(String name) {
+		return propertyTypeHandles[getPropertyTypeId(name)];
+	}
+	
+	@Override
+	public RelationshipType getRelationshipType(String name) {
+		return relationshipTypeHandles[getRelationshipTypeId(name)];
+	}
+
+	/**
+	 * Creates a double property of the nodes that is stored unboxed in an array
+	 * indexed by node id instead of as {@link MemoryProperty} edges, so reading it
+	 * is a single array load. Returns the existing column if one with the same
+	 * name and default value exists.
+	 *
+	 * Column values are not visible as properties of the nodes, and are neither
+	 * indexed nor copied by {@link #freeze()}. Setting values is not thread-safe.
+	 *
+	 * @param defaultValue the value of nodes for which none has been set
+	 */
+	public DoubleColumn createDoubleColumn(String name, double defaultValue) {
+		NodeColumn column = createColumn(name);
+		if (column == null) {
+			column = new DoubleColumn(this, name, defaultValue);
+			columns.put(name, column);
+		}
+		else if (!(column instanceof DoubleColumn)
+				|| Double.compare(((DoubleColumn) column).getDefaultValue(), defaultValue) != 0)
+			throw new IllegalArgumentException("Column already exists with a different data type or default: " + name);
+		return (DoubleColumn) column;
+	}
+	
+	/**
+	 * Creates a long property of the nodes that is stored unboxed in an array
+	 * indexed by node id, see {@link #createDoubleColumn(String, double)}.
+	 *
+	 * @param defaultValue the value of nodes for which none has been set
+	 */
+	public LongColumn createLongColumn(String name, long defaultValue) {
+		NodeColumn column = createColumn(name);
+		if (column == null) {
+			column = new LongColumn(this, name, defaultValue);
+			columns.put(name, column);
+		}
+		else if (!(column instanceof LongColumn) || ((LongColumn) column).getDefaultValue() != defaultValue)
+			throw new IllegalArgumentException("Column already exists with a different data type or default: " + name);
+		return (LongColumn) column;
+	}
+	
+	private NodeColumn createColumn(String name) {
+		if (propertyTypes.containsKey(name))
+			throw new IllegalArgumentException("A property type already exists with name: " + name);
+		return columns.get(name);
+	}
+	
+	public DoubleColumn getDoubleColumn(String name) {
+		NodeColumn column = columns.get(name);
+		if (column instanceof DoubleColumn)
+			return (DoubleColumn) column;
+		else
+			throw new IllegalArgumentException("Unknown double column: " + name);
+	}
+	
+	public LongColumn getLongColumn(String name) {
+		NodeColumn column = columns.get(name);
+		if (column instanceof LongColumn)
+			return (LongColumn) column;
+		else
+			throw new IllegalArgumentException("Unknown long column: " + name);
+	}
+	
+	/**
+	 * Returns the nodes of this graph in constant time without copying them.
+	 *
+	 * The snapshot is read-only and keeps showing the nodes the graph had when it
+	 * was taken, in the order they were created, even if the graph changes later.
+	 */
+	@Override
+	public Collection<MemoryNode> getNodeSnapshot() {
+		return nodes.snapshot();
+	}
+
+	@Override
+	public Stream<MemoryNode> nodes() {
+		return StreamSupport.stream(getNodeSnapshot().spliterator(), false);
+	}
+
+	@Override
+	public Stream<MemoryRelationship> relationships(String type) {
+		int rt = getRelationshipTypeId(type);
+		return nodes().flatMap(n -> n.getStartingRelationships(rt));
+	}
+
+	@Override
+	public int getIdBound() {
+		return nodes.getIdBound();
+	}
+
+	@Override
+	public int getNodeId(Node n) {
+		if (n instanceof MemoryNode && equals(((MemoryNode) n).graph) && ((MemoryNode) n).id >= 0)
+			return ((MemoryNode) n).id;
+		else
+			throw new IllegalArgumentException("Node does not belong to this graph.");
+	}
 
 	@Override
-	public Iterable<? extends Node> getNodeSnapshot() {
-		return new HashSet<Node>(nodes);
+	public MemoryNode getNode(int id) {
+		if (id < 0 || id >= nodes.getIdBound())
+			throw new IndexOutOfBoundsException("Unknown node: " + id);
+		return nodes.get(id);
 	}
 
+	/**
+	 * Returns the nodes that have a property of the given type with the given attribute.
+	 *
+	 * The returned set is read-only and is not copied; it does not change when the graph does.
+	 * Requires an index on the property type, see {@link #createIndex(String, IndexKind)}.
+	 * Boolean and enum property types are always indexed.
+	 */
 	@Override
 	public Set<Node> getNodeSnapshotByAttribute(String propertyType, Object attribute) {
-		Integer pt = propertyTypes.get(propertyType);
-		if (pt != null) {
-			if (propertyClasses.get(pt).equals(attribute.getClass())) {
-				if (Boolean.class.isInstance(attribute) || Enum.class.isInstance(attribute)) {
-					Map<Object, Set<Node>> propertyIndex = index.get(propertyType);
-					Set<Node> nodes = null;
-			
-					if (propertyIndex != null && propertyIndex.get(attribute) != null)
-						nodes = new HashSet<Node>(propertyIndex.get(attribute));
-					
-					if (nodes == null)
-						nodes = new HashSet<Node>();
-					
-					return nodes;
-				}
-				else
-					throw new IllegalArgumentException("getNodesByAttribute only " +
-							"allowed for boolean and enum attributes.");
+		Integer pt = getPropertyTypeId(propertyType);
+		if (!getPropertyClass(pt).isInstance(attribute))
+			throw new IllegalArgumentException("Attribute "
+					+ attribute+ " is not a valid value for property " + propertyType);
+		
+		AttributeIndex index = getIndex(pt, IndexKind.HASH);
+		if (index == null)
+			index = getIndex(pt, IndexKind.SORTED);
+		if (index == null)
+			throw new IllegalArgumentException("No index exists for property type " + propertyType);
+		return index.get(attribute);
+	}
+	
+	/**
+	 * Returns the nodes that have a property of the given type with an attribute
+	 * between from and to.
+	 *
+	 * Requires a {@link IndexKind#SORTED} index on the property type.
+	 *
+	 * @param from the lower bound, or null for no lower bound
+	 * @param fromInclusive whether attributes equal to from are included
+	 * @param to the upper bound, or null for no upper bound
+	 * @param toInclusive whether attributes equal to to are included
+	 */
+	public Set<Node> getNodeSnapshotByAttributeRange(String propertyType, Object from, boolean fromInclusive,
+			Object to, boolean toInclusive) {
+		Integer pt = getPropertyTypeId(propertyType);
+		checkBound(pt, propertyType, from);
+		checkBound(pt, propertyType, to);
+		
+		SortedAttributeIndex index = (SortedAttributeIndex) getIndex(pt, IndexKind.SORTED);
+		if (index == null)
+			throw new IllegalArgumentException("No sorted index exists for property type " + propertyType);
+		return index.getRange(from, fromInclusive, to, toInclusive);
+	}
+	
+	private void checkBound(Integer pt, String propertyType, Object bound) {
+		Class<?> clazz = getPropertyClass(pt);
+		if (bound != null && !clazz.isInstance(bound)
+				&& !(bound instanceof Number && Number.class.isAssignableFrom(clazz)))
+			throw new IllegalArgumentException("Bound "
+					+ bound + " is not comparable to property " + propertyType);
+	}
+	
+	/**
+	 * Creates an index on the attributes of a property type, which is kept up to date
+	 * as properties are created and deleted. Does nothing if an index of that kind
+	 * already exists.
+	 *
+	 * @param propertyType the property type to index
+	 * @param kind the kind of index. {@link IndexKind#SORTED} requires a Comparable property type.
+	 */
+	public void createIndex(String propertyType, IndexKind kind) {
+		Integer pt = getPropertyTypeId(propertyType);
+		if (getIndex(pt, kind) != null)
+			return;
+		
+		AttributeIndex index;
+		switch (kind) {
+			case HASH:
+				index = new HashAttributeIndex();
+				break;
+			case SORTED:
+				if (!Comparable.class.isAssignableFrom(getPropertyClass(pt)))
+					throw new IllegalArgumentException("Sorted indexes require a Comparable property type: " + propertyType);
+				index = new SortedAttributeIndex();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown index kind: " + kind);
+		}
+		
+		for (MemoryNode n : getNodeSnapshot())
+			indexProperties(n, pt, index);
+		
+		List<AttributeIndex> typeIndexes = indexes.get(pt);
+		if (typeIndexes == null) {
+			typeIndexes = new ArrayList<AttributeIndex>(2);
+			indexes.put(pt, typeIndexes);
+		}
+		typeIndexes.add(index);
+	}
+	
+	/**
+	 * Adds the properties of a node to a new index. Properties that are attached
+	 * but not yet announced, or already withdrawn, are left to the notifications.
+	 */
+	void indexProperties(MemoryNode n, int pt, AttributeIndex index) {
+		for (MemoryProperty p : n.properties.get(pt))
+			if (p.indexed)
+				index.add(p.getAttribute(), n);
+	}
+	
+	private AttributeIndex getIndex(Integer pt, IndexKind kind) {
+		List<AttributeIndex> typeIndexes = indexes.get(pt);
+		if (typeIndexes != null)
+			for (AttributeIndex index : typeIndexes)
+				if (index.getKind() == kind)
+					return index;
+		return null;
+	}
+
+	/**
+	 * Registers a listener to be told about every node, property and relationship
+	 * created or deleted from now on. Listeners are called in the order they were added.
+	 *
+	 * @see GraphJournal
+	 */
+	public void addListener(GraphListener listener) {
+		Preconditions.checkNotNull(listener);
+		GraphListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+		grown[listeners.length] = listener;
+		listeners = grown;
+	}
+	
+	/**
+	 * Unregisters a listener. Does nothing if the listener is not registered.
+	 */
+	public void removeListener(GraphListener listener) {
+		List<GraphListener> remaining = new ArrayList<GraphListener>(Arrays.asList(listeners));
+		if (remaining.remove(listener))
+			listeners = remaining.toArray(new GraphListener[remaining.size()]);
+	}
+	
+	/**
+	 * Counts the nodes, relationships and properties of this graph and estimates
+	 * the heap they retain, in time linear in the size of the graph.
+	 *
+	 * The graph must not be modified while its statistics are computed.
+	 */
+	public GraphStats getStats() {
+		return new GraphStats(this, nodes);
+	}
+	
+	List<AttributeIndex> getIndexes() {
+		List<AttributeIndex> all = new ArrayList<AttributeIndex>();
+		for (List<AttributeIndex> typeIndexes : indexes.values())
+			all.addAll(typeIndexes);
+		return all;
+	}
+	
+	Collection<NodeColumn> getColumns() {
+		return columns.values();
+	}
+	
+	/**
+	 * Returns the property types of this graph and their data types, in the order
+	 * they were created.
+	 */
+	public Map<String, Class<?>> getPropertyTypes() {
+		Map<String, Class<?>> types = new LinkedHashMap<String, Class<?>>();
+		for (PropertyType pt : propertyTypeHandles)
+			types.put(pt.getName(), pt.getDataType());
+		return Collections.unmodifiableMap(types);
+	}
+
+	/**
+	 * Returns the relationship types of this graph, in the order they were created.
+	 */
+	public List<String> getRelationshipTypes() {
+		List<String> types = new ArrayList<String>();
+		for (RelationshipType rt : relationshipTypeHandles)
+			types.add(rt.getName());
+		return Collections.unmodifiableList(types);
+	}
+
+	/**
+	 * Copies the nodes, relationships and properties of this graph into an immutable
+	 * {@link CSRGraph}. All relationships get weight 1.0.
+	 */
+	public CSRGraph freeze() {
+		return freeze(null);
+	}
+
+	/**
+	 * Copies the nodes, relationships and properties of this graph into an immutable
+	 * {@link CSRGraph}, storing the weight of every relationship as given by rweight.
+	 *
+	 * Properties of relationships are not copied. Nodes are numbered in the iteration
+	 * order of {@link #getNodeSnapshot()}.
+	 *
+	 * @param rweight weighter for the relationships, or null to weight all relationships 1.0
+	 */
+	public CSRGraph freeze(RelationshipWeighter rweight) {
+		CSRGraphBuilder builder = new CSRGraphBuilder();
+		for (Map.Entry<String, Class<?>> pt : getPropertyTypes().entrySet())
+			builder.addPropertyType(pt.getKey(), pt.getValue());
+		for (String rt : getRelationshipTypes())
+			builder.addRelationshipType(rt);
+
+		Collection<MemoryNode> snapshot = getNodeSnapshot();
+		int[] ids = new int[nodes.getIdBound()];
+		for (MemoryNode n : snapshot)
+			ids[n.id] = builder.addNode();
+
+		Set<MemoryRelationship> selfLoops = new HashSet<MemoryRelationship>();
+		for (MemoryNode mn : snapshot) {
+			int id = ids[mn.id];
+			for (MemoryProperty p : mn.properties.values())
+				builder.addProperty(p.getPropertyType(), id, p.getAttribute());
+			for (MemoryRelationship r : mn.relationships.values()) {
+				if (r.startNode != mn)
+					continue;
+				/* Self-loops are listed twice in the adjacency of their node */
+				if (r.endNode == mn && !selfLoops.add(r))
+					continue;
+				builder.addRelationship(r.getRelationshipType(), id, ids[r.endNode.id],
+						(rweight != null) ? rweight.getWeight(r) : 1.0);
 			}
-			else
-				throw new IllegalArgumentException("Attribute "
-						+ attribute+ " is not a valid value for property " + propertyType);
 		}
-		else
-			throw new IllegalArgumentException("Unknown property type.");
+		return builder.build();
 	}
 
 	long getUID() {
 		return uidCounter++;
 	}
 	
-	Integer getPropertyType(String type) {
+	Integer getPropertyTypeId(String type) {
 		Integer pt = propertyTypes.get(type); 
 		if (pt != null)
 			return pt;
@@ -124,7 +537,7 @@ public class MemoryGraph implements Graph {
 			throw new IllegalArgumentException("Unknown property type.");
 	}
 	
-	Integer getRelationshipType(String type) {
+	Integer getRelationshipTypeId(String type) {
 		Integer rt = relationshipTypes.get(type); 
 		if (rt != null)
 			return rt;
@@ -132,59 +545,135 @@ public class MemoryGraph implements Graph {
 			throw new IllegalArgumentException("Unknown relationship type.");
 	}
 	
-	String getPropertyTypeName(Integer pt) {
-		return propertyTypes.inverse().get(pt);
+	int getPropertyTypeId(PropertyType type) {
+		int pt = type.getId();
+		PropertyType[] handles = propertyTypeHandles;
+		if (pt < handles.length && handles[pt] == type)
+			return pt;
+		else
+			throw new IllegalArgumentException("Property type does not belong to this graph.");
+	}
+	
+	int getRelationshipTypeId(RelationshipType type) {
+		int rt = type.getId();
+		RelationshipType[] handles = relationshipTypeHandles;
+		if (rt < handles.length && handles[rt] == type)
+			return rt;
+		else
+			throw new IllegalArgumentException("Relationship type does not belong to this graph.");
+	}
+	
+	PropertyType getPropertyType(int pt) {
+		return propertyTypeHandles[pt];
+	}
+	
+	RelationshipType getRelationshipType(int rt) {
+		return relationshipTypeHandles[rt];
+	}
+	
+	String getPropertyTypeName(int pt) {
+		return propertyTypeHandles[pt].getName();
+	}
+	
+	String getRelationshipTypeName(int rt) {
+		return relationshipTypeHandles[rt].getName();
+	}
+	
+	Class<?> getPropertyClass(int pt) {
+		return propertyTypeHandles[pt].getDataType();
+	}
+	
+	void addProperty(MemoryNode n, int pt, MemoryProperty p) {
+		if (n.isDeleted())
+			throw new IllegalStateException("Node has been deleted.");
+		p.slot = n.properties.add(pt, p);
+	}
+	
+	void removeProperty(MemoryNode n, int pt, MemoryProperty p) {
+		if (p.slot >= 0) {
+			n.properties.remove(pt, p.slot);
+			p.slot = -1;
+		}
+	}
+	
+	/**
+	 * Adds a new relationship to the adjacency of both its nodes, unless one of
+	 * them has been deleted.
+	 */
+	void attachRelationship(MemoryRelationship r) {
+		if (r.startNode.isDeleted() || r.endNode.isDeleted())
+			throw new IllegalStateException("Node has been deleted.");
+		addRelationship(r.startNode, r.getRelationshipTypeId(), r);
+		addRelationship(r.endNode, r.getRelationshipTypeId(), r);
+	}
+	
+	/**
+	 * Returns a copy of the properties of a node.
+	 */
+	List<MemoryProperty> copyProperties(MemoryNode n) {
+		return new ArrayList<MemoryProperty>(n.properties.values());
+	}
+	
+	/**
+	 * Returns a copy of the relationships of a node.
+	 */
+	List<MemoryRelationship> copyRelationships(MemoryNode n) {
+		return new ArrayList<MemoryRelationship>(n.relationships.values());
+	}
+	
+	void addRelationship(MemoryNode n, int rt, MemoryRelationship r) {
+		r.attach(n, n.relationships.add(rt, r));
 	}
 	
-	String getRelationshipTypeName(Integer rt) {
-		return relationshipTypes.inverse().get(rt);
+	void ensureRelationshipCapacity(MemoryNode n, int rt, int additional) {
+		n.relationships.ensureCapacity(rt, additional);
 	}
 	
-	Class<?> getPropertyClass(Integer pt) {
-		return propertyClasses.get(pt);
+	void removeRelationship(MemoryNode n, int rt, MemoryRelationship r) {
+		int slot = r.detach(n);
+		if (slot >= 0)
+			n.relationships.remove(rt, slot);
+	}
+	
+	void notifyNodeCreated(MemoryNode n) {
+		nodes.add(n);
+		for (GraphListener listener : listeners)
+			listener.nodeCreated(n);
 	}
 	
 	void notifyNodeDeleted(MemoryNode n) {
-		nodes.remove(n);
+		if (nodes.remove(n))
+			for (GraphListener listener : listeners)
+				listener.nodeDeleted(n);
 	}
 	
 	void notifyPropertyCreated(MemoryNode n, MemoryProperty p) {
-		Object attribute = p.getAttribute();
-		if (attribute instanceof Enum<?> || attribute instanceof Boolean) {
-			Map<Object, Set<Node>> propertyIndex = index.get(p.getPropertyType());
-			Set<Node> nodes;
-			if (propertyIndex == null) {
-				propertyIndex = new HashMap<Object, Set<Node>>();
-				index.put(p.getPropertyType(), propertyIndex);
-			}
-			nodes = propertyIndex.get(attribute);
-			
-			if (nodes == null) {
-				nodes = new HashSet<Node>();
-				propertyIndex.put(attribute, nodes);
-			}
-			
-			nodes.add(n);
-		}
+		p.indexed = true;
+		List<AttributeIndex> typeIndexes = indexes.get(p.getPropertyTypeId());
+		if (typeIndexes != null)
+			for (AttributeIndex index : typeIndexes)
+				index.add(p.getAttribute(), n);
+		for (GraphListener listener : listeners)
+			listener.propertyCreated(p);
 	}
 	
 	void notifyPropertyDeleted(MemoryNode n, MemoryProperty p) {
-		Collection<MemoryProperty> properties = n.getProperties(p.getPropertyType());
-		int count = 0;
-		for (MemoryProperty prop : properties)
-			if (prop.getAttribute().equals(p.getAttribute()))
-				count++;
-		
-		if (count == 1) {
-			Map<Object, Set<Node>> propertyIndex = index.get(p.getPropertyType());
-			Set<Node> nodes;
-			
-			if (propertyIndex != null) {
-				nodes = propertyIndex.get(p.getAttribute());
-				if (nodes != null) {
-					nodes.remove(n);
-				}
-			}
-		}
+		for (GraphListener listener : listeners)
+			listener.propertyDeleted(p);
+		p.indexed = false;
+		List<AttributeIndex> typeIndexes = indexes.get(p.getPropertyTypeId());
+		if (typeIndexes != null)
+			for (AttributeIndex index : typeIndexes)
+				index.remove(p.getAttribute(), n);
+	}
+	
+	void notifyRelationshipCreated(MemoryRelationship r) {
+		for (GraphListener listener : listeners)
+			listener.relationshipCreated(r);
+	}
+	
+	void notifyRelationshipDeleted(MemoryRelationship r) {
+		for (GraphListener listener : listeners)
+			listener.relationshipDeleted(r);
 	}
 }
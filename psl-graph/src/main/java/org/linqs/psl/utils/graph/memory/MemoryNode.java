@@ -17,39 +17,74 @@
  */
 package org.linqs.psl.utils.graph.memory;
 
-import java.util.ArrayList;
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-import org.apache.commons.collections15.multimap.MultiHashMap;
 import org.linqs.psl.utils.graph.Edge;
 import org.linqs.psl.utils.graph.Node;
 import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
 import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
 
+import com.google.common.collect.Iterators;
+
+/**
+ * A node of a {@link MemoryGraph}.
+ *
+ * The collections of edges, properties and relationships returned by a node are
+ * read-only views of its adjacency rather than copies, so they can be iterated
+ * without allocating. They must not be used across modifications of the node.
+ *
+ * Edges are deleted in constant time. Deleting an edge moves the last edge of the
+ * same type into its place, so the order of a node's edges changes. No edges can
+ * be added to a node once it is deleted.
+ */
 public class MemoryNode implements Node {
 	
+	private static final AtomicIntegerFieldUpdater<MemoryNode> deletedUpdater =
+			AtomicIntegerFieldUpdater.newUpdater(MemoryNode.class, "deleted");
+	
 	final MemoryGraph graph;
 	final long uid;
-	final MultiHashMap<Integer, MemoryProperty> properties;
-	final MultiHashMap<Integer, MemoryRelationship> relationships;
+	/* Slot in the graph's node store, or -1 for edges */
+	int id;
+	final Adjacency<MemoryProperty> properties;
+	final Adjacency<MemoryRelationship> relationships;
+	/* 1 once this node or edge is deleted, set only through markDeleted */
+	private volatile int deleted;
 	
 	MemoryNode(MemoryGraph g) {
 		graph = g;
 		uid = g.getUID();
-		properties = new MultiHashMap<Integer, MemoryProperty>(1);
-		relationships = new MultiHashMap<Integer, MemoryRelationship>(1);
+		id = -1;
+		properties = new Adjacency<MemoryProperty>(this);
+		relationships = new Adjacency<MemoryRelationship>(this);
+	}
+
+	/**
+	 * Returns the id of this node in its graph, or -1 for edges.
+	 *
+	 * Ids are assigned in the order nodes are created and are not reused after a
+	 * node is deleted.
+	 */
+	public int getId() {
+		return id;
 	}
 
 	@Override
 	public Property createProperty(String type, Object attribute) {
-		Integer pt = graph.getPropertyType(type);
+		Integer pt = graph.getPropertyTypeId(type);
 		if (pt != null) {
 			Class<?> clazz = graph.getPropertyClass(pt);
 			if (clazz.isInstance(attribute)) {
 				MemoryProperty p = new MemoryProperty(graph, pt, this, attribute);
-				properties.put(pt, p);
+				graph.addProperty(this, pt, p);
 				graph.notifyPropertyCreated(this, p);
 				return p;
 			}
@@ -62,14 +97,14 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Relationship createRelationship(String type, Node n) {
-		Integer rt = graph.getRelationshipType(type);
+		Integer rt = graph.getRelationshipTypeId(type);
 		if (rt != null) {
 			if (n instanceof MemoryNode) {
 				MemoryNode mn = (MemoryNode) n;
 				if (graph.equals(mn.graph)) {
 					MemoryRelationship r = new MemoryRelationship(graph, rt, this, mn);
-					relationships.put(rt, r);
-					mn.relationships.put(rt, r);
+					graph.attachRelationship(r);
+					graph.notifyRelationshipCreated(r);
 					return r;
 				}
 				else
@@ -84,7 +119,20 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Object getAttribute(String type) {
-		Collection<MemoryProperty> properties = getProperties(type);
+		return getAttribute(getProperties(type));
+	}
+
+	@Override
+	public <O> O getAttribute(String type, Class<O> c) {
+		return c.cast(getAttribute(type));
+	}
+
+	@Override
+	public Object getAttribute(PropertyType type) {
+		return getAttribute(getProperties(type));
+	}
+
+	private static Object getAttribute(Collection<MemoryProperty> properties) {
 		if (properties.size() == 0)
 			return null;
 		else if (properties.size() == 1)
@@ -93,11 +141,32 @@ public class MemoryNode implements Node {
 			throw new IllegalArgumentException("Node contains multiple properties of the specified type.");
 	}
 
-	@Override
-	public <O> O getAttribute(String type, Class<O> c) {
-		return c.cast(getAttribute(type));
+	/**
+	 * Returns the value of this node in a double column of its graph.
+	 *
+	 * @see MemoryGraph#createDoubleColumn(String, double)
+	 */
+	public double getDouble(String column) {
+		return graph.getDoubleColumn(column).get(this);
 	}
-
+	
+	public void setDouble(String column, double value) {
+		graph.getDoubleColumn(column).set(this, value);
+	}
+	
+	/**
+	 * Returns the value of this node in a long column of its graph.
+	 *
+	 * @see MemoryGraph#createLongColumn(String, long)
+	 */
+	public long getLong(String column) {
+		return graph.getLongColumn(column).get(this);
+	}
+	
+	public void setLong(String column, long value) {
+		graph.getLongColumn(column).set(this, value);
+	}
+	
 	@Override
 	public Iterator<? extends Edge> getEdgeIterator() {
 		return getEdges().iterator();
@@ -105,10 +174,18 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Collection<? extends Edge> getEdges() {
-		Collection<MemoryEdge> edges = new HashSet<MemoryEdge>(getNoEdges());
-		edges.addAll(getProperties());
-		edges.addAll(getRelationships());
-		return edges;
+		return new AbstractCollection<MemoryEdge>() {
+			@Override
+			public Iterator<MemoryEdge> iterator() {
+				return Iterators.unmodifiableIterator(Iterators.<MemoryEdge>concat(
+						properties.values().iterator(), relationships.values().iterator()));
+			}
+
+			@Override
+			public int size() {
+				return getNoEdges();
+			}
+		};
 	}
 
 	@Override
@@ -118,12 +195,12 @@ public class MemoryNode implements Node {
 
 	@Override
 	public int getNoProperties() {
-		return properties.totalSize();
+		return properties.size();
 	}
 
 	@Override
 	public int getNoRelationships() {
-		return relationships.totalSize();
+		return relationships.size();
 	}
 
 	@Override
@@ -133,7 +210,7 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Collection<MemoryProperty> getProperties() {
-		return new ArrayList<MemoryProperty>(properties.values());
+		return properties.values();
 	}
 
 	@Override
@@ -143,8 +220,12 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Collection<MemoryProperty> getProperties(String type) {
-		Collection<MemoryProperty> p = properties.get(graph.getPropertyType(type));
-		return (p != null) ? new ArrayList<MemoryProperty>(p) : new ArrayList<MemoryProperty>(0);
+		return properties.get(graph.getPropertyTypeId(type));
+	}
+
+	@Override
+	public Collection<MemoryProperty> getProperties(PropertyType type) {
+		return properties.get(graph.getPropertyTypeId(type));
 	}
 
 	@Override
@@ -154,7 +235,7 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Collection<MemoryRelationship> getRelationships() {
-		return new ArrayList<MemoryRelationship>(relationships.values());
+		return relationships.values();
 	}
 
 	@Override
@@ -164,23 +245,52 @@ public class MemoryNode implements Node {
 
 	@Override
 	public Collection<MemoryRelationship> getRelationships(String type) {
-		Collection<MemoryRelationship> r = relationships.get(graph.getRelationshipType(type));
-		return (r != null) ? new ArrayList<MemoryRelationship>(r) : new ArrayList<MemoryRelationship>(0);
+		return relationships.get(graph.getRelationshipTypeId(type));
+	}
+
+	@Override
+	public Collection<MemoryRelationship> getRelationships(RelationshipType type) {
+		return relationships.get(graph.getRelationshipTypeId(type));
+	}
+	
+	/**
+	 * Returns the relationships of a type starting at this node, listing self-loops once.
+	 */
+	Stream<MemoryRelationship> getStartingRelationships(int rt) {
+		List<MemoryRelationship> adjacent = relationships.get(rt);
+		return IntStream.range(0, adjacent.size())
+				.filter(i -> adjacent.get(i).isStartSlot(this, i))
+				.mapToObj(adjacent::get);
 	}
 	
 	void notifyPropertyDeleted(MemoryProperty p) {
-		properties.remove(graph.getPropertyType(p.getPropertyType()), p);
+		graph.removeProperty(this, p.getPropertyTypeId(), p);
 	}
 	
 	void notifyRelationshipDeleted(MemoryRelationship r) {
-		relationships.remove(graph.getRelationshipType(r.getRelationshipType()), r);
+		graph.removeRelationship(this, r.getRelationshipTypeId(), r);
+	}
+
+	/**
+	 * Marks this node or edge as deleted, returning false if it already was, so
+	 * that only one of several threads deleting it goes on to do so.
+	 */
+	boolean markDeleted() {
+		return deletedUpdater.compareAndSet(this, 0, 1);
+	}
+	
+	boolean isDeleted() {
+		return deleted != 0;
 	}
 
 	@Override
 	public void delete() {
-		for (MemoryProperty p : getProperties())
+		if (!markDeleted())
+			return;
+		/* Copies the adjacency since deleting edges modifies it */
+		for (MemoryProperty p : graph.copyProperties(this))
 			p.delete();
-		for (MemoryRelationship r : getRelationships())
+		for (MemoryRelationship r : graph.copyRelationships(this))
 			r.delete();
 		graph.notifyNodeDeleted(this);
 	}
@@ -23,17 +23,23 @@ import java.util.List;
 
 import org.linqs.psl.utils.graph.Node;
 import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
 import org.linqs.psl.utils.graph.Relationship;
 
 public class MemoryProperty extends MemoryEdge implements Property {
 	
 	final private Object attribute;
-	final private Integer propertyType;
+	final private int propertyType;
+	/* Slot in the adjacency of the start node, or -1 once deleted */
+	int slot;
+	/* Whether the indexes of the graph currently hold this property */
+	boolean indexed;
 
-	MemoryProperty(MemoryGraph g, Integer pt, MemoryNode n, Object a) {
+	MemoryProperty(MemoryGraph g, int pt, MemoryNode n, Object a) {
 		super(g, n);
 		attribute = a;
 		propertyType = pt;
+		slot = -1;
 	}
 	
 	@Override
@@ -71,6 +77,15 @@ public class MemoryProperty extends MemoryEdge implements Property {
 		return graph.getPropertyTypeName(propertyType);
 	}
 
+	@Override
+	public PropertyType getType() {
+		return graph.getPropertyType(propertyType);
+	}
+
+	int getPropertyTypeId() {
+		return propertyType;
+	}
+
 	@Override
 	public Collection<? extends Node> getNodes() {
 		List<MemoryNode> nodes = new ArrayList<MemoryNode>(1);
@@ -83,11 +98,17 @@ public class MemoryProperty extends MemoryEdge implements Property {
 		return startNode.equals(n);
 	}
 	
+	@Override
+	void moveSlot(MemoryNode n, int from, int to) {
+		slot = to;
+	}
+
 	@Override
 	public void delete() {
+		if (!markDeleted())
+			return;
 		graph.notifyPropertyDeleted(startNode, this);
 		startNode.notifyPropertyDeleted(this);
-		super.delete();
 	}
 
 }
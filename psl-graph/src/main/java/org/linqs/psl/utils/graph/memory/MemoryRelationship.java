@@ -23,16 +23,22 @@ import java.util.List;
 
 import org.linqs.psl.utils.graph.Node;
 import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
 
 public class MemoryRelationship extends MemoryEdge implements Relationship {
 	
 	final MemoryNode endNode;
-	final private Integer relationshipType;
+	final private int relationshipType;
+	/* Slots in the adjacency of the start and end node, or -1 once removed */
+	private int startSlot;
+	private int endSlot;
 
-	MemoryRelationship(MemoryGraph g, Integer rt, MemoryNode start, MemoryNode end) {
+	MemoryRelationship(MemoryGraph g, int rt, MemoryNode start, MemoryNode end) {
 		super(g, start);
 		endNode = end;
 		relationshipType = rt;
+		startSlot = -1;
+		endSlot = -1;
 	}
 
 	@Override
@@ -65,6 +71,58 @@ public class MemoryRelationship extends MemoryEdge implements Relationship {
 		return graph.getRelationshipTypeName(relationshipType);
 	}
 
+	@Override
+	public RelationshipType getType() {
+		return graph.getRelationshipType(relationshipType);
+	}
+
+	int getRelationshipTypeId() {
+		return relationshipType;
+	}
+
+	/**
+	 * Records the slot this relationship was added at in the adjacency of n.
+	 * A self-loop is added to the adjacency of its node twice, start side first.
+	 */
+	void attach(MemoryNode n, int slot) {
+		if (n == startNode && startSlot < 0)
+			startSlot = slot;
+		else
+			endSlot = slot;
+	}
+
+	/**
+	 * Forgets and returns the slot of this relationship in the adjacency of n,
+	 * or -1 if it has already been removed from it.
+	 */
+	int detach(MemoryNode n) {
+		int slot;
+		if (n == startNode && startSlot >= 0) {
+			slot = startSlot;
+			startSlot = -1;
+		}
+		else {
+			slot = endSlot;
+			endSlot = -1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns whether this relationship is listed at a slot of the adjacency of n as its start.
+	 */
+	boolean isStartSlot(MemoryNode n, int slot) {
+		return n == startNode && slot == startSlot;
+	}
+
+	@Override
+	void moveSlot(MemoryNode n, int from, int to) {
+		if (n == startNode && startSlot == from)
+			startSlot = to;
+		else
+			endSlot = to;
+	}
+
 	@Override
 	public boolean isSelfLoop(Node node) {
 		return startNode.equals(endNode);
@@ -85,9 +143,11 @@ public class MemoryRelationship extends MemoryEdge implements Relationship {
 
 	@Override
 	public void delete() {
+		if (!markDeleted())
+			return;
+		graph.notifyRelationshipDeleted(this);
 		startNode.notifyRelationshipDeleted(this);
 		endNode.notifyRelationshipDeleted(this);
-		super.delete();
 	}
 	
 }
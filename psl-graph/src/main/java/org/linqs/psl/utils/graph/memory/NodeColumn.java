@@ -0,0 +1,49 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+/**
+ * Storage for the values of a numeric property of every node of a {@link MemoryGraph},
+ * indexed by node id.
+ */
+abstract class NodeColumn {
+
+	final MemoryGraph graph;
+	final String name;
+
+	NodeColumn(MemoryGraph graph, String name) {
+		this.graph = graph;
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of values the column has room for.
+	 */
+	abstract int getCapacity();
+
+	/**
+	 * Returns the capacity needed to store a value for the node with the given id.
+	 */
+	int grownCapacity(int id, int capacity) {
+		return Math.max(id + 1, Math.max(graph.getIdBound(), 2 * capacity));
+	}
+}
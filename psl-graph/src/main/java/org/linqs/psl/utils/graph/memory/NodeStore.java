@@ -0,0 +1,268 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The nodes of a {@link MemoryGraph}, versioned so that snapshots can be taken
+ * in constant time.
+ *
+ * Every node occupies the slot given by its id, and slots are never reused. A
+ * snapshot shares the slot arrays with the store and records how many slots were
+ * in use and the epoch it was taken in. Deleting a node stamps its slot with the
+ * current epoch, so snapshots taken earlier still see it. Deleted nodes stay
+ * referenced only while a snapshot may still see them. The arrays are replaced,
+ * never modified in place, when they grow or are compacted, so existing snapshots
+ * keep a consistent view.
+ */
+class NodeStore {
+
+	private static final int initialCapacity = 16;
+	private static final long alive = Long.MAX_VALUE;
+
+	private MemoryNode[] nodes;
+	private long[] deleted;
+	private int size;
+	private int noNodes;
+
+	/* Deleted nodes that are still referenced because a snapshot may see them */
+	private int noRetained;
+	/* Number of slots visible to snapshots that share the current arrays */
+	private int snapshotSize;
+	private long epoch;
+
+	NodeStore() {
+		nodes = new MemoryNode[initialCapacity];
+		deleted = new long[initialCapacity];
+		size = 0;
+		noNodes = 0;
+		noRetained = 0;
+		snapshotSize = 0;
+		epoch = 0;
+	}
+
+	void add(MemoryNode n) {
+		if (size == nodes.length)
+			reallocate(nodes.length * 2);
+		n.id = size;
+		nodes[size] = n;
+		deleted[size] = alive;
+		size++;
+		noNodes++;
+	}
+
+	/**
+	 * Removes a node, returning false if it is not stored.
+	 */
+	boolean remove(MemoryNode n) {
+		int id = n.id;
+		if (id < 0 || id >= size || nodes[id] != n || deleted[id] != alive)
+			return false;
+
+		deleted[id] = epoch;
+		noNodes--;
+		if (id >= snapshotSize)
+			nodes[id] = null;
+		else if (++noRetained > size / 2)
+			reallocate(nodes.length);
+		return true;
+	}
+
+	int size() {
+		return noNodes;
+	}
+
+	/**
+	 * Returns the length of the slot arrays.
+	 */
+	int getCapacity() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns one more than the largest id of any node ever stored.
+	 */
+	int getIdBound() {
+		return size;
+	}
+
+	/**
+	 * Returns the node with the given id, or null if it has been deleted.
+	 */
+	MemoryNode get(int id) {
+		if (id < 0 || id >= size || deleted[id] != alive)
+			return null;
+		return nodes[id];
+	}
+
+	Snapshot snapshot() {
+		Snapshot snapshot = new Snapshot(nodes, deleted, size, noNodes, epoch);
+		epoch++;
+		snapshotSize = size;
+		return snapshot;
+	}
+
+	/**
+	 * Copies the live nodes into new arrays, dropping the deleted nodes that only
+	 * snapshots of the old arrays can see.
+	 */
+	private void reallocate(int capacity) {
+		MemoryNode[] newNodes = new MemoryNode[capacity];
+		long[] newDeleted = new long[capacity];
+		for (int i = 0; i < size; i++) {
+			if (deleted[i] == alive) {
+				newNodes[i] = nodes[i];
+				newDeleted[i] = alive;
+			}
+		}
+		nodes = newNodes;
+		deleted = newDeleted;
+		noRetained = 0;
+		snapshotSize = 0;
+	}
+
+	/**
+	 * The nodes that were in the store when the snapshot was taken.
+	 */
+	static class Snapshot extends AbstractCollection<MemoryNode> {
+		private final MemoryNode[] nodes;
+		private final long[] deleted;
+		private final int size;
+		private final int noNodes;
+		private final long epoch;
+
+		private Snapshot(MemoryNode[] nodes, long[] deleted, int size, int noNodes, long epoch) {
+			this.nodes = nodes;
+			this.deleted = deleted;
+			this.size = size;
+			this.noNodes = noNodes;
+			this.epoch = epoch;
+		}
+
+		private boolean isVisible(int id) {
+			return deleted[id] > epoch;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof MemoryNode))
+				return false;
+			int id = ((MemoryNode) o).id;
+			return id >= 0 && id < size && nodes[id] == o && isVisible(id);
+		}
+
+		@Override
+		public Iterator<MemoryNode> iterator() {
+			return new Iterator<MemoryNode>() {
+				private int next = advance(0);
+
+				private int advance(int from) {
+					while (from < size && !isVisible(from))
+						from++;
+					return from;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public MemoryNode next() {
+					if (next >= size)
+						throw new NoSuchElementException();
+					MemoryNode n = nodes[next];
+					next = advance(next + 1);
+					return n;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException("Snapshots are read-only.");
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return noNodes;
+		}
+
+		@Override
+		public Spliterator<MemoryNode> spliterator() {
+			return new SlotSpliterator(0, size);
+		}
+
+		/**
+		 * Splits the snapshot into ranges of slots.
+		 */
+		private class SlotSpliterator implements Spliterator<MemoryNode> {
+			private int from;
+			private final int to;
+
+			SlotSpliterator(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			public boolean tryAdvance(Consumer<? super MemoryNode> action) {
+				while (from < to) {
+					int id = from++;
+					if (isVisible(id)) {
+						action.accept(nodes[id]);
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public void forEachRemaining(Consumer<? super MemoryNode> action) {
+				for (; from < to; from++)
+					if (isVisible(from))
+						action.accept(nodes[from]);
+			}
+
+			@Override
+			public Spliterator<MemoryNode> trySplit() {
+				if (to - from < 2)
+					return null;
+				int mid = (from + to) >>> 1;
+				SlotSpliterator prefix = new SlotSpliterator(from, mid);
+				from = mid;
+				return prefix;
+			}
+
+			@Override
+			public long estimateSize() {
+				return to - from;
+			}
+
+			@Override
+			public int characteristics() {
+				return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * Supports equality and range lookups on Comparable attributes.
+ *
+ * Bounds may be numbers of a different class than the attributes, such as a
+ * Double bound on Integer attributes. Such numbers are compared by their exact
+ * values, not by their double values.
+ */
+class SortedAttributeIndex extends AttributeIndex {
+
+	private static final Comparator<Object> comparator = new Comparator<Object>() {
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public int compare(Object a, Object b) {
+			if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass())
+				return compareNumbers((Number) a, (Number) b);
+			return ((Comparable) a).compareTo(b);
+		}
+	};
+
+	private static int compareNumbers(Number a, Number b) {
+		if (isIntegral(a) && isIntegral(b))
+			return Long.compare(a.longValue(), b.longValue());
+		/* Infinities and NaN have no exact decimal value */
+		if (!isFinite(a) || !isFinite(b))
+			return Double.compare(a.doubleValue(), b.doubleValue());
+		return toBigDecimal(a).compareTo(toBigDecimal(b));
+	}
+
+	private static boolean isIntegral(Number n) {
+		return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+	}
+
+	private static boolean isFinite(Number n) {
+		if (n instanceof Double || n instanceof Float)
+			return !Double.isInfinite(n.doubleValue()) && !Double.isNaN(n.doubleValue());
+		return true;
+	}
+
+	private static BigDecimal toBigDecimal(Number n) {
+		if (n instanceof BigDecimal)
+			return (BigDecimal) n;
+		if (n instanceof BigInteger)
+			return new BigDecimal((BigInteger) n);
+		if (isIntegral(n))
+			return BigDecimal.valueOf(n.longValue());
+		if (n instanceof Double || n instanceof Float)
+			return new BigDecimal(n.doubleValue());
+		return new BigDecimal(n.toString());
+	}
+
+	SortedAttributeIndex() {
+		super(new TreeMap<Object, Bucket>(comparator));
+	}
+
+	@Override
+	IndexKind getKind() {
+		return IndexKind.SORTED;
+	}
+
+	/**
+	 * Returns the nodes with an attribute between from and to. A null bound leaves
+	 * that side of the range open.
+	 */
+	Set<Node> getRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+		NavigableMap<Object, Bucket> range = (NavigableMap<Object, Bucket>) buckets;
+		if (from != null && to != null && comparator.compare(from, to) > 0)
+			return new HashSet<Node>();
+		if (from != null)
+			range = range.tailMap(from, fromInclusive);
+		if (to != null)
+			range = range.headMap(to, toInclusive);
+
+		Set<Node> nodes = new HashSet<Node>();
+		for (Bucket bucket : range.values())
+			nodes.addAll(bucket.getNodes());
+		return nodes;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import java.util.Arrays;
+
+/**
+ * Improves a partition of the nodes of one coarsening level by
+ * Fiduccia-Mattheyses boundary refinement.
+ *
+ * A pass repeatedly moves the unlocked node whose move to another block reduces
+ * the edge cut most, locks it, and updates the gains of its neighbors. Moves that
+ * increase the cut are allowed so that a pass can climb out of local minima; when
+ * the pass ends, the moves after the smallest cut seen are undone. Passes are
+ * repeated until one does not reduce the cut.
+ *
+ * A node is only moved into a block if that block stays within the maximum block
+ * weight, or gets lighter than the block the node leaves.
+ */
+class FMRefinement {
+
+	/* A pass ends after this many moves without a smaller cut */
+	private static final int maxUnproductiveMoves = 64;
+
+	private final PartitionKernel.Level level;
+	private final int[] assign;
+	private final int noPartitions;
+	private final double[] pweights;
+	private final double maxBlockWeight;
+
+	/* Edge weight from the node being evaluated to every block */
+	private final double[] connectivity;
+
+	/**
+	 * @param assign the block of every node of the level, which is refined in place
+	 * @param imbalance the fraction by which blocks may exceed the average block weight
+	 */
+	FMRefinement(PartitionKernel.Level level, int[] assign, int noPartitions, double imbalance) {
+		this.level = level;
+		this.assign = assign;
+		this.noPartitions = noPartitions;
+		pweights = new double[noPartitions];
+		double total = 0.0;
+		for (int v = 0; v < level.noNodes; v++) {
+			pweights[assign[v]] += level.nodeWeights[v];
+			total += level.nodeWeights[v];
+		}
+		maxBlockWeight = (1.0 + imbalance) * total / noPartitions;
+		connectivity = new double[noPartitions];
+	}
+
+	/**
+	 * Runs up to maxPasses passes and returns by how much the edge cut was reduced.
+	 */
+	double refine(int maxPasses) {
+		double reduction = 0.0;
+		for (int pass = 0; pass < maxPasses; pass++) {
+			double passReduction = pass();
+			if (passReduction <= 0.0)
+				break;
+			reduction += passReduction;
+		}
+		return reduction;
+	}
+
+	private double pass() {
+		int n = level.noNodes;
+		GainQueue queue = new GainQueue(n);
+		for (int v = 0; v < n; v++)
+			if (computeConnectivity(v))
+				queue.put(v, bestGain(v));
+
+		boolean[] locked = new boolean[n];
+		int[] moved = new int[n];
+		int[] from = new int[n];
+		int noMoves = 0;
+		double reduction = 0.0;
+		double bestReduction = 0.0;
+		int bestNoMoves = 0;
+
+		while (!queue.isEmpty() && noMoves - bestNoMoves < maxUnproductiveMoves) {
+			int v = queue.poll();
+			locked[v] = true;
+			computeConnectivity(v);
+			int source = assign[v];
+			int target = bestTarget(v, source);
+			if (target < 0)
+				continue;
+
+			reduction += connectivity[target] - connectivity[source];
+			move(v, source, target);
+			moved[noMoves] = v;
+			from[noMoves++] = source;
+			if (reduction > bestReduction) {
+				bestReduction = reduction;
+				bestNoMoves = noMoves;
+			}
+
+			for (int e = level.offsets[v]; e < level.offsets[v + 1]; e++) {
+				int u = level.neighbors[e];
+				if (locked[u])
+					continue;
+				if (computeConnectivity(u))
+					queue.put(u, bestGain(u));
+				else
+					queue.remove(u);
+			}
+		}
+
+		/* Undoes the moves after the smallest cut */
+		for (int i = noMoves - 1; i >= bestNoMoves; i--)
+			move(moved[i], assign[moved[i]], from[i]);
+		return bestReduction;
+	}
+
+	private void move(int v, int source, int target) {
+		pweights[source] -= level.nodeWeights[v];
+		pweights[target] += level.nodeWeights[v];
+		assign[v] = target;
+	}
+
+	/**
+	 * Computes the connectivity of a node to every block and returns whether the
+	 * node has a neighbor in another block.
+	 */
+	private boolean computeConnectivity(int v) {
+		Arrays.fill(connectivity, 0.0);
+		boolean boundary = false;
+		for (int e = level.offsets[v]; e < level.offsets[v + 1]; e++) {
+			int opid = assign[level.neighbors[e]];
+			connectivity[opid] += level.edgeWeights[e];
+			boundary |= opid != assign[v];
+		}
+		return boundary;
+	}
+
+	/**
+	 * Returns the largest cut reduction of moving a node to another block,
+	 * ignoring balance. Requires the connectivity of the node.
+	 */
+	private double bestGain(int v) {
+		int own = assign[v];
+		double best = Double.NEGATIVE_INFINITY;
+		for (int pid = 0; pid < noPartitions; pid++)
+			if (pid != own && connectivity[pid] > best)
+				best = connectivity[pid];
+		return best - connectivity[own];
+	}
+
+	/**
+	 * Returns the block a node is best moved to without violating the balance,
+	 * or -1 if there is none. Requires the connectivity of the node.
+	 */
+	private int bestTarget(int v, int source) {
+		double w = level.nodeWeights[v];
+		int best = -1;
+		for (int pid = 0; pid < noPartitions; pid++) {
+			if (pid == source || connectivity[pid] <= 0.0)
+				continue;
+			if (pweights[pid] + w > maxBlockWeight && pweights[pid] + w >= pweights[source])
+				continue;
+			if (best < 0 || connectivity[pid] > connectivity[best]
+					|| (connectivity[pid] == connectivity[best] && pweights[pid] < pweights[best]))
+				best = pid;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A max-heap of the ints in [0, capacity) keyed by real-valued gains, which
+ * supports changing the gain of an element already in the heap.
+ *
+ * Gain buckets need integer gains, while relationship weights are doubles, so
+ * the elements are kept in a binary heap that records the position of every
+ * element in an array indexed by element. All operations but lookups take time
+ * logarithmic in the size of the heap.
+ */
+class GainQueue {
+
+	private final int[] positions;
+	private int[] elements;
+	private double[] gains;
+	private int size;
+
+	GainQueue(int capacity) {
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+		elements = new int[Math.min(capacity, 16)];
+		gains = new double[elements.length];
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int e) {
+		return positions[e] >= 0;
+	}
+
+	/**
+	 * Inserts an element, or changes its gain if it is already in the heap.
+	 */
+	void put(int e, double gain) {
+		int pos = positions[e];
+		if (pos < 0) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, Math.max(2 * size, 1));
+				gains = Arrays.copyOf(gains, elements.length);
+			}
+			set(size, e, gain);
+			siftUp(size++);
+		}
+		else if (gain > gains[pos]) {
+			gains[pos] = gain;
+			siftUp(pos);
+		}
+		else {
+			gains[pos] = gain;
+			siftDown(pos);
+		}
+	}
+
+	/**
+	 * Adds to the gain of an element, inserting it with that gain if it is not in the heap.
+	 */
+	void add(int e, double gain) {
+		int pos = positions[e];
+		put(e, (pos < 0) ? gain : gains[pos] + gain);
+	}
+
+	/**
+	 * Returns the element with the largest gain.
+	 */
+	int peek() {
+		if (size == 0)
+			throw new NoSuchElementException("Queue is empty.");
+		return elements[0];
+	}
+
+	/**
+	 * Returns the largest gain in the heap.
+	 */
+	double peekGain() {
+		if (size == 0)
+			throw new NoSuchElementException("Queue is empty.");
+		return gains[0];
+	}
+
+	/**
+	 * Removes and returns the element with the largest gain.
+	 */
+	int poll() {
+		int top = peek();
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes an element, returning false if it is not in the heap.
+	 */
+	boolean remove(int e) {
+		int pos = positions[e];
+		if (pos < 0)
+			return false;
+		removeAt(pos);
+		return true;
+	}
+
+	private void removeAt(int pos) {
+		positions[elements[pos]] = -1;
+		size--;
+		if (pos != size) {
+			set(pos, elements[size], gains[size]);
+			siftDown(pos);
+			siftUp(pos);
+		}
+	}
+
+	private void set(int pos, int e, double gain) {
+		elements[pos] = e;
+		gains[pos] = gain;
+		positions[e] = pos;
+	}
+
+	private void siftUp(int pos) {
+		int e = elements[pos];
+		double gain = gains[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (gains[parent] >= gain)
+				break;
+			set(pos, elements[parent], gains[parent]);
+			pos = parent;
+		}
+		set(pos, e, gain);
+	}
+
+	private void siftDown(int pos) {
+		int e = elements[pos];
+		double gain = gains[pos];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && gains[child + 1] > gains[child])
+				child++;
+			if (gain >= gains[child])
+				break;
+			set(pos, elements[child], gains[child]);
+			pos = child;
+		}
+		set(pos, e, gain);
+	}
+}
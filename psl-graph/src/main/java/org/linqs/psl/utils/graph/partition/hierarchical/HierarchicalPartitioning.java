@@ -18,52 +18,69 @@
 package org.linqs.psl.utils.graph.partition.hierarchical;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.IndexedGraph;
 import org.linqs.psl.utils.graph.Node;
 import org.linqs.psl.utils.graph.Relationship;
 import org.linqs.psl.utils.graph.partition.Partitioner;
-import org.linqs.psl.utils.graph.weight.HashRelationshipWeighter;
 import org.linqs.psl.utils.graph.weight.NodeWeighter;
-import org.linqs.psl.utils.graph.weight.PropertyNodeWeighter;
 import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 
-import de.mathnbits.util.RandomStack;
-
+/**
+ * Partitions a graph by repeatedly coarsening it, partitioning the coarsest level
+ * and mapping the blocks back to the original nodes one level at a time. The
+ * partition is improved by {@link FMRefinement} at every level.
+ *
+ * The nodes are numbered once and every level is kept in arrays indexed by node
+ * number, see {@link PartitionKernel}, so the graph being partitioned is not modified.
+ *
+ * Partitioning is randomized. Once a seed is set, partitioning the same nodes,
+ * iterated in the same order, always gives the same partition.
+ */
 public class HierarchicalPartitioning implements Partitioner {
 
 	private static final Logger log =
 		LoggerFactory.getLogger(HierarchicalPartitioning.class);
 	
-	protected static final String relType = "connect";
-	protected static final String weightType = "weight";
-	
-	private static final double shrinkingThreshold = 0.7;
+	static final double shrinkingThreshold = 0.7;
 	private static final int finalMultiple = 8;
 	private static final int initialMultiple = 400;
 	
 	private static final int defaultNoTrials = 10;
 	private static final int defaultNoPartitions = 2;
 	private static final double defaultBalanceExponent = 1.5;
+	private static final int defaultNoRefinementPasses = 4;
+	private static final double defaultImbalance = 0.05;
 	
 	private double balanceExponent;
 	private int noTrials;
 	private int noPartitions;
+	private int noRefinementPasses;
+	private double imbalance;
+	private Executor executor;
+	private Long seed;
 	
 	public HierarchicalPartitioning(int size) {
 		noPartitions=size;
 		noTrials = defaultNoTrials;
 		balanceExponent = defaultBalanceExponent;
+		noRefinementPasses = defaultNoRefinementPasses;
+		imbalance = defaultImbalance;
+		executor = ForkJoinPool.commonPool();
+		seed = null;
 	}
 
 	public HierarchicalPartitioning() {
@@ -87,6 +104,58 @@ public class HierarchicalPartitioning implements Partitioner {
 		this.balanceExponent = balanceExponent;
 	}
 
+	/**
+	 * Sets the seed all random choices of partitioning are derived from.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Returns a new source of randomness for one call to partition, seeded with
+	 * the seed of this partitioner if one is set.
+	 */
+	Random createRandom() {
+		return (seed != null) ? new Random(seed) : new Random();
+	}
+	
+	/**
+	 * Sets the executor the partitioning trials run on, which is the common
+	 * fork-join pool by default. Trials run in the calling thread with
+	 * {@link com.google.common.util.concurrent.MoreExecutors#directExecutor()}.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = Preconditions.checkNotNull(executor);
+	}
+	
+	public Executor getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Sets the maximum number of refinement passes per level. Zero disables refinement.
+	 */
+	public void setNoRefinementPasses(int passes) {
+		Preconditions.checkArgument(passes>=0,"Need to provide a non-negative number");
+		noRefinementPasses = passes;
+	}
+	
+	public int getNoRefinementPasses() {
+		return noRefinementPasses;
+	}
+	
+	/**
+	 * Sets the fraction by which refinement lets a block exceed the average block weight.
+	 */
+	public void setImbalance(double imbalance) {
+		Preconditions.checkArgument(imbalance>=0,"Need to provide a non-negative imbalance");
+		this.imbalance = imbalance;
+	}
+	
+	public double getImbalance() {
+		return imbalance;
+	}
+
 	public static final int coarseSizeThreshold(int noPartitions) {
 		double alpha =  Math.pow(1.0/noPartitions,0.75);
 		return (int)Math.round(alpha * (initialMultiple*noPartitions) + 
@@ -138,266 +207,99 @@ public class HierarchicalPartitioning implements Partitioner {
 		
 		log.debug("Partitioning into {} blocks with {} trials", noPartitions,noTrials);
 		
-		int level = 1;
-		int sizeThreshold = coarseSizeThreshold(noPartitions);
-		CoarseningResult coarsening = coarsen(g, nodes, nweight, rweight,level);
-		Map<Node,SuperNode> coarsemap = coarsening.map;
-		
-		log.debug("New Size: {} | Shrinkage: {}",coarsening.getNoSuperNodes(),coarsening.getShrinkageFactor());
-		
-		while (coarsening.getNoSuperNodes()>sizeThreshold && 
-				coarsening.getShrinkageFactor()<=shrinkingThreshold) {
-			//Keep coarsening
-			level++;
-			CoarseningResult nextCoarse = coarsen(g, coarsening.getSuperNodes(), coarsening.nweight, coarsening.rweight,level);
-
-			//Update coarsemap to map "through"
-			Map<Node,SuperNode> newcoarsemap = new HashMap<Node,SuperNode>(coarsemap.size());
-			for (Map.Entry<Node, SuperNode> old : coarsemap.entrySet()) {
-				newcoarsemap.put(old.getKey(), nextCoarse.map.get(old.getValue().getRepresentationNode()));
-			}
-			coarsemap = newcoarsemap;
-			coarsening = nextCoarse;
-			log.debug("New Size: {} | Shrinkage: {}",coarsening.getNoSuperNodes(),coarsening.getShrinkageFactor());			
-		}
-		//Now partition
-		Set<Node> topnodes = coarsening.getSuperNodes();
-		
-		Map<Node,Integer> bestAssign = null;
-		double bestEdgeCut = Double.POSITIVE_INFINITY;
-		double bestBalance = Double.POSITIVE_INFINITY;
-		
-		for (int trial=1; trial<=noTrials; trial++) {
-			Map<Node,Integer> pAssign = new HashMap<Node,Integer>();
-			List<Map<Node, Double>> pnghs = new ArrayList<Map<Node, Double>>(noPartitions);
-			double[] pweights = new double[noPartitions];
-			double edgeCut = 0.0;
-			//initial assignment
-			RandomStack<Node> rnodes = new RandomStack<Node>(topnodes);
-			for (int pid=0;pid<noPartitions;pid++) {
-				Map<Node, Double> nghs = new HashMap<Node, Double>(topnodes.size()/noPartitions);
-				pnghs.add(nghs);
-				Node n = rnodes.popRandom();
-				assert n!=null;
-				assert !pAssign.containsKey(n);
-				edgeCut += assign(n,pid,pweights,pAssign,pnghs,
-						coarsening.nweight,coarsening.rweight);
-			}
-			//assign remaining in neighborhood
-			while(!rnodes.isEmpty()) {
-				int pid = findMinPartitionBlock(pweights,pnghs);
-				if (pid<0) {
-					Node n;
-					for (pid=0; pid<noPartitions && !rnodes.isEmpty(); pid++) {
-						do {
-							n = rnodes.popRandom();
-						} while (pAssign.containsKey(n) && !rnodes.isEmpty());
-						edgeCut += assign(n, pid, pweights, pAssign, pnghs,
-								coarsening.nweight,coarsening.rweight);
-					}
-				}
-				else {
-					Node n = findMostConnected(pnghs.get(pid));
-					assert !pAssign.containsKey(n);
-					edgeCut += assign(n,pid,pweights,pAssign,pnghs,
-							coarsening.nweight,coarsening.rweight);
-				}
-			}
-//			while(true) {
-//				int pid = findMinPartitionBlock(pweights,pnghs);
-//				if (pid<0) break;
-//				Node n = findMostConnected(pnghs.get(pid));
-//				assert !pAssign.containsKey(n);
-//				edgeCut += assign(n,pid,pweights,pAssign,pnghs,
-//						coarsening.nweight,coarsening.rweight);
-//			}
-			//check whether any node has not yet been assigned
-//			for (Node n : topnodes) {
-//				if (!pAssign.containsKey(n)) {
-//					int pid = indexOfMin(pweights);
-//					pAssign.put(n, pid);
-//					pweights[pid]+= coarsening.nweight.getWeight(n);
-//				}
-//			}
-			double balance = stdDev(pweights);
-			
-			log.debug("Current partitions edge cut: {} | Balance : {}",edgeCut,balance);
-			//find best partition
-			if (partitionEvaluation(edgeCut,balance)<partitionEvaluation(bestEdgeCut,bestBalance)) {
-				bestEdgeCut = edgeCut;
-				bestBalance = balance;
-				bestAssign = pAssign;
+		List<Node> byNumber = new ArrayList<Node>();
+		for (Node n : nodes)
+			byNumber.add(n);
+		PartitionKernel kernel = new PartitionKernel(this);
+		int[] assign = kernel.partition(createLevel(g, byNumber, nweight, rweight));
+		for (int v = 0; v < assign.length; v++)
+			partition.get(assign[v]).add(byNumber.get(v));
+		return kernel.getEdgeCut();
+	}
+	
+	/**
+	 * Builds the level of the nodes, numbered by their position in the list, with
+	 * every relationship between them listed at both its ends.
+	 */
+	static PartitionKernel.Level createLevel(Graph g, List<? extends Node> nodes,
+			NodeWeighter nweight, RelationshipWeighter rweight) {
+		NodeNumbering numbering = (g instanceof IndexedGraph)
+				? new IndexedNumbering((IndexedGraph) g, nodes)
+				: new HashNumbering(nodes);
+		PartitionKernel.LevelBuilder builder = new PartitionKernel.LevelBuilder(nodes.size());
+		double[] nodeWeights = new double[nodes.size()];
+		for (int v = 0; v < nodes.size(); v++) {
+			Node n = nodes.get(v);
+			nodeWeights[v] = nweight.getWeight(n);
+			for (Relationship r : n.getRelationships()) {
+				int u = numbering.get(r.getOtherNode(n));
+				if (u >= 0 && u != v)
+					builder.add(u, rweight.getWeight(r));
 			}
+			builder.endNode();
 		}
-		
-		if (bestAssign==null)
-			throw new IllegalArgumentException("No feasible partition could be found!");
-		
-		//Use coarsemap to find partition
-		for (Map.Entry<Node, SuperNode> entry : coarsemap.entrySet()) {
-			Node node = entry.getKey();
-			int pid = bestAssign.get(entry.getValue().getRepresentationNode());
-			partition.get(pid).add(node);
-		}
-		
-		return bestEdgeCut;
+		return builder.build(nodeWeights);
 	}
 	
-	private final double partitionEvaluation(double edgeCut, double balance) {
+	final double partitionEvaluation(double edgeCut, double balance) {
 		if (edgeCut < 5)
 			return 10e30;
 		else
 			return edgeCut+Math.pow(balance,balanceExponent);
 	}
 	
-	private static final int findMinPartitionBlock(double[] pweights, List<Map<Node, Double>> neighborhoods) {
-		int index = -1;
-		for (int i=0;i<pweights.length;i++) {
-			if ( (index<0 || pweights[i]<pweights[index]) && neighborhoods.get(i).size()!=0) {
-				index = i;
-			}
+	static double stdDev(double[] values) {
+		double sum = 0.0;
+		double sumOfSquares = 0.0;
+		for (int i = 0; i < values.length; i++) {
+			sum += values[i];
+			sumOfSquares += Math.pow(values[i], 2);
 		}
-		return index;
+		return Math.sqrt((sumOfSquares - Math.pow(sum, 2) / values.length) / values.length);
 	}
 	
-	private static final Node findMostConnected(Map<Node, Double> neighborhood) {
-		Node bestNode = null;
-		double bestValue = Double.NEGATIVE_INFINITY;
-		for (Map.Entry<Node, Double> e : neighborhood.entrySet()) {
-			if (e.getValue()>bestValue) {
-				bestValue = e.getValue();
-				bestNode = e.getKey();
-			}
-		}
-		return bestNode;
+	/**
+	 * Numbers the nodes being partitioned.
+	 */
+	private interface NodeNumbering {
+		/**
+		 * Returns the number of a node, or -1 if it is not being partitioned.
+		 */
+		int get(Node n);
 	}
 	
-	private static final double assign(Node n, int pid, double[] pweights, Map<Node,Integer> pAssign, 
-			List<Map<Node, Double>> neighborhoods, NodeWeighter nweight, RelationshipWeighter rweight) {
-		pAssign.put(n, pid);
-		pweights[pid]+= nweight.getWeight(n);
+	private static class HashNumbering implements NodeNumbering {
+		private final Map<Node, Integer> numbers;
 		
-		double incEdgeCut = 0.0;
-		Map<Node, Double> nghs = neighborhoods.get(pid);
-		//Update neighborhoods and compute edge cut
-		for (Relationship r : n.getRelationships()) {
-			assert r.getRelationshipType().equals(relType);
-			double rw = rweight.getWeight(r);
-			Node other = r.getOtherNode(n);
-			Integer opid = pAssign.get(other);
-			if (opid==null) { //Not yet assigned => add to neighborhood
-				nghs.put(other, (nghs.get(other) != null) ? nghs.get(other) + rw : rw);
-			} else { //Already assigned => remove from its neighborhood, increase edge cut
-				Map<Node, Double> onghs = neighborhoods.get(opid);
-				onghs.remove(n);
-				if (opid!=pid) incEdgeCut += rw;
-			}
+		HashNumbering(List<? extends Node> nodes) {
+			numbers = new HashMap<Node, Integer>(nodes.size() * 2);
+			for (int v = 0; v < nodes.size(); v++)
+				numbers.put(nodes.get(v), v);
 		}
-		//System.out.println(incEdgeCut);
-		return incEdgeCut;
-	}
-
-	private static final double evaluateNeighbor(Node node, Relationship rel, Node neighbor, 
-			NodeWeighter nweight, RelationshipWeighter rweight, Set<Node> visited) {
-		return rweight.getWeight(rel)/Math.pow(nweight.getWeight(neighbor),0.5);
-	}
-	
-	private CoarseningResult coarsen(Graph g, Iterable<? extends Node> nodes, NodeWeighter nweight, 
-			RelationshipWeighter rweight, int level) {
 		
-		CoarseningResult result = new CoarseningResult();
-
-		result.g = g;
-		
-		List<SuperNode> supernodes = new ArrayList<SuperNode>();
-		
-		for (Node node : nodes) {
-			if (result.map.containsKey(node)) continue;
-			result.noBaseNodes++;
-			Set<Node> visited = new HashSet<Node>();
-			double highscore = Double.NEGATIVE_INFINITY;
-			Node bestngh = null;
-			for (Relationship r : node.getRelationships()) {
-				Node ngh = r.getOtherNode(node);
-				if (!visited.contains(ngh)) {
-					double score = evaluateNeighbor(node,r,ngh,nweight,rweight,visited);
-					if (score>highscore) {
-						bestngh = ngh;
-						highscore = score;
-					}
-				}
-			}
-			if (bestngh!=null) {
-				SuperNode nsup = result.map.get(bestngh);
-				if (nsup == null) {
-					nsup = new SuperNode(result.g.createNode());
-					result.addSuperNode(nsup);
-					nsup.addChild(bestngh, nweight.getWeight(bestngh));
-					result.map.put(bestngh, nsup);
-					supernodes.add(nsup);
-				}
-				nsup.addChild(node, nweight.getWeight(node));
-				result.map.put(node, nsup);
-			} else { //Create singleton node
-				SuperNode sup = new SuperNode(result.g.createNode());
-				result.addSuperNode(sup);
-				sup.addChild(node, nweight.getWeight(node));
-				result.map.put(node, sup);
-				supernodes.add(sup);
-
-			}
-			
+		@Override
+		public int get(Node n) {
+			Integer v = numbers.get(n);
+			return (v != null) ? v : -1;
 		}
-
-		/* Constructs new graph for coarsening */
-		result.rweight = createCoarseGraph(result.g, supernodes, result.map, rweight);
-		result.nweight = new PropertyNodeWeighter(weightType);
-		
-		return result;
 	}
 	
-	protected static HashRelationshipWeighter createCoarseGraph(Graph g,
-			Iterable<SuperNode> supernodes, Map<Node,SuperNode> assign,
-			RelationshipWeighter rweight) {
+	private static class IndexedNumbering implements NodeNumbering {
+		private final IndexedGraph g;
+		private final int[] numbers;
 		
-		g.createRelationshipType(relType);
-		g.createPropertyType(weightType, Double.class);
-		HashRelationshipWeighter relWeighter = new HashRelationshipWeighter();
-		
-		
-		for (SuperNode snode : supernodes) {
-			Map<Node, Double> acc = new HashMap<Node, Double>();
-			for (int ch=0;ch<snode.getNoChildren();ch++) {
-				Node child = snode.getChild(ch);
-				for (Relationship r : child.getRelationships()) {
-					SuperNode other = assign.get(r.getOtherNode(child));
-					if (snode.compareTo(other)>0) {
-						acc.put(other.getRepresentationNode(),
-								(acc.get(other.getRepresentationNode()) != null)
-									? acc.get(other.getRepresentationNode()) + rweight.getWeight(r)
-									: rweight.getWeight(r)
-						);
-					}
-				}
-			}
-			Node center = snode.getRepresentationNode();
-			center.createProperty(weightType, snode.getWeight());
-			for (Map.Entry<Node, Double> e : acc.entrySet()) {
-				Relationship rel = center.createRelationship(relType, e.getKey());
-				relWeighter.setWeight(rel, e.getValue());
-			}
+		IndexedNumbering(IndexedGraph g, List<? extends Node> nodes) {
+			this.g = g;
+			numbers = new int[g.getIdBound()];
+			Arrays.fill(numbers, -1);
+			for (int v = 0; v < nodes.size(); v++)
+				numbers[g.getNodeId(nodes.get(v))] = v;
 		}
-		return relWeighter;
-	}
-	
-	private double stdDev(double[] values) {
-		double sum = 0.0;
-		double sumOfSquares = 0.0;
-		for (int i = 0; i < values.length; i++) {
-			sum += values[i];
-			sumOfSquares += Math.pow(values[i], 2);
+		
+		@Override
+		public int get(Node n) {
+			return numbers[g.getNodeId(n)];
 		}
-		return Math.sqrt((sumOfSquares - Math.pow(sum, 2) / values.length) / values.length);
 	}
 	
 	private class ConstantOneNodeWeighter implements NodeWeighter {
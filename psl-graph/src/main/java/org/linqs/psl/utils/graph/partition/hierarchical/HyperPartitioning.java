@@ -18,27 +18,24 @@
 package org.linqs.psl.utils.graph.partition.hierarchical;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Random;
 
 import org.linqs.psl.utils.graph.Graph;
 import org.linqs.psl.utils.graph.Node;
 import org.linqs.psl.utils.graph.Relationship;
 import org.linqs.psl.utils.graph.weight.ConstantOneNodeWeighter;
 import org.linqs.psl.utils.graph.weight.NodeWeighter;
-import org.linqs.psl.utils.graph.weight.PropertyNodeWeighter;
 import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 
-import de.mathnbits.util.RandomStack;
-
 public class HyperPartitioning extends HierarchicalPartitioning {
 
 	private static final Logger log = LoggerFactory.getLogger(HyperPartitioning.class);
@@ -59,33 +56,36 @@ public class HyperPartitioning extends HierarchicalPartitioning {
 	
 	public double partition(Graph g, Iterable<? extends Node> nodes,
 			RelationshipWeighter rweight, NodeWeighter nweight, List<? extends Collection<Node>> partition) {
+		if (partition==null || partition.size()!=getSize())
+			throw new IllegalArgumentException("Partition container does not have the right size - expected: " + getSize());
+		for (int i=0;i<getSize();i++) Preconditions.checkNotNull(partition.get(i));
+		
 		log.debug("Hyper Partitioning Started!");
-		Map<Node,SuperNode> assign = new HashMap<Node,SuperNode>();
+		/* Every node is merged into a group, numbered by position in groups */
+		Map<Node,Integer> assign = new HashMap<Node,Integer>();
+		List<List<Node>> groups = new ArrayList<List<Node>>();
+		Random rand = createRandom();
 		
 		ArrayList<Node> hyperedges = new ArrayList<Node>();
 		double highestWeight = 0;
 		for (Node node : nodes) {
 			//Check if HyperEdge with infinite weight
-			Double weight = getHyperWeight(node,rweight);
+			double weight = getHyperWeight(node,rweight);
 			if (Double.isInfinite(weight)) {
-				SuperNode sup = new SuperNode(g.createNode());
-				sup.addChild(node, nweight.getWeight(node));
-				assign.put(node, sup);
-				
+				int sup = createGroup(node, assign, groups);
 				for (Relationship rel : node.getRelationships()) {
 					if (rel.getStart().equals(node)) {
 						Node ngh = rel.getOtherNode(node);
-						SuperNode sngh = assign.get(ngh);
-						if (sngh==sup) continue;
-						else if (sngh==null) {
-							sup.addChild(ngh, nweight.getWeight(ngh));
+						Integer sngh = assign.get(ngh);
+						if (sngh==null) {
+							groups.get(sup).add(ngh);
 							assign.put(ngh, sup);
-						} else { //Merge
-							for (int i=0;i<sngh.getNoChildren();i++) {
-								Node child = sngh.getChild(i);
-								sup.addChild(child, nweight.getWeight(child));
+						} else if (sngh!=sup) { //Merge
+							for (Node child : groups.get(sngh)) {
+								groups.get(sup).add(child);
 								assign.put(child, sup);
 							}
+							groups.get(sngh).clear();
 						}
 					}
 				}
@@ -101,22 +101,22 @@ public class HyperPartitioning extends HierarchicalPartitioning {
 			double currentWeight = highestWeight/2;
 			highestWeight = 0;
 			
-			RandomStack<Node> rnodes = new RandomStack<Node>(hyperedges);
+			SeededRandomStack<Node> rnodes = new SeededRandomStack<Node>(hyperedges, rand);
 			hyperedges = new ArrayList<Node>();
 			
 			while (!rnodes.isEmpty()) {
 				Node node = rnodes.popRandom();
-				assert !assign.containsKey(node);
 				double weight = getHyperWeight(node,rweight);
-				if (weight>currentWeight) {
-					SuperNode sup = new SuperNode(g.createNode());
-					sup.addChild(node, nweight.getWeight(node));
-					assign.put(node, sup);
+				if (assign.containsKey(node)) {
+					/* Already merged as the neighbor of another hyperedge */
+					continue;
+				} else if (weight>currentWeight) {
+					int sup = createGroup(node, assign, groups);
 					for (Relationship rel : node.getRelationships()) {
 						if (rel.getStart().equals(node)) {
 							Node ngh = rel.getOtherNode(node);
 							if (!assign.containsKey(ngh)) {
-								sup.addChild(ngh, nweight.getWeight(ngh));
+								groups.get(sup).add(ngh);
 								assign.put(ngh, sup);
 							}
 						}
@@ -128,36 +128,57 @@ public class HyperPartitioning extends HierarchicalPartitioning {
 			}
 		}
 		
-		for (Node node : nodes) if (!Double.isNaN(getHyperWeight(node,rweight))) {
-			assert !Double.isInfinite(getHyperWeight(node,rweight));
-			hyperedges.add(node);
-		}
+		/* Nodes no hyperedge was merged with are groups of their own */
+		for (Node node : nodes)
+			if (!assign.containsKey(node))
+				createGroup(node, assign, groups);
 		
-		/* Constructs new graph for coarsening */
-		Set<SuperNode> supernodes = new HashSet<SuperNode>(assign.values());
-		RelationshipWeighter newrweight = createCoarseGraph(g,supernodes,assign,rweight);
-		NodeWeighter newnweight = new PropertyNodeWeighter(weightType);
-		
-		//Map partition back
-		List<Node> nextNodes = new ArrayList<Node>(supernodes.size());
-		Map<Node,SuperNode> inverse = new HashMap<Node,SuperNode>(supernodes.size());
-		for (SuperNode sn : supernodes) {
-			nextNodes.add(sn.getRepresentationNode());
-			inverse.put(sn.getRepresentationNode(), sn);
+		/* Numbers the groups left after merging and sums the weights between them */
+		int[] numbers = new int[groups.size()];
+		List<List<Node>> members = new ArrayList<List<Node>>(groups.size());
+		for (int i = 0; i < groups.size(); i++) {
+			numbers[i] = members.size();
+			if (!groups.get(i).isEmpty())
+				members.add(groups.get(i));
 		}
-		List<List<Node>> newpartition = new ArrayList<List<Node>>(partition.size());
-		for (int i=0;i<partition.size();i++) newpartition.add(new ArrayList<Node>());
-		double cut = super.partition(g, nextNodes, newrweight, newnweight, newpartition);
-		for (int pid=0;pid<partition.size();pid++) {
-			Collection<Node> block = partition.get(pid);
-			for (Node sn : newpartition.get(pid)) {
-				SuperNode supern = inverse.get(sn);
-				for (int i=0;i<supern.getNoChildren();i++) {
-					block.add(supern.getChild(i));
+		PartitionKernel.LevelBuilder builder = new PartitionKernel.LevelBuilder(members.size());
+		double[] nodeWeights = new double[members.size()];
+		int[] positions = new int[members.size()];
+		Arrays.fill(positions, -1);
+		for (int c = 0; c < members.size(); c++) {
+			int start = builder.size();
+			for (Node child : members.get(c)) {
+				nodeWeights[c] += nweight.getWeight(child);
+				for (Relationship r : child.getRelationships()) {
+					Integer other = assign.get(r.getOtherNode(child));
+					if (other == null || numbers[other] == c)
+						continue;
+					int cu = numbers[other];
+					if (positions[cu] < 0)
+						positions[cu] = builder.add(cu, rweight.getWeight(r));
+					else
+						builder.addWeight(positions[cu], rweight.getWeight(r));
 				}
 			}
+			for (int p = start; p < builder.size(); p++)
+				positions[builder.getNeighbor(p)] = -1;
+			builder.endNode();
 		}
-		return cut;
+		
+		//Map partition back
+		PartitionKernel kernel = new PartitionKernel(this);
+		int[] blocks = kernel.partition(builder.build(nodeWeights));
+		for (int c = 0; c < blocks.length; c++)
+			partition.get(blocks[c]).addAll(members.get(c));
+		return kernel.getEdgeCut();
+	}
+	
+	private static int createGroup(Node node, Map<Node,Integer> assign, List<List<Node>> groups) {
+		List<Node> group = new ArrayList<Node>();
+		group.add(node);
+		assign.put(node, groups.size());
+		groups.add(group);
+		return groups.size() - 1;
 	}
 	
 }
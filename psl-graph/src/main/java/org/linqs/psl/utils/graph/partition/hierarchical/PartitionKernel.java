@@ -0,0 +1,386 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+
+/**
+ * The multilevel partitioning of {@link HierarchicalPartitioning} on graphs
+ * given as arrays over dense int node ids.
+ *
+ * Coarsening, initial partitioning, refinement and projection only touch
+ * primitive arrays, so no node is hashed and no scratch graph is built.
+ */
+class PartitionKernel {
+
+	private static final Logger log = LoggerFactory.getLogger(PartitionKernel.class);
+
+	/**
+	 * A graph of one coarsening level. The neighbors of node v are at
+	 * [offsets[v], offsets[v + 1]), and every edge is listed at both its ends.
+	 */
+	static class Level {
+		final int noNodes;
+		final int[] offsets;
+		final int[] neighbors;
+		final double[] edgeWeights;
+		final double[] nodeWeights;
+
+		/* The node of the next coarser level every node is merged into */
+		int[] coarseMap;
+
+		Level(int[] offsets, int[] neighbors, double[] edgeWeights, double[] nodeWeights) {
+			this.noNodes = nodeWeights.length;
+			this.offsets = offsets;
+			this.neighbors = neighbors;
+			this.edgeWeights = edgeWeights;
+			this.nodeWeights = nodeWeights;
+		}
+	}
+
+	/**
+	 * Builds a {@link Level} node by node.
+	 */
+	static class LevelBuilder {
+		private final int[] offsets;
+		private int[] neighbors;
+		private double[] edgeWeights;
+		private int noNodes;
+		private int size;
+
+		LevelBuilder(int noNodes) {
+			offsets = new int[noNodes + 1];
+			neighbors = new int[Math.max(16, noNodes)];
+			edgeWeights = new double[neighbors.length];
+			this.noNodes = 0;
+			size = 0;
+		}
+
+		/**
+		 * Adds an edge from the current node, returning its position.
+		 */
+		int add(int neighbor, double weight) {
+			if (size == neighbors.length) {
+				neighbors = Arrays.copyOf(neighbors, 2 * size);
+				edgeWeights = Arrays.copyOf(edgeWeights, 2 * size);
+			}
+			neighbors[size] = neighbor;
+			edgeWeights[size] = weight;
+			return size++;
+		}
+
+		void addWeight(int position, double weight) {
+			edgeWeights[position] += weight;
+		}
+
+		int getNeighbor(int position) {
+			return neighbors[position];
+		}
+
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Moves on to the next node.
+		 */
+		void endNode() {
+			offsets[++noNodes] = size;
+		}
+
+		Level build(double[] nodeWeights) {
+			if (noNodes != nodeWeights.length)
+				throw new IllegalStateException("Expected " + nodeWeights.length + " nodes, got " + noNodes);
+			return new Level(offsets, Arrays.copyOf(neighbors, size), Arrays.copyOf(edgeWeights, size), nodeWeights);
+		}
+	}
+
+	private final HierarchicalPartitioning config;
+	private final int noPartitions;
+	private double edgeCut;
+
+	PartitionKernel(HierarchicalPartitioning config) {
+		this.config = config;
+		noPartitions = config.getSize();
+		edgeCut = Double.NaN;
+	}
+
+	/**
+	 * Returns the edge cut of the last partition computed.
+	 */
+	double getEdgeCut() {
+		return edgeCut;
+	}
+
+	/**
+	 * Partitions the nodes of a level, returning the block of every node.
+	 */
+	int[] partition(Level base) {
+		int sizeThreshold = HierarchicalPartitioning.coarseSizeThreshold(noPartitions);
+		List<Level> levels = new ArrayList<Level>();
+		levels.add(base);
+		Level top = base;
+		double shrinkage;
+		do {
+			Level coarse = coarsen(top);
+			shrinkage = (1.0 * coarse.noNodes) / Math.max(top.noNodes, 1);
+			levels.add(coarse);
+			top = coarse;
+			log.debug("New Size: {} | Shrinkage: {}", top.noNodes, shrinkage);
+		} while (top.noNodes > sizeThreshold && shrinkage <= HierarchicalPartitioning.shrinkingThreshold);
+
+		int[] assign = growInitialPartition(top);
+		refine(top, assign);
+		for (int l = levels.size() - 2; l >= 0; l--) {
+			Level fine = levels.get(l);
+			int[] finerAssign = new int[fine.noNodes];
+			for (int v = 0; v < fine.noNodes; v++)
+				finerAssign[v] = assign[fine.coarseMap[v]];
+			assign = finerAssign;
+			refine(fine, assign);
+		}
+
+		edgeCut = edgeCut(base, assign);
+		return assign;
+	}
+
+	/**
+	 * Returns the total weight of the edges between blocks.
+	 */
+	static double edgeCut(Level level, int[] assign) {
+		double cut = 0.0;
+		for (int v = 0; v < level.noNodes; v++)
+			for (int e = level.offsets[v]; e < level.offsets[v + 1]; e++)
+				if (assign[level.neighbors[e]] != assign[v])
+					cut += level.edgeWeights[e];
+		/* Every edge is listed at both ends */
+		return cut / 2;
+	}
+
+	/**
+	 * Merges every node with the neighbor it is most strongly connected to relative
+	 * to the neighbor's weight, and returns the graph of the merged nodes.
+	 */
+	static Level coarsen(Level fine) {
+		int n = fine.noNodes;
+		int[] map = new int[n];
+		Arrays.fill(map, -1);
+		int noCoarse = 0;
+		for (int v = 0; v < n; v++) {
+			if (map[v] >= 0)
+				continue;
+			int best = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int e = fine.offsets[v]; e < fine.offsets[v + 1]; e++) {
+				int u = fine.neighbors[e];
+				double score = fine.edgeWeights[e] / Math.sqrt(fine.nodeWeights[u]);
+				if (score > bestScore) {
+					bestScore = score;
+					best = u;
+				}
+			}
+			if (best >= 0) {
+				if (map[best] < 0)
+					map[best] = noCoarse++;
+				map[v] = map[best];
+			}
+			else
+				map[v] = noCoarse++;
+		}
+		fine.coarseMap = map;
+
+		/* Groups the fine nodes by the coarse node they are merged into */
+		double[] nodeWeights = new double[noCoarse];
+		int[] memberOffsets = new int[noCoarse + 1];
+		for (int v = 0; v < n; v++) {
+			nodeWeights[map[v]] += fine.nodeWeights[v];
+			memberOffsets[map[v] + 1]++;
+		}
+		for (int c = 0; c < noCoarse; c++)
+			memberOffsets[c + 1] += memberOffsets[c];
+		int[] members = new int[n];
+		int[] fill = Arrays.copyOf(memberOffsets, noCoarse);
+		for (int v = 0; v < n; v++)
+			members[fill[map[v]]++] = v;
+
+		/* Sums the weights of the edges between every pair of coarse nodes */
+		LevelBuilder builder = new LevelBuilder(noCoarse);
+		int[] positions = new int[noCoarse];
+		Arrays.fill(positions, -1);
+		for (int c = 0; c < noCoarse; c++) {
+			int start = builder.size();
+			for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+				int v = members[m];
+				for (int e = fine.offsets[v]; e < fine.offsets[v + 1]; e++) {
+					int cu = map[fine.neighbors[e]];
+					if (cu == c)
+						continue;
+					if (positions[cu] < 0)
+						positions[cu] = builder.add(cu, fine.edgeWeights[e]);
+					else
+						builder.addWeight(positions[cu], fine.edgeWeights[e]);
+				}
+			}
+			for (int p = start; p < builder.size(); p++)
+				positions[builder.getNeighbor(p)] = -1;
+			builder.endNode();
+		}
+		return builder.build(nodeWeights);
+	}
+
+	/**
+	 * Runs the configured number of trials on the configured executor and returns
+	 * the best initial partition of the coarsest level.
+	 */
+	private int[] growInitialPartition(final Level top) {
+		Random seeds = config.createRandom();
+		int noTrials = config.getNoPartitioningTrials();
+		List<CompletableFuture<Trial>> trials = new ArrayList<CompletableFuture<Trial>>(noTrials);
+		for (int trial = 1; trial <= noTrials; trial++) {
+			final long seed = seeds.nextLong();
+			trials.add(CompletableFuture.supplyAsync(() -> runTrial(top, seed), config.getExecutor()));
+		}
+
+		Trial best = null;
+		for (CompletableFuture<Trial> future : trials) {
+			Trial trial;
+			try {
+				trial = future.join();
+			} catch (CompletionException e) {
+				Throwables.throwIfUnchecked(e.getCause());
+				throw e;
+			}
+			log.debug("Current partitions edge cut: {} | Balance : {}", trial.edgeCut, trial.balance);
+			if (best == null || config.partitionEvaluation(trial.edgeCut, trial.balance)
+					< config.partitionEvaluation(best.edgeCut, best.balance))
+				best = trial;
+		}
+		if (best == null)
+			throw new IllegalArgumentException("No feasible partition could be found!");
+		return best.assign;
+	}
+
+	private static class Trial {
+		final int[] assign;
+		final double edgeCut;
+		final double balance;
+
+		Trial(int[] assign, double edgeCut, double balance) {
+			this.assign = assign;
+			this.edgeCut = edgeCut;
+			this.balance = balance;
+		}
+	}
+
+	/**
+	 * Grows the blocks from random seed nodes, always adding to the lightest block
+	 * the node most strongly connected to it.
+	 */
+	private Trial runTrial(Level top, long seed) {
+		Random rand = new Random(seed);
+		int n = top.noNodes;
+		int[] assign = new int[n];
+		Arrays.fill(assign, -1);
+		double[] pweights = new double[noPartitions];
+		GainQueue[] neighborhoods = new GainQueue[noPartitions];
+		for (int pid = 0; pid < noPartitions; pid++)
+			neighborhoods[pid] = new GainQueue(n);
+		/* Blocks with a non-empty neighborhood, keyed by their negated weight */
+		GainQueue openBlocks = new GainQueue(noPartitions);
+
+		/* Nodes in random order, from which blocks are seeded */
+		int[] order = new int[n];
+		for (int v = 0; v < n; v++)
+			order[v] = v;
+		for (int v = n - 1; v > 0; v--) {
+			int swap = rand.nextInt(v + 1);
+			int tmp = order[v];
+			order[v] = order[swap];
+			order[swap] = tmp;
+		}
+
+		double cut = 0.0;
+		int next = 0;
+		int noAssigned = 0;
+		for (int pid = 0; pid < noPartitions && noAssigned < n; pid++, noAssigned++)
+			cut += assign(top, order[next++], pid, assign, pweights, neighborhoods, openBlocks);
+		while (noAssigned < n) {
+			if (openBlocks.isEmpty()) {
+				for (int pid = 0; pid < noPartitions && noAssigned < n; pid++, noAssigned++) {
+					while (assign[order[next]] >= 0)
+						next++;
+					cut += assign(top, order[next++], pid, assign, pweights, neighborhoods, openBlocks);
+				}
+			}
+			else {
+				int pid = openBlocks.peek();
+				cut += assign(top, neighborhoods[pid].peek(), pid, assign, pweights, neighborhoods, openBlocks);
+				noAssigned++;
+			}
+		}
+		return new Trial(assign, cut, HierarchicalPartitioning.stdDev(pweights));
+	}
+
+	private static double assign(Level level, int v, int pid, int[] assign, double[] pweights,
+			GainQueue[] neighborhoods, GainQueue openBlocks) {
+		assign[v] = pid;
+		pweights[pid] += level.nodeWeights[v];
+
+		double incEdgeCut = 0.0;
+		for (int e = level.offsets[v]; e < level.offsets[v + 1]; e++) {
+			int u = level.neighbors[e];
+			int opid = assign[u];
+			if (opid < 0) {
+				neighborhoods[pid].add(u, level.edgeWeights[e]);
+			}
+			else {
+				neighborhoods[opid].remove(v);
+				if (neighborhoods[opid].isEmpty())
+					openBlocks.remove(opid);
+				if (opid != pid)
+					incEdgeCut += level.edgeWeights[e];
+			}
+		}
+		if (neighborhoods[pid].isEmpty())
+			openBlocks.remove(pid);
+		else
+			openBlocks.put(pid, -pweights[pid]);
+		return incEdgeCut;
+	}
+
+	/**
+	 * Improves the partition of a level in place, see {@link FMRefinement}, and
+	 * returns by how much the edge cut was reduced.
+	 */
+	double refine(Level level, int[] assign) {
+		if (config.getNoRefinementPasses() == 0)
+			return 0.0;
+		return new FMRefinement(level, assign, noPartitions, config.getImbalance())
+				.refine(config.getNoRefinementPasses());
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A collection from which elements are removed in random order, drawn from a
+ * given source of randomness so that the order can be reproduced.
+ */
+class SeededRandomStack<T> {
+
+	private final List<T> items;
+	private final Random rand;
+
+	SeededRandomStack(Collection<? extends T> items, Random rand) {
+		this.items = new ArrayList<T>(items);
+		this.rand = rand;
+	}
+
+	/**
+	 * Removes and returns a random element, or null if the stack is empty.
+	 */
+	T popRandom() {
+		if (items.isEmpty())
+			return null;
+		int i = rand.nextInt(items.size());
+		int last = items.size() - 1;
+		T item = items.get(i);
+		items.set(i, items.get(last));
+		items.remove(last);
+		return item;
+	}
+
+	boolean isEmpty() {
+		return items.isEmpty();
+	}
+
+	int size() {
+		return items.size();
+	}
+}
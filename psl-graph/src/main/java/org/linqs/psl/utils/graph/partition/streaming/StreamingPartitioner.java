@@ -0,0 +1,273 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.streaming;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.IndexedGraph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.partition.Partitioner;
+import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Partitions the nodes in a single pass, assigning every node for good when it
+ * is reached, based on the blocks its already assigned neighbors are in.
+ *
+ * Apart from the partition itself, only the block of every node and the size of
+ * every block are kept, so nodes can be streamed straight from a loader. Blocks
+ * are limited to (1 + slack) times the average block size, which requires the
+ * number of nodes. It is taken from the nodes if they are a {@link Collection},
+ * and must be set with {@link #setExpectedNoNodes(int)} otherwise.
+ *
+ * Partitions depend on the order of the nodes, but are otherwise deterministic.
+ * Orders that visit neighbors close together, such as breadth-first orders, give
+ * smaller edge cuts than random orders.
+ */
+public class StreamingPartitioner implements Partitioner {
+
+	public enum Objective {
+		/**
+		 * Linear Deterministic Greedy: maximizes the weight of the relationships
+		 * to a block, scaled by the fraction of the block's capacity still free.
+		 */
+		LDG,
+
+		/**
+		 * Fennel: maximizes the weight of the relationships to a block minus a
+		 * penalty growing with the square root of the block's size.
+		 */
+		FENNEL
+	}
+
+	private static final double defaultSlack = 0.1;
+	private static final double fennelGamma = 1.5;
+
+	private int noPartitions;
+	private Objective objective;
+	private double slack;
+	private int expectedNoNodes;
+	private long expectedNoRelationships;
+
+	public StreamingPartitioner(int size) {
+		noPartitions = size;
+		objective = Objective.FENNEL;
+		slack = defaultSlack;
+		expectedNoNodes = -1;
+		expectedNoRelationships = -1;
+	}
+
+	@Override
+	public int getSize() {
+		return noPartitions;
+	}
+
+	@Override
+	public void setSize(int size) {
+		noPartitions = size;
+	}
+
+	public Objective getObjective() {
+		return objective;
+	}
+
+	public void setObjective(Objective objective) {
+		this.objective = Preconditions.checkNotNull(objective);
+	}
+
+	public double getSlack() {
+		return slack;
+	}
+
+	/**
+	 * Sets the fraction by which blocks may exceed the average block size.
+	 */
+	public void setSlack(double slack) {
+		Preconditions.checkArgument(slack >= 0, "Need to provide a non-negative slack");
+		this.slack = slack;
+	}
+
+	/**
+	 * Sets the number of nodes to be partitioned, for nodes that are not a Collection.
+	 */
+	public void setExpectedNoNodes(int noNodes) {
+		Preconditions.checkArgument(noNodes >= 0, "Need to provide a non-negative number");
+		expectedNoNodes = noNodes;
+	}
+
+	/**
+	 * Sets the number of relationships between the nodes to be partitioned, which
+	 * scales the Fennel penalty. If it is not set, it is estimated from the
+	 * degrees of the nodes streamed so far.
+	 */
+	public void setExpectedNoRelationships(long noRelationships) {
+		Preconditions.checkArgument(noRelationships >= 0, "Need to provide a non-negative number");
+		expectedNoRelationships = noRelationships;
+	}
+
+	@Override
+	public List<List<Node>> partition(Graph g, Iterable<? extends Node> nodes, RelationshipWeighter rweight) {
+		List<List<Node>> partition = new ArrayList<List<Node>>(noPartitions);
+		for (int i = 0; i < noPartitions; i++)
+			partition.add(new ArrayList<Node>());
+		partition(g, nodes, rweight, partition);
+		return partition;
+	}
+
+	@Override
+	public double partition(Graph g, Iterable<? extends Node> nodes, RelationshipWeighter rweight,
+			List<? extends Collection<Node>> partition) {
+		if (partition == null || partition.size() != noPartitions)
+			throw new IllegalArgumentException("Partition container does not have the right size - expected: " + noPartitions);
+		for (int i = 0; i < noPartitions; i++)
+			Preconditions.checkNotNull(partition.get(i));
+
+		int noNodes = expectedNoNodes;
+		if (nodes instanceof Collection)
+			noNodes = ((Collection<?>) nodes).size();
+		if (noNodes < 0)
+			throw new IllegalArgumentException("The number of nodes must be set for nodes that are not a Collection.");
+
+		double capacity = Math.max(1.0, Math.ceil((1.0 + slack) * noNodes / noPartitions));
+		BlockMap blocks = (g instanceof IndexedGraph) ? new IndexedBlockMap((IndexedGraph) g) : new HashBlockMap();
+		int[] sizes = new int[noPartitions];
+		double[] connectivity = new double[noPartitions];
+
+		double edgeCut = 0.0;
+		long noSeen = 0;
+		long noEndsSeen = 0;
+		for (Node n : nodes) {
+			Arrays.fill(connectivity, 0.0);
+			for (Relationship r : n.getRelationships()) {
+				noEndsSeen++;
+				Node other = r.getOtherNode(n);
+				if (other.equals(n))
+					continue;
+				int block = blocks.get(other);
+				if (block >= 0)
+					connectivity[block] += rweight.getWeight(r);
+			}
+			noSeen++;
+
+			double alpha = 0.0;
+			if (objective == Objective.FENNEL) {
+				double noRelationships = (expectedNoRelationships >= 0) ? expectedNoRelationships
+						: 0.5 * noEndsSeen / noSeen * Math.max(noNodes, noSeen);
+				alpha = Math.sqrt(noPartitions) * noRelationships / Math.pow(Math.max(noNodes, 1), fennelGamma);
+			}
+
+			int best = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int pid = 0; pid < noPartitions; pid++) {
+				if (sizes[pid] >= capacity)
+					continue;
+				double score = (objective == Objective.LDG)
+						? connectivity[pid] * (1.0 - sizes[pid] / capacity)
+						: connectivity[pid] - alpha * fennelGamma * Math.pow(sizes[pid], fennelGamma - 1.0);
+				if (best < 0 || score > bestScore || (score == bestScore && sizes[pid] < sizes[best])) {
+					best = pid;
+					bestScore = score;
+				}
+			}
+			/* More nodes than expected, so all blocks are full */
+			if (best < 0)
+				best = indexOfMin(sizes);
+
+			blocks.put(n, best);
+			sizes[best]++;
+			partition.get(best).add(n);
+			for (int pid = 0; pid < noPartitions; pid++)
+				if (pid != best)
+					edgeCut += connectivity[pid];
+		}
+		return edgeCut;
+	}
+
+	private static int indexOfMin(int[] values) {
+		int index = 0;
+		for (int i = 1; i < values.length; i++)
+			if (values[i] < values[index])
+				index = i;
+		return index;
+	}
+
+	/**
+	 * The block of every node assigned so far.
+	 */
+	private interface BlockMap {
+		/**
+		 * Returns the block of a node, or -1 if it has not been assigned.
+		 */
+		int get(Node n);
+
+		void put(Node n, int block);
+	}
+
+	private static class HashBlockMap implements BlockMap {
+		private final Map<Node, Integer> blocks = new HashMap<Node, Integer>();
+
+		@Override
+		public int get(Node n) {
+			Integer block = blocks.get(n);
+			return (block != null) ? block : -1;
+		}
+
+		@Override
+		public void put(Node n, int block) {
+			blocks.put(n, block);
+		}
+	}
+
+	/**
+	 * Keeps the blocks in an array indexed by node id.
+	 */
+	private static class IndexedBlockMap implements BlockMap {
+		private final IndexedGraph g;
+		private int[] blocks;
+
+		IndexedBlockMap(IndexedGraph g) {
+			this.g = g;
+			blocks = new int[0];
+		}
+
+		@Override
+		public int get(Node n) {
+			int id = g.getNodeId(n);
+			return (id < blocks.length) ? blocks[id] : -1;
+		}
+
+		@Override
+		public void put(Node n, int block) {
+			int id = g.getNodeId(n);
+			if (id >= blocks.length) {
+				int length = blocks.length;
+				blocks = Arrays.copyOf(blocks, Math.max(id + 1, Math.max(g.getIdBound(), 2 * length)));
+				Arrays.fill(blocks, length, blocks.length, -1);
+			}
+			blocks[id] = block;
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.subgraph;
+
+import java.util.AbstractCollection;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.linqs.psl.utils.graph.IndexedGraph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+/**
+ * A read-only view of the subgraph of an {@link IndexedGraph} induced by a set of
+ * its nodes.
+ *
+ * The nodes of the view are kept in a bitset over the ids of the underlying graph
+ * and are fixed when the view is created. The relationships of the view are those
+ * of the underlying graph between nodes of the view that pass a filter, which is
+ * applied as they are accessed. Nothing is copied: the nodes and relationships of
+ * the view are lightweight handles onto those of the underlying graph, which
+ * compare equal if they refer to the same element. Properties are those of the
+ * underlying graph.
+ *
+ * Nodes keep the ids they have in the underlying graph, so a view is itself an
+ * IndexedGraph that can be traversed, partitioned or narrowed further. The
+ * underlying graph must not be modified while a view of it is in use. All
+ * mutating operations throw {@link UnsupportedOperationException}.
+ *
+ * @see IndexedGraph#subgraph(Predicate, Predicate)
+ */
+public class Subgraph implements IndexedGraph {
+
+	final IndexedGraph graph;
+	final private BitSet nodes;
+	final private int noNodes;
+	final Predicate<? super Relationship> relationshipFilter;
+
+	/**
+	 * Creates the view of the nodes for which nodeFilter holds. The filter is
+	 * applied once to every node of the graph.
+	 */
+	public Subgraph(IndexedGraph g, Predicate<? super Node> nodeFilter,
+			Predicate<? super Relationship> relationshipFilter) {
+		Preconditions.checkNotNull(nodeFilter);
+		graph = g;
+		nodes = new BitSet(g.getIdBound());
+		for (int id = 0; id < g.getIdBound(); id++) {
+			Node n = g.getNode(id);
+			if (n != null && nodeFilter.apply(n))
+				nodes.set(id);
+		}
+		noNodes = nodes.cardinality();
+		this.relationshipFilter = Preconditions.checkNotNull(relationshipFilter);
+	}
+
+	/**
+	 * Creates the view of the given nodes, such as a partition block or a component,
+	 * with all relationships between them.
+	 *
+	 * @throws IllegalArgumentException if a node does not belong to the graph
+	 */
+	public Subgraph(IndexedGraph g, Iterable<? extends Node> nodes) {
+		graph = g;
+		this.nodes = new BitSet(g.getIdBound());
+		for (Node n : nodes)
+			this.nodes.set(g.getNodeId(n));
+		noNodes = this.nodes.cardinality();
+		relationshipFilter = Predicates.alwaysTrue();
+	}
+
+	/**
+	 * Returns the graph this is a view of.
+	 */
+	public IndexedGraph getGraph() {
+		return graph;
+	}
+
+	public int getNoNodes() {
+		return noNodes;
+	}
+
+	/**
+	 * Returns whether a node of the underlying graph belongs to this view.
+	 */
+	public boolean contains(Node n) {
+		return nodes.get(graph.getNodeId(n));
+	}
+
+	@Override
+	public Node createNode() {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public List<? extends Node> createNodes(int count) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public List<? extends Relationship> createRelationships(List<? extends Node> nodes, String[] types,
+			int[] sources, int[] targets, int[] typeIndexes) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public void createPropertyType(String name, Class<?> type) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public void createRelationshipType(String name) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public PropertyType getPropertyType(String name) {
+		return graph.getPropertyType(name);
+	}
+
+	@Override
+	public RelationshipType getRelationshipType(String name) {
+		return graph.getRelationshipType(name);
+	}
+
+	/**
+	 * Returns the nodes of this view in id order, without copying them.
+	 */
+	@Override
+	public Collection<SubgraphNode> getNodeSnapshot() {
+		return new AbstractCollection<SubgraphNode>() {
+			@Override
+			public Iterator<SubgraphNode> iterator() {
+				return new Iterator<SubgraphNode>() {
+					private int next = nodes.nextSetBit(0);
+
+					@Override
+					public boolean hasNext() {
+						return next >= 0;
+					}
+
+					@Override
+					public SubgraphNode next() {
+						if (next < 0)
+							throw new NoSuchElementException();
+						SubgraphNode n = getNode(next);
+						next = nodes.nextSetBit(next + 1);
+						return n;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException("Subgraphs are read-only.");
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return noNodes;
+			}
+		};
+	}
+
+	@Override
+	public Stream<SubgraphNode> nodes() {
+		return IntStream.range(0, nodes.length()).filter(nodes::get).mapToObj(this::getNode);
+	}
+
+	@Override
+	public Stream<SubgraphRelationship> relationships(String type) {
+		return graph.relationships(type)
+				.filter(r -> contains(r.getStart()) && contains(r.getEnd()) && relationshipFilter.apply(r))
+				.map(r -> new SubgraphRelationship(this, r));
+	}
+
+	@Override
+	public Set<Node> getNodeSnapshotByAttribute(String propertyType, Object attribute) {
+		Set<Node> found = new HashSet<Node>();
+		for (Node n : graph.getNodeSnapshotByAttribute(propertyType, attribute))
+			if (contains(n))
+				found.add(new SubgraphNode(this, n));
+		return found;
+	}
+
+	@Override
+	public int getIdBound() {
+		return graph.getIdBound();
+	}
+
+	@Override
+	public int getNodeId(Node n) {
+		if (n instanceof SubgraphNode && ((SubgraphNode) n).graph == this)
+			return graph.getNodeId(((SubgraphNode) n).node);
+		else
+			throw new IllegalArgumentException("Node does not belong to this graph.");
+	}
+
+	/**
+	 * Returns the node with the given id, or null if it is not part of this view.
+	 */
+	@Override
+	public SubgraphNode getNode(int id) {
+		if (id < 0 || id >= graph.getIdBound())
+			throw new IndexOutOfBoundsException("Unknown node: " + id);
+		if (!nodes.get(id))
+			return null;
+		Node n = graph.getNode(id);
+		return (n != null) ? new SubgraphNode(this, n) : null;
+	}
+
+	/**
+	 * Returns whether a relationship of the underlying graph belongs to this view
+	 * given that one of its nodes does.
+	 */
+	boolean accepts(Relationship r, Node n) {
+		return contains(r.getOtherNode(n)) && relationshipFilter.apply(r);
+	}
+}
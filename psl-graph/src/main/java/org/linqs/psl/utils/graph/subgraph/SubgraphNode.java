@@ -0,0 +1,192 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.subgraph;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.linqs.psl.utils.graph.Edge;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+
+/**
+ * A node of a {@link Subgraph}, which only lists the relationships of the view.
+ */
+public class SubgraphNode implements Node {
+
+	final Subgraph graph;
+	final Node node;
+
+	SubgraphNode(Subgraph g, Node n) {
+		graph = g;
+		node = n;
+	}
+
+	/**
+	 * Returns the node of the underlying graph.
+	 */
+	public Node getNode() {
+		return node;
+	}
+
+	@Override
+	public Property createProperty(String type, Object attribute) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public Relationship createRelationship(String type, Node n) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public Object getAttribute(String type) {
+		return node.getAttribute(type);
+	}
+
+	@Override
+	public <O> O getAttribute(String type, Class<O> c) {
+		return node.getAttribute(type, c);
+	}
+
+	@Override
+	public Object getAttribute(PropertyType type) {
+		return node.getAttribute(type);
+	}
+
+	@Override
+	public Iterator<? extends Edge> getEdgeIterator() {
+		return getEdges().iterator();
+	}
+
+	@Override
+	public Iterable<? extends Edge> getEdges() {
+		return Iterables.concat(node.getProperties(), getRelationships());
+	}
+
+	@Override
+	public int getNoEdges() {
+		return getNoProperties() + getNoRelationships();
+	}
+
+	@Override
+	public int getNoProperties() {
+		return node.getNoProperties();
+	}
+
+	@Override
+	public int getNoRelationships() {
+		return Iterators.size(getRelationshipIterator());
+	}
+
+	@Override
+	public Iterator<? extends Property> getPropertyIterator() {
+		return node.getPropertyIterator();
+	}
+
+	@Override
+	public Iterable<? extends Property> getProperties() {
+		return node.getProperties();
+	}
+
+	@Override
+	public Iterator<? extends Property> getPropertyIterator(String type) {
+		return node.getPropertyIterator(type);
+	}
+
+	@Override
+	public Iterable<? extends Property> getProperties(String type) {
+		return node.getProperties(type);
+	}
+
+	@Override
+	public Iterable<? extends Property> getProperties(PropertyType type) {
+		return node.getProperties(type);
+	}
+
+	@Override
+	public Iterator<SubgraphRelationship> getRelationshipIterator() {
+		return getRelationships().iterator();
+	}
+
+	@Override
+	public Collection<SubgraphRelationship> getRelationships() {
+		return filter(node.getRelationships());
+	}
+
+	@Override
+	public Iterator<SubgraphRelationship> getRelationshipIterator(String type) {
+		return getRelationships(type).iterator();
+	}
+
+	@Override
+	public Collection<SubgraphRelationship> getRelationships(String type) {
+		return filter(node.getRelationships(type));
+	}
+
+	@Override
+	public Collection<SubgraphRelationship> getRelationships(RelationshipType type) {
+		return filter(node.getRelationships(type));
+	}
+
+	private Collection<SubgraphRelationship> filter(final Iterable<? extends Relationship> relationships) {
+		return new AbstractCollection<SubgraphRelationship>() {
+			@Override
+			public Iterator<SubgraphRelationship> iterator() {
+				return Iterators.transform(
+						Iterators.filter(relationships.iterator(), r -> graph.accepts(r, node)),
+						r -> new SubgraphRelationship(graph, r));
+			}
+
+			@Override
+			public int size() {
+				return Iterators.size(iterator());
+			}
+		};
+	}
+
+	@Override
+	public void delete() {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public int hashCode() {
+		return node.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof SubgraphNode)) return false;
+		SubgraphNode n = (SubgraphNode) oth;
+		return graph == n.graph && node.equals(n.node);
+	}
+
+	@Override
+	public String toString() {
+		return node.toString();
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.subgraph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.linqs.psl.utils.graph.Edge;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.PropertyType;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+/**
+ * A relationship of a {@link Subgraph}, whose nodes are nodes of the view.
+ * The edges of the relationship itself are those of the underlying relationship.
+ */
+public class SubgraphRelationship implements Relationship {
+
+	final Subgraph graph;
+	final Relationship relationship;
+
+	SubgraphRelationship(Subgraph g, Relationship r) {
+		graph = g;
+		relationship = r;
+	}
+
+	/**
+	 * Returns the relationship of the underlying graph.
+	 */
+	public Relationship getRelationship() {
+		return relationship;
+	}
+
+	@Override
+	public SubgraphNode getStart() {
+		return new SubgraphNode(graph, relationship.getStart());
+	}
+
+	@Override
+	public SubgraphNode getEnd() {
+		return new SubgraphNode(graph, relationship.getEnd());
+	}
+
+	@Override
+	public SubgraphNode getOtherNode(Node n) {
+		return new SubgraphNode(graph, relationship.getOtherNode(unwrap(n)));
+	}
+
+	@Override
+	public boolean isSelfLoop(Node node) {
+		return relationship.isSelfLoop(unwrap(node));
+	}
+
+	@Override
+	public String getRelationshipType() {
+		return relationship.getRelationshipType();
+	}
+
+	@Override
+	public RelationshipType getType() {
+		return relationship.getType();
+	}
+
+	@Override
+	public Collection<SubgraphNode> getNodes() {
+		return Arrays.asList(getStart(), getEnd());
+	}
+
+	@Override
+	public boolean isIncidentOn(Node n) {
+		return n instanceof SubgraphNode && ((SubgraphNode) n).graph == graph
+				&& relationship.isIncidentOn(((SubgraphNode) n).node);
+	}
+
+	@Override
+	public boolean isProperty() {
+		return false;
+	}
+
+	@Override
+	public boolean isRelationship() {
+		return true;
+	}
+
+	private Node unwrap(Node n) {
+		if (n instanceof SubgraphNode && ((SubgraphNode) n).graph == graph)
+			return ((SubgraphNode) n).node;
+		else
+			throw new IllegalArgumentException("Node is not incident on this edge.");
+	}
+
+	@Override
+	public Property createProperty(String type, Object attribute) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public Relationship createRelationship(String type, Node n) {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public Object getAttribute(String type) {
+		return relationship.getAttribute(type);
+	}
+
+	@Override
+	public <O> O getAttribute(String type, Class<O> c) {
+		return relationship.getAttribute(type, c);
+	}
+
+	@Override
+	public Iterator<? extends Edge> getEdgeIterator() {
+		return relationship.getEdgeIterator();
+	}
+
+	@Override
+	public Iterable<? extends Edge> getEdges() {
+		return relationship.getEdges();
+	}
+
+	@Override
+	public int getNoEdges() {
+		return relationship.getNoEdges();
+	}
+
+	@Override
+	public int getNoProperties() {
+		return relationship.getNoProperties();
+	}
+
+	@Override
+	public int getNoRelationships() {
+		return relationship.getNoRelationships();
+	}
+
+	@Override
+	public Iterator<? extends Property> getPropertyIterator() {
+		return relationship.getPropertyIterator();
+	}
+
+	@Override
+	public Iterable<? extends Property> getProperties() {
+		return relationship.getProperties();
+	}
+
+	@Override
+	public Iterator<? extends Property> getPropertyIterator(String type) {
+		return relationship.getPropertyIterator(type);
+	}
+
+	@Override
+	public Iterable<? extends Property> getProperties(String type) {
+		return relationship.getProperties(type);
+	}
+
+	@Override
+	public Iterable<? extends Property> getProperties(PropertyType type) {
+		return relationship.getProperties(type);
+	}
+
+	@Override
+	public Iterator<? extends Relationship> getRelationshipIterator() {
+		return relationship.getRelationshipIterator();
+	}
+
+	@Override
+	public Iterable<? extends Relationship> getRelationships() {
+		return relationship.getRelationships();
+	}
+
+	@Override
+	public Iterator<? extends Relationship> getRelationshipIterator(String type) {
+		return relationship.getRelationshipIterator(type);
+	}
+
+	@Override
+	public Iterable<? extends Relationship> getRelationships(String type) {
+		return relationship.getRelationships(type);
+	}
+
+	@Override
+	public void delete() {
+		throw new UnsupportedOperationException("Subgraphs are read-only.");
+	}
+
+	@Override
+	public int hashCode() {
+		return relationship.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object oth) {
+		if (this == oth) return true;
+		else if (!(oth instanceof SubgraphRelationship)) return false;
+		SubgraphRelationship r = (SubgraphRelationship) oth;
+		return graph == r.graph && relationship.equals(r.relationship);
+	}
+}
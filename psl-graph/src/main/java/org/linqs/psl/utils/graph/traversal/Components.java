@@ -0,0 +1,98 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * The connected components found by {@link ConnectedComponents}. Components are
+ * numbered from 0 in the order of the smallest node id they contain.
+ */
+public class Components {
+
+	private final NodeIndex index;
+	private final int[] labels;
+	private final int noComponents;
+
+	Components(NodeIndex index, int[] labels, int noComponents) {
+		this.index = index;
+		this.labels = labels;
+		this.noComponents = noComponents;
+	}
+
+	public int getNoComponents() {
+		return noComponents;
+	}
+
+	/**
+	 * Returns the number of the component containing a node.
+	 */
+	public int getComponent(Node n) {
+		int id = index.getId(n);
+		if (id >= labels.length || labels[id] < 0)
+			throw new IllegalArgumentException("Node was not part of the graph.");
+		return labels[id];
+	}
+
+	public boolean isConnected(Node a, Node b) {
+		return getComponent(a) == getComponent(b);
+	}
+
+	/**
+	 * Returns the nodes of every component, each in the order of their ids.
+	 */
+	public List<List<Node>> getComponents() {
+		int[] sizes = new int[noComponents + 1];
+		for (int label : labels)
+			if (label >= 0)
+				sizes[label + 1]++;
+		for (int c = 0; c < noComponents; c++)
+			sizes[c + 1] += sizes[c];
+
+		/* Sorts the ids by component, keeping them in order within each component */
+		final int[] ids = new int[sizes[noComponents]];
+		int[] next = sizes.clone();
+		for (int id = 0; id < labels.length; id++)
+			if (labels[id] >= 0)
+				ids[next[labels[id]]++] = id;
+
+		List<List<Node>> components = new ArrayList<List<Node>>(noComponents);
+		for (int c = 0; c < noComponents; c++) {
+			final int from = sizes[c];
+			final int to = sizes[c + 1];
+			components.add(new AbstractList<Node>() {
+				@Override
+				public Node get(int i) {
+					if (i < 0 || i >= to - from)
+						throw new IndexOutOfBoundsException("Out of bounds: " + i);
+					return index.getNode(ids[from + i]);
+				}
+
+				@Override
+				public int size() {
+					return to - from;
+				}
+			});
+		}
+		return components;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size bit set whose bits can be set by many threads at once.
+ */
+class ConcurrentBitSet {
+
+	private final AtomicLongArray words;
+
+	ConcurrentBitSet(int size) {
+		words = new AtomicLongArray((size + 63) >>> 6);
+	}
+
+	boolean get(int index) {
+		return (words.get(index >>> 6) & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets a bit and returns whether this call changed it, so exactly one of
+	 * several threads setting the same bit gets true.
+	 */
+	boolean set(int index) {
+		int word = index >>> 6;
+		long mask = 1L << index;
+		while (true) {
+			long old = words.get(word);
+			if ((old & mask) != 0)
+				return false;
+			if (words.compareAndSet(word, old, old | mask))
+				return true;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+/**
+ * Finds the connected components of a graph, ignoring the direction of relationships.
+ *
+ * Relationships are merged into a union-find forest over node ids whose parent
+ * links are updated with compare-and-set, so ranges of nodes are processed in
+ * parallel on a fork-join pool without locks. A root is always linked below the
+ * root with the smaller id, which keeps the forest acyclic under concurrent unions.
+ *
+ * The graph must not be modified while components are computed, and must support
+ * reads from several threads at once unless no pool is used.
+ */
+public class ConnectedComponents {
+
+	private static final int grainSize = 4096;
+
+	private final Graph graph;
+	private final NodeIndex index;
+	private final ForkJoinPool pool;
+
+	private RelationshipType[] relationshipTypes;
+
+	/**
+	 * Creates a finder that runs on the pool shared by all traversals.
+	 */
+	public ConnectedComponents(Graph g) {
+		this(g, Traversal.getDefaultPool());
+	}
+
+	/**
+	 * @param pool the pool to process nodes on, or null to run on the calling thread
+	 */
+	public ConnectedComponents(Graph g, ForkJoinPool pool) {
+		graph = g;
+		index = NodeIndex.of(g);
+		this.pool = pool;
+		relationshipTypes = null;
+	}
+
+	/**
+	 * Only connects nodes through relationships of the given types.
+	 *
+	 * @param types the types to follow, or none to follow relationships of all types
+	 * @throws IllegalArgumentException if a type does not exist
+	 */
+	public void setRelationshipTypes(String... types) {
+		if (types.length > 0) {
+			relationshipTypes = new RelationshipType[types.length];
+			for (int i = 0; i < types.length; i++)
+				relationshipTypes[i] = graph.getRelationshipType(types[i]);
+		}
+		else
+			relationshipTypes = null;
+	}
+
+	public Components compute() {
+		int bound = index.getIdBound();
+		AtomicIntegerArray parents = new AtomicIntegerArray(bound);
+		for (int i = 0; i < bound; i++)
+			parents.set(i, i);
+
+		if (pool == null || bound <= grainSize)
+			new Union(parents, 0, bound).compute();
+		else
+			pool.invoke(new Union(parents, 0, bound));
+
+		/* Numbers the components in the order of their smallest node id */
+		int[] labels = new int[bound];
+		int noComponents = 0;
+		for (int i = 0; i < bound; i++) {
+			if (index.getNode(i) == null) {
+				labels[i] = -1;
+				continue;
+			}
+			int root = find(parents, i);
+			labels[i] = (root == i) ? noComponents++ : labels[root];
+		}
+		return new Components(index, labels, noComponents);
+	}
+
+	/**
+	 * Returns the root of a node, halving the path to it on the way.
+	 */
+	private static int find(AtomicIntegerArray parents, int node) {
+		while (true) {
+			int parent = parents.get(node);
+			if (parent == node)
+				return node;
+			int grandparent = parents.get(parent);
+			if (grandparent != parent)
+				parents.compareAndSet(node, parent, grandparent);
+			node = grandparent;
+		}
+	}
+
+	private static void union(AtomicIntegerArray parents, int a, int b) {
+		while (true) {
+			a = find(parents, a);
+			b = find(parents, b);
+			if (a == b)
+				return;
+			if (a < b) {
+				int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			/* Fails if another thread linked a in the meantime, then retries from the new roots */
+			if (parents.compareAndSet(a, a, b))
+				return;
+		}
+	}
+
+	private class Union extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicIntegerArray parents;
+		private final int from;
+		private final int to;
+
+		Union(AtomicIntegerArray parents, int from, int to) {
+			this.parents = parents;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (pool != null && to - from > grainSize) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Union(parents, from, mid), new Union(parents, mid, to));
+				return;
+			}
+
+			for (int id = from; id < to; id++) {
+				Node n = index.getNode(id);
+				if (n == null)
+					continue;
+				if (relationshipTypes == null)
+					union(id, n, n.getRelationships());
+				else
+					for (RelationshipType type : relationshipTypes)
+						union(id, n, n.getRelationships(type));
+			}
+		}
+
+		private void union(int id, Node n, Iterable<? extends Relationship> relationships) {
+			for (Relationship r : relationships) {
+				/* Every relationship is merged once, from its start node */
+				if (!n.equals(r.getStart()))
+					continue;
+				ConnectedComponents.union(parents, id, index.getId(r.getEnd()));
+			}
+		}
+	}
+}
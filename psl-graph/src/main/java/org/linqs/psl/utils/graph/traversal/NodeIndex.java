@@ -0,0 +1,102 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.IndexedGraph;
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * Numbers the nodes of a graph. Uses the ids of an {@link IndexedGraph} and
+ * numbers a snapshot of the nodes of any other graph.
+ */
+abstract class NodeIndex {
+
+	abstract int getIdBound();
+
+	abstract int getId(Node n);
+
+	abstract Node getNode(int id);
+
+	static NodeIndex of(Graph g) {
+		if (g instanceof IndexedGraph)
+			return new GraphIndex((IndexedGraph) g);
+		else
+			return new SnapshotIndex(g);
+	}
+
+	private static class GraphIndex extends NodeIndex {
+		private final IndexedGraph graph;
+
+		GraphIndex(IndexedGraph graph) {
+			this.graph = graph;
+		}
+
+		@Override
+		int getIdBound() {
+			return graph.getIdBound();
+		}
+
+		@Override
+		int getId(Node n) {
+			return graph.getNodeId(n);
+		}
+
+		@Override
+		Node getNode(int id) {
+			return graph.getNode(id);
+		}
+	}
+
+	private static class SnapshotIndex extends NodeIndex {
+		private final Map<Node, Integer> ids;
+		private final List<Node> nodes;
+
+		SnapshotIndex(Graph graph) {
+			ids = new HashMap<Node, Integer>();
+			nodes = new ArrayList<Node>();
+			for (Node n : graph.getNodeSnapshot()) {
+				ids.put(n, nodes.size());
+				nodes.add(n);
+			}
+		}
+
+		@Override
+		int getIdBound() {
+			return nodes.size();
+		}
+
+		@Override
+		int getId(Node n) {
+			Integer id = ids.get(n);
+			if (id == null)
+				throw new IllegalArgumentException("Node does not belong to this graph.");
+			return id;
+		}
+
+		@Override
+		Node getNode(int id) {
+			return nodes.get(id);
+		}
+	}
+}
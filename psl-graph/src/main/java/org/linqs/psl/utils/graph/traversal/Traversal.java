@@ -0,0 +1,282 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.RelationshipType;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Breadth-first traversals of a graph: full searches, k-hop neighborhoods,
+ * shortest paths and reachability.
+ *
+ * Searches proceed level by level. Levels with many nodes are expanded in parallel
+ * on a fork-join pool, and the visited nodes are tracked in a bit set indexed by
+ * node id. Nodes of an {@link org.linqs.psl.utils.graph.IndexedGraph} are
+ * numbered by their ids, the nodes of any other graph are numbered once when the
+ * traversal is created.
+ *
+ * The graph must not be modified while a search runs, and must support reads
+ * from several threads at once unless the traversal is sequential.
+ */
+public class Traversal {
+
+	/* Levels with fewer nodes are expanded by the calling thread */
+	private static final int parallelThreshold = 1024;
+	private static final int grainSize = 256;
+
+	private static ForkJoinPool defaultPool = null;
+
+	private final Graph graph;
+	private final NodeIndex index;
+	private final ForkJoinPool pool;
+
+	private Direction direction;
+	private RelationshipType[] relationshipTypes;
+
+	/**
+	 * Creates a traversal that runs on a pool shared by all traversals.
+	 */
+	public Traversal(Graph g) {
+		this(g, getDefaultPool());
+	}
+
+	/**
+	 * @param pool the pool to expand levels on, or null to run searches on the calling thread
+	 */
+	public Traversal(Graph g, ForkJoinPool pool) {
+		graph = g;
+		index = NodeIndex.of(g);
+		this.pool = pool;
+		direction = Direction.BOTH;
+		relationshipTypes = null;
+	}
+
+	static synchronized ForkJoinPool getDefaultPool() {
+		if (defaultPool == null)
+			defaultPool = new ForkJoinPool();
+		return defaultPool;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public void setDirection(Direction direction) {
+		this.direction = Preconditions.checkNotNull(direction);
+	}
+
+	/**
+	 * Restricts searches to relationships of the given types.
+	 *
+	 * @param types the types to follow, or none to follow relationships of all types
+	 * @throws IllegalArgumentException if a type does not exist
+	 */
+	public void setRelationshipTypes(String... types) {
+		if (types.length > 0) {
+			relationshipTypes = new RelationshipType[types.length];
+			for (int i = 0; i < types.length; i++)
+				relationshipTypes[i] = graph.getRelationshipType(types[i]);
+		}
+		else
+			relationshipTypes = null;
+	}
+
+	/**
+	 * Visits all nodes reachable from a node.
+	 */
+	public TraversalResult breadthFirst(Node source) {
+		return breadthFirst(Collections.singleton(source), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Visits the nodes at most maxDepth hops from any of the sources.
+	 */
+	public TraversalResult breadthFirst(Collection<? extends Node> sources, int maxDepth) {
+		Preconditions.checkArgument(maxDepth >= 0, "Need to provide a non-negative depth");
+		int[] ids = new int[sources.size()];
+		int pos = 0;
+		for (Node n : sources)
+			ids[pos++] = index.getId(n);
+		return search(ids, maxDepth, -1);
+	}
+
+	/**
+	 * Returns the nodes at most k hops from a node, including the node itself,
+	 * ordered by distance.
+	 */
+	public List<Node> getNeighborhood(Node source, int k) {
+		return breadthFirst(Collections.singleton(source), k).getVisited();
+	}
+
+	/**
+	 * Returns a path with the fewest relationships from one node to another,
+	 * including both, or null if there is none.
+	 */
+	public List<Node> getShortestPath(Node from, Node to) {
+		int target = index.getId(to);
+		return search(new int[] {index.getId(from)}, Integer.MAX_VALUE, target).getPath(to);
+	}
+
+	public boolean isReachable(Node from, Node to) {
+		return getShortestPath(from, to) != null;
+	}
+
+	/**
+	 * Searches breadth-first from the sources until maxDepth is reached or the
+	 * level containing target, if not negative, has been visited.
+	 */
+	private TraversalResult search(int[] sources, int maxDepth, int target) {
+		ConcurrentBitSet visited = new ConcurrentBitSet(index.getIdBound());
+		int[] order = new int[Math.max(sources.length, 16)];
+		int[] parents = new int[order.length];
+		int size = 0;
+		for (int id : sources) {
+			if (visited.set(id)) {
+				order[size] = id;
+				parents[size] = -1;
+				size++;
+			}
+		}
+
+		int[] levelStarts = new int[16];
+		int noLevels = 1;
+		levelStarts[1] = size;
+		int levelStart = 0;
+		for (int depth = 0; depth < maxDepth && levelStart < size
+				&& (target < 0 || !visited.get(target)); depth++) {
+			int[] found;
+			int levelSize = size - levelStart;
+			if (pool == null || levelSize < parallelThreshold)
+				found = new Expansion(order, levelStart, size, visited, false).compute();
+			else
+				found = pool.invoke(new Expansion(order, levelStart, size, visited, true));
+
+			/* found holds pairs of a newly visited node and the node it was reached from */
+			int noFound = found.length / 2;
+			if (size + noFound > order.length) {
+				int capacity = Math.max(size + noFound, order.length * 2);
+				order = Arrays.copyOf(order, capacity);
+				parents = Arrays.copyOf(parents, capacity);
+			}
+			for (int i = 0; i < noFound; i++) {
+				order[size + i] = found[2 * i];
+				parents[size + i] = found[2 * i + 1];
+			}
+			levelStart = size;
+			size += noFound;
+			if (noFound > 0) {
+				if (noLevels + 2 > levelStarts.length)
+					levelStarts = Arrays.copyOf(levelStarts, levelStarts.length * 2);
+				levelStarts[++noLevels] = size;
+			}
+		}
+
+		return new TraversalResult(index, Arrays.copyOf(order, size), Arrays.copyOf(parents, size),
+				Arrays.copyOf(levelStarts, noLevels + 1));
+	}
+
+	/**
+	 * Expands a range of a level, returning the newly visited neighbors paired
+	 * with the nodes they were reached from.
+	 */
+	private class Expansion extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] level;
+		private final int from;
+		private final int to;
+		private final ConcurrentBitSet visited;
+		/* Only tasks running in the pool may fork; otherwise work would leak into the common pool */
+		private final boolean parallel;
+
+		private int[] found;
+		private int size;
+
+		Expansion(int[] level, int from, int to, ConcurrentBitSet visited, boolean parallel) {
+			this.level = level;
+			this.from = from;
+			this.to = to;
+			this.visited = visited;
+			this.parallel = parallel;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (parallel && to - from > grainSize) {
+				int mid = (from + to) >>> 1;
+				Expansion left = new Expansion(level, from, mid, visited, true);
+				left.fork();
+				int[] right = new Expansion(level, mid, to, visited, true).compute();
+				int[] leftFound = left.join();
+				int[] all = Arrays.copyOf(leftFound, leftFound.length + right.length);
+				System.arraycopy(right, 0, all, leftFound.length, right.length);
+				return all;
+			}
+
+			found = new int[16];
+			size = 0;
+			for (int i = from; i < to; i++) {
+				Node n = index.getNode(level[i]);
+				if (relationshipTypes == null)
+					expand(level[i], n, n.getRelationships());
+				else
+					for (RelationshipType type : relationshipTypes)
+						expand(level[i], n, n.getRelationships(type));
+			}
+			return Arrays.copyOf(found, size);
+		}
+
+		private void expand(int id, Node n, Iterable<? extends Relationship> relationships) {
+			for (Relationship r : relationships) {
+				Node other;
+				switch (direction) {
+					case OUTGOING:
+						if (!n.equals(r.getStart()))
+							continue;
+						other = r.getEnd();
+						break;
+					case INCOMING:
+						if (!n.equals(r.getEnd()))
+							continue;
+						other = r.getStart();
+						break;
+					default:
+						other = r.getOtherNode(n);
+				}
+				int otherId = index.getId(other);
+				if (visited.set(otherId)) {
+					if (size + 2 > found.length)
+						found = Arrays.copyOf(found, found.length * 2);
+					found[size++] = otherId;
+					found[size++] = id;
+				}
+			}
+		}
+	}
+}
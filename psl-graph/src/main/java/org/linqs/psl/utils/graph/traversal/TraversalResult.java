@@ -0,0 +1,142 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.linqs.psl.utils.graph.Node;
+
+/**
+ * The nodes reached by a breadth-first {@link Traversal}, in the order of their
+ * distance from the sources, and the tree of the relationships they were reached by.
+ */
+public class TraversalResult {
+
+	private final NodeIndex index;
+	private final int[] order;
+	private final int[] parents;
+	private final int[] levelStarts;
+
+	/* Position of every node in order, built on first use */
+	private int[] positions;
+
+	TraversalResult(NodeIndex index, int[] order, int[] parents, int[] levelStarts) {
+		this.index = index;
+		this.order = order;
+		this.parents = parents;
+		this.levelStarts = levelStarts;
+		positions = null;
+	}
+
+	public int getNoVisited() {
+		return order.length;
+	}
+
+	/**
+	 * Returns the visited nodes, sources first, ordered by distance.
+	 */
+	public List<Node> getVisited() {
+		return new NodeList(0, order.length);
+	}
+
+	/**
+	 * Returns the number of levels, which is one more than the largest distance of a visited node.
+	 */
+	public int getNoLevels() {
+		return levelStarts.length - 1;
+	}
+
+	/**
+	 * Returns the visited nodes at a distance from the sources.
+	 */
+	public List<Node> getLevel(int distance) {
+		if (distance < 0 || distance >= getNoLevels())
+			return Collections.emptyList();
+		return new NodeList(levelStarts[distance], levelStarts[distance + 1]);
+	}
+
+	public boolean isVisited(Node n) {
+		return getPosition(n) >= 0;
+	}
+
+	/**
+	 * Returns the number of hops from the sources to a node, or -1 if it was not visited.
+	 */
+	public int getDistance(Node n) {
+		int pos = getPosition(n);
+		if (pos < 0)
+			return -1;
+		int level = Arrays.binarySearch(levelStarts, pos);
+		return (level >= 0) ? level : -level - 2;
+	}
+
+	/**
+	 * Returns a shortest path from a source to a node, starting at the source,
+	 * or null if the node was not visited.
+	 */
+	public List<Node> getPath(Node n) {
+		int pos = getPosition(n);
+		if (pos < 0)
+			return null;
+		List<Node> path = new ArrayList<Node>();
+		int id = order[pos];
+		while (id >= 0) {
+			path.add(index.getNode(id));
+			id = parents[positions[id]];
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	private int getPosition(Node n) {
+		if (positions == null) {
+			positions = new int[index.getIdBound()];
+			Arrays.fill(positions, -1);
+			for (int i = 0; i < order.length; i++)
+				positions[order[i]] = i;
+		}
+		int id = index.getId(n);
+		return (id < positions.length) ? positions[id] : -1;
+	}
+
+	private class NodeList extends AbstractList<Node> {
+		private final int from;
+		private final int to;
+
+		NodeList(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Node get(int i) {
+			if (i < 0 || i >= to - from)
+				throw new IndexOutOfBoundsException("Out of bounds: " + i);
+			return index.getNode(order[from + i]);
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+}
@@ -19,6 +19,9 @@ package org.linqs.psl.utils.graph;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -382,4 +385,131 @@ abstract public class GraphContractTest {
 		assertTrue(node2.getNoProperties() == 0);
 		assertTrue(node2.getNoRelationships() == 1);
 	}
+	
+	/** Tests creating several nodes at once. */
+	@Test
+	public void testCreateNodes() {
+		List<? extends Node> nodes = graph.createNodes(3);
+		
+		assertTrue(nodes.size() == 3);
+		int count = 0;
+		for (Node node : graph.getNodeSnapshot()) {
+			assertTrue(nodes.contains(node));
+			assertTrue(node.getNoEdges() == 0);
+			count++;
+		}
+		assertTrue(count == 3);
+	}
+	
+	/** Tests creating several relationships at once. */
+	@Test
+	public void testCreateRelationships() {
+		List<? extends Node> nodes = graph.createNodes(3);
+		
+		createRelationshipTypes();
+		List<? extends Relationship> relationships = graph.createRelationships(nodes, new String[] {R1, R2},
+				new int[] {0, 0, 1}, new int[] {1, 2, 2}, new int[] {0, 1, 0});
+		
+		assertTrue(relationships.size() == 3);
+		assertTrue(relationships.get(0).getStart().equals(nodes.get(0)));
+		assertTrue(relationships.get(0).getEnd().equals(nodes.get(1)));
+		assertTrue(relationships.get(1).getRelationshipType().equals(R2));
+		
+		assertTrue(nodes.get(0).getNoRelationships() == 2);
+		assertTrue(nodes.get(1).getNoRelationships() == 2);
+		assertTrue(nodes.get(2).getNoRelationships() == 2);
+		
+		assertTrue(nodes.get(0).getRelationshipIterator(R1).next().getEnd().equals(nodes.get(1)));
+		assertTrue(nodes.get(0).getRelationshipIterator(R2).next().getEnd().equals(nodes.get(2)));
+		assertTrue(nodes.get(2).getRelationshipIterator(R1).next().getStart().equals(nodes.get(1)));
+	}
+	
+	/** Tests that no relationships are created if any relationship is invalid. */
+	@Test
+	public void testCreateRelationshipsInvalid() {
+		List<? extends Node> nodes = graph.createNodes(2);
+		
+		createRelationshipTypes();
+		try {
+			graph.createRelationships(nodes, new String[] {R1}, new int[] {0, 1}, new int[] {1, 2}, new int[] {0, 0});
+			fail("Invalid node index should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+		
+		assertTrue(nodes.get(0).getNoRelationships() == 0);
+		assertTrue(nodes.get(1).getNoRelationships() == 0);
+	}
+	
+	/** Tests streaming the nodes of a graph. */
+	@Test
+	public void testNodeStream() {
+		List<? extends Node> nodes = graph.createNodes(100);
+		nodes.get(10).delete();
+		nodes.get(50).delete();
+		
+		assertTrue(graph.nodes().count() == 98);
+		assertTrue(graph.nodes().parallel().count() == 98);
+		assertFalse(graph.nodes().anyMatch(n -> n.equals(nodes.get(50))));
+		assertTrue(graph.nodes().distinct().count() == 98);
+	}
+	
+	/** Tests streaming the relationships of a type. */
+	@Test
+	public void testRelationshipStream() {
+		List<? extends Node> nodes = graph.createNodes(3);
+		
+		createRelationshipTypes();
+		nodes.get(0).createRelationship(R1, nodes.get(1));
+		nodes.get(1).createRelationship(R1, nodes.get(2));
+		nodes.get(2).createRelationship(R1, nodes.get(2));
+		nodes.get(0).createRelationship(R2, nodes.get(2));
+		
+		assertTrue(graph.relationships(R1).count() == 3);
+		assertTrue(graph.relationships(R1).parallel().count() == 3);
+		assertTrue(graph.relationships(R2).count() == 1);
+		assertTrue(graph.relationships(R1).allMatch(r -> r.getRelationshipType().equals(R1)));
+		assertTrue(graph.relationships(R1).filter(r -> r.getStart().equals(r.getEnd())).count() == 1);
+	}
+	
+	/** Tests accessing edges through type handles. */
+	@Test
+	public void testTypeHandles() {
+		List<? extends Node> nodes = graph.createNodes(2);
+		
+		createPropertyTypes();
+		createRelationshipTypes();
+		nodes.get(0).createProperty(P1, "a");
+		Relationship r = nodes.get(0).createRelationship(R1, nodes.get(1));
+		nodes.get(0).createRelationship(R2, nodes.get(1));
+		
+		PropertyType p1 = graph.getPropertyType(P1);
+		RelationshipType r1 = graph.getRelationshipType(R1);
+		assertTrue(p1 == graph.getPropertyType(P1));
+		assertTrue(p1.getName().equals(P1) && p1.getDataType().equals(C1));
+		assertTrue(r1.getName().equals(R1));
+		assertTrue(r.getType() == r1);
+		assertTrue(nodes.get(0).getProperties(p1).iterator().next().getType() == p1);
+		
+		assertTrue(nodes.get(0).getAttribute(p1).equals("a"));
+		assertTrue(nodes.get(1).getAttribute(p1) == null);
+		assertTrue(nodes.get(1).getRelationships(r1).iterator().next().equals(r));
+		assertTrue(nodes.get(1).getRelationships(graph.getRelationshipType(R2)).iterator().next().getType().getName().equals(R2));
+		
+		/* Handles of another graph are rejected even if the types have the same name */
+		Graph other = getGraphImplementation();
+		other.createRelationshipType(R1);
+		try {
+			nodes.get(0).getRelationships(other.getRelationshipType(R1));
+			fail("Handle of another graph should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+		try {
+			graph.getRelationshipType("unknown");
+			fail("Unknown type should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+	}
 }
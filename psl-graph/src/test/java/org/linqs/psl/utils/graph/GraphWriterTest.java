@@ -0,0 +1,164 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+
+/**
+ * Tests writing graphs with a {@link GraphWriter} and reading them back with a {@link GraphReader}.
+ */
+public class GraphWriterTest {
+
+	private static enum Color {RED, GREEN};
+
+	private static MemoryGraph roundTrip(MemoryGraph graph) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GraphWriter writer = new GraphWriter(Channels.newChannel(bytes));
+		writer.write(graph);
+		writer.close();
+
+		GraphReader reader = new GraphReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+		MemoryGraph read = reader.read();
+		reader.close();
+		return read;
+	}
+
+	/** Tests that types, properties and relationships survive a round trip. */
+	@Test
+	public void testRoundTrip() throws IOException {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		graph.createPropertyType("color", Color.class);
+		graph.createPropertyType("flag", Boolean.class);
+		graph.createPropertyType("count", Integer.class);
+		graph.createPropertyType("size", Long.class);
+		graph.createPropertyType("weight", Double.class);
+		graph.createPropertyType("tags", ArrayList.class);
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+
+		Node node1 = graph.createNode();
+		Node deleted = graph.createNode();
+		Node node2 = graph.createNode();
+		node1.createProperty("name", "\u00e9l\u00e8ve");
+		node1.createProperty("name", "student");
+		node1.createProperty("color", Color.GREEN);
+		node1.createProperty("flag", true);
+		node1.createProperty("count", -7);
+		node2.createProperty("size", Long.MIN_VALUE);
+		node2.createProperty("weight", 0.5);
+		node2.createProperty("tags", new ArrayList<String>(Arrays.asList("a", "b")));
+		node1.createRelationship("r1", node2);
+		node1.createRelationship("r2", node2);
+		node2.createRelationship("r1", node1);
+		node2.createRelationship("r1", node2);
+		deleted.createRelationship("r1", node1);
+		deleted.delete();
+
+		MemoryGraph read = roundTrip(graph);
+		assertEquals(graph.getPropertyTypes(), read.getPropertyTypes());
+		assertEquals(graph.getRelationshipTypes(), read.getRelationshipTypes());
+
+		Iterator<MemoryNode> nodes = read.getNodeSnapshot().iterator();
+		MemoryNode read1 = nodes.next();
+		MemoryNode read2 = nodes.next();
+		assertTrue(!nodes.hasNext());
+
+		assertEquals(5, read1.getNoProperties());
+		assertEquals(2, read1.getProperties("name").size());
+		assertEquals(Color.GREEN, read1.getAttribute("color"));
+		assertEquals(true, read1.getAttribute("flag"));
+		assertEquals(-7, read1.getAttribute("count"));
+		assertEquals(Long.MIN_VALUE, read2.getAttribute("size"));
+		assertEquals(0.5, read2.getAttribute("weight", Double.class), 0.0);
+		assertEquals(Arrays.asList("a", "b"), read2.getAttribute("tags"));
+		assertTrue(read.getNodeSnapshotByAttribute("flag", true).contains(read1));
+
+		assertEquals(3, read1.getNoRelationships());
+		assertEquals(2, read1.getRelationships("r1").size());
+		assertEquals(1, read1.getRelationships("r2").size());
+		/* The self-loop is listed twice */
+		assertEquals(5, read2.getNoRelationships());
+		assertEquals(read2, read1.getRelationships("r2").iterator().next().getEnd());
+	}
+
+	/** Tests a larger random graph whose encoding spans many buffers. */
+	@Test
+	public void testRandomGraph() throws IOException {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("id", Integer.class);
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+
+		int noNodes = 5000;
+		int noRelationships = 50000;
+		Random rand = new Random(0);
+		Collection<MemoryNode> created = graph.createNodes(noNodes);
+		String[] types = {"r1", "r2"};
+		int[] sources = new int[noRelationships];
+		int[] targets = new int[noRelationships];
+		int[] typeIndexes = new int[noRelationships];
+		for (int i = 0; i < noRelationships; i++) {
+			sources[i] = rand.nextInt(noNodes);
+			targets[i] = rand.nextInt(noNodes);
+			typeIndexes[i] = rand.nextInt(2);
+		}
+		graph.createRelationships(new ArrayList<MemoryNode>(created), types, sources, targets, typeIndexes);
+		int id = 0;
+		for (MemoryNode n : created)
+			n.createProperty("id", id++);
+
+		MemoryGraph read = roundTrip(graph);
+		Iterator<MemoryNode> originals = graph.getNodeSnapshot().iterator();
+		int total = 0;
+		for (MemoryNode n : read.getNodeSnapshot()) {
+			MemoryNode original = originals.next();
+			assertEquals(original.getAttribute("id"), n.getAttribute("id"));
+			assertEquals(original.getRelationships("r1").size(), n.getRelationships("r1").size());
+			assertEquals(original.getRelationships("r2").size(), n.getRelationships("r2").size());
+			total += n.getNoRelationships();
+		}
+		assertEquals(2 * noRelationships, total);
+	}
+
+	/** Tests that input that is not a graph is rejected. */
+	@Test
+	public void testInvalidInput() {
+		try {
+			new GraphReader(Channels.newChannel(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}))).read();
+			fail("Read a graph from invalid input.");
+		} catch (IOException e) {
+		}
+	}
+}
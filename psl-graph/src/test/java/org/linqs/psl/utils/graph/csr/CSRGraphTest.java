@@ -0,0 +1,201 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.csr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
+
+/**
+ * Tests freezing a {@link MemoryGraph} into a {@link CSRGraph}.
+ */
+public class CSRGraphTest {
+
+	private static String P1 = "p1";
+	private static String P2 = "p2";
+	private static String R1 = "r1";
+	private static String R2 = "r2";
+
+	private MemoryGraph graph;
+
+	@Before
+	public final void setUp() throws Exception {
+		graph = new MemoryGraph();
+		graph.createPropertyType(P1, String.class);
+		graph.createPropertyType(P2, Boolean.class);
+		graph.createRelationshipType(R1);
+		graph.createRelationshipType(R2);
+	}
+
+	/** Tests that a frozen graph has the same structure as the original. */
+	@Test
+	public void testFreeze() {
+		Node node1 = graph.createNode();
+		Node node2 = graph.createNode();
+		Node node3 = graph.createNode();
+		node1.createProperty(P1, "a");
+		node1.createProperty(P2, true);
+		node2.createProperty(P2, false);
+		node1.createRelationship(R1, node2);
+		node1.createRelationship(R2, node3);
+		node2.createRelationship(R1, node3);
+		node3.createRelationship(R2, node3);
+
+		CSRGraph frozen = graph.freeze();
+
+		assertEquals(3, frozen.getNoNodes());
+		assertEquals(4, frozen.getNoRelationships());
+
+		int noRelationships = 0;
+		int noProperties = 0;
+		for (CSRNode n : frozen.getNodeSnapshot()) {
+			noRelationships += n.getNoRelationships();
+			noProperties += n.getNoProperties();
+			assertEquals(n.getNoRelationships(), n.getRelationships(R1).size() + n.getRelationships(R2).size());
+			for (Relationship r : n.getRelationships(R1))
+				assertEquals(R1, r.getRelationshipType());
+			for (Relationship r : n.getRelationships(R2))
+				assertEquals(R2, r.getRelationshipType());
+			for (Relationship r : n.getRelationships())
+				assertTrue(r.isIncidentOn(n));
+		}
+		/* Every relationship is listed at both ends, self-loops twice at the same node */
+		assertEquals(8, noRelationships);
+		assertEquals(3, noProperties);
+
+		assertEquals(2, frozen.relationships(R1).count());
+		assertEquals(2, frozen.relationships(R2).count());
+		assertTrue(frozen.relationships(R1).allMatch(r -> r.getRelationshipType().equals(R1)));
+		assertTrue(frozen.relationships(R2).allMatch(r -> r.getRelationshipType().equals(R2)));
+
+		Set<Node> trueNodes = frozen.getNodeSnapshotByAttribute(P2, true);
+		assertEquals(1, trueNodes.size());
+		CSRNode frozen1 = (CSRNode) trueNodes.iterator().next();
+		assertEquals("a", frozen1.getAttribute(P1));
+		assertEquals(2, frozen1.getNoRelationships());
+		assertEquals(1, frozen1.getRelationships(R1).size());
+
+		Relationship r = frozen1.getRelationships(R1).get(0);
+		assertTrue(r.getStart().equals(frozen1));
+		CSRNode frozen2 = (CSRNode) r.getOtherNode(frozen1);
+		assertEquals(Boolean.FALSE, frozen2.getAttribute(P2));
+		assertTrue(frozen2.getRelationships(R1).contains(r));
+		assertEquals(frozen1, frozen1.getProperties(P1).get(0).getStart());
+	}
+
+	/** Tests that relationship weights are stored when freezing. */
+	@Test
+	public void testFreezeWeights() {
+		Node node1 = graph.createNode();
+		Node node2 = graph.createNode();
+		node1.createRelationship(R1, node2);
+
+		CSRGraph frozen = graph.freeze();
+		CSRNode n = frozen.getNode(0);
+		assertEquals(1.0, frozen.getRelationshipWeighter().getWeight(n.getRelationships().get(0)), 0.0);
+
+		int pos = frozen.getAdjacencyStart(0);
+		assertEquals(pos + 1, frozen.getAdjacencyEnd(0));
+		assertEquals(1, frozen.getNeighbor(pos));
+		assertEquals(1.0, frozen.getWeight(frozen.getRelationshipId(pos)), 0.0);
+	}
+
+	/** Tests that distinct relationship weights are stored with their relationships, in adjacency order. */
+	@Test
+	public void testFreezeDistinctWeights() {
+		Node a = graph.createNode();
+		Node b = graph.createNode();
+		Node c = graph.createNode();
+		Node d = graph.createNode();
+		final Map<Relationship, Double> weights = new HashMap<Relationship, Double>();
+		weights.put(a.createRelationship(R1, b), 2.0);
+		weights.put(a.createRelationship(R2, c), 3.0);
+		weights.put(b.createRelationship(R1, c), 5.0);
+		weights.put(c.createRelationship(R2, a), 7.0);
+		weights.put(d.createRelationship(R1, d), 11.0);
+
+		/* Frozen nodes are numbered in snapshot order */
+		List<Node> order = new ArrayList<Node>(graph.getNodeSnapshot());
+		Map<String, Double> expected = new HashMap<String, Double>();
+		for (Map.Entry<Relationship, Double> e : weights.entrySet()) {
+			Relationship r = e.getKey();
+			expected.put(order.indexOf(r.getStart()) + " " + order.indexOf(r.getEnd()) + " " + r.getRelationshipType(),
+					e.getValue());
+		}
+
+		CSRGraph frozen = graph.freeze(r -> weights.get(r));
+		RelationshipWeighter frozenWeights = frozen.getRelationshipWeighter();
+		int noPositions = 0;
+		for (int v = 0; v < frozen.getNoNodes(); v++) {
+			List<CSRRelationship> relationships = frozen.getNode(v).getRelationships();
+			assertEquals(frozen.getAdjacencyEnd(v) - frozen.getAdjacencyStart(v), relationships.size());
+			for (int i = 0; i < relationships.size(); i++) {
+				int pos = frozen.getAdjacencyStart(v) + i;
+				CSRRelationship r = relationships.get(i);
+				double weight = expected.get(frozen.getNodeId(r.getStart()) + " " + frozen.getNodeId(r.getEnd())
+						+ " " + r.getRelationshipType());
+				assertEquals(weight, frozenWeights.getWeight(r), 0.0);
+				assertEquals(weight, frozen.getWeight(frozen.getRelationshipId(pos)), 0.0);
+				assertEquals(frozen.getNodeId(r.getOtherNode(frozen.getNode(v))), frozen.getNeighbor(pos));
+				noPositions++;
+			}
+		}
+		/* Every relationship is listed at both ends, the self-loop twice */
+		assertEquals(10, noPositions);
+	}
+
+	/** Tests that a frozen graph cannot be modified. */
+	@Test
+	public void testImmutable() {
+		graph.createNode();
+		CSRGraph frozen = graph.freeze();
+
+		Set<String> failed = new HashSet<String>();
+		try {
+			frozen.createNode();
+		} catch (UnsupportedOperationException e) {
+			failed.add("createNode");
+		}
+		try {
+			frozen.getNode(0).createProperty(P1, "b");
+		} catch (UnsupportedOperationException e) {
+			failed.add("createProperty");
+		}
+		try {
+			frozen.getNode(0).delete();
+		} catch (UnsupportedOperationException e) {
+			failed.add("delete");
+		}
+		assertEquals(3, failed.size());
+		assertFalse(frozen.getNode(0).getEdgeIterator().hasNext());
+	}
+}
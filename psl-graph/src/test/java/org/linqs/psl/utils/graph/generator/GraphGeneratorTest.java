@@ -0,0 +1,151 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.weight.HashRelationshipWeighter;
+
+public class GraphGeneratorTest {
+
+	private static class EdgeList implements EdgeSink {
+		final List<int[]> edges = new ArrayList<int[]>();
+		final List<Double> weights = new ArrayList<Double>();
+
+		@Override
+		public void edge(int source, int target, double weight) {
+			edges.add(new int[] {source, target});
+			weights.add(weight);
+		}
+	}
+
+	private static EdgeList generate(GraphGenerator generator) {
+		EdgeList list = new EdgeList();
+		generator.generate(list);
+		return list;
+	}
+
+	/** Tests that the same seed produces the same graph and a different seed does not. */
+	@Test
+	public void testDeterminism() {
+		GraphGenerator[] generators = new GraphGenerator[] {
+				new ErdosRenyiGenerator(200, 0.05, 7),
+				new RMatGenerator(8, 1000, 7),
+				new BarabasiAlbertGenerator(200, 3, 7),
+				new PlantedPartitionGenerator(4, 50, 0.2, 0.01, 7)
+		};
+		for (GraphGenerator generator : generators) {
+			generator.setWeightRange(0.5, 2.0);
+			EdgeList first = generate(generator);
+			EdgeList second = generate(generator);
+			assertEquals(first.edges.size(), second.edges.size());
+			for (int i = 0; i < first.edges.size(); i++) {
+				assertEquals(first.edges.get(i)[0], second.edges.get(i)[0]);
+				assertEquals(first.edges.get(i)[1], second.edges.get(i)[1]);
+				assertEquals(first.weights.get(i), second.weights.get(i));
+				assertTrue(first.weights.get(i) >= 0.5 && first.weights.get(i) <= 2.0);
+			}
+		}
+
+		EdgeList other = generate(new ErdosRenyiGenerator(200, 0.05, 8));
+		EdgeList same = generate(new ErdosRenyiGenerator(200, 0.05, 7));
+		assertTrue(other.edges.size() != same.edges.size()
+				|| other.edges.get(0)[0] != same.edges.get(0)[0] || other.edges.get(0)[1] != same.edges.get(0)[1]);
+	}
+
+	/** Tests that G(n, p) graphs have about p * n * (n - 1) / 2 distinct edges. */
+	@Test
+	public void testErdosRenyi() {
+		int n = 1000;
+		double p = 0.01;
+		EdgeList list = generate(new ErdosRenyiGenerator(n, p, 1));
+		double expected = p * n * (n - 1) / 2;
+		assertEquals(expected, list.edges.size(), 5 * Math.sqrt(expected));
+		for (int[] e : list.edges)
+			assertTrue(e[0] < e[1] && e[1] < n);
+
+		assertEquals(0, generate(new ErdosRenyiGenerator(n, 0.0, 1)).edges.size());
+		assertEquals(10 * 9 / 2, generate(new ErdosRenyiGenerator(10, 1.0, 1)).edges.size());
+	}
+
+	/** Tests that planted partition graphs are denser within blocks than between them. */
+	@Test
+	public void testPlantedPartition() {
+		PlantedPartitionGenerator generator = new PlantedPartitionGenerator(5, 40, 0.3, 0.01, 3);
+		int within = 0, between = 0;
+		for (int[] e : generate(generator).edges) {
+			assertTrue(e[0] != e[1]);
+			if (generator.getBlock(e[0]) == generator.getBlock(e[1]))
+				within++;
+			else
+				between++;
+		}
+		assertEquals(0.3 * 5 * 40 * 39 / 2, within, 100);
+		assertEquals(0.01 * 10 * 40 * 40, between, 50);
+	}
+
+	/** Tests that preferential attachment adds the requested number of distinct edges per node. */
+	@Test
+	public void testBarabasiAlbert() {
+		int n = 500, m = 3;
+		EdgeList list = generate(new BarabasiAlbertGenerator(n, m, 5));
+		assertEquals(m * (m + 1) / 2 + (n - m - 1) * m, list.edges.size());
+		int[] degrees = new int[n];
+		for (int[] e : list.edges) {
+			assertTrue(e[0] < e[1]);
+			degrees[e[0]]++;
+			degrees[e[1]]++;
+		}
+		for (int v = 0; v < n; v++)
+			assertTrue(degrees[v] >= m);
+	}
+
+	/** Tests writing a generated graph into a graph in batches. */
+	@Test
+	public void testWrite() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("r");
+		RMatGenerator generator = new RMatGenerator(6, 300, 11);
+		generator.setWeightRange(1.0, 3.0);
+		HashRelationshipWeighter weights = new HashRelationshipWeighter();
+		List<? extends Node> nodes = generator.write(graph, "r", weights);
+		assertEquals(64, nodes.size());
+
+		EdgeList list = generate(generator);
+		int noEnds = 0;
+		for (Node n : nodes)
+			noEnds += n.getNoRelationships();
+		assertEquals(2 * list.edges.size(), noEnds);
+
+		Node start = nodes.get(list.edges.get(0)[0]);
+		Node end = nodes.get(list.edges.get(0)[1]);
+		boolean found = false;
+		for (Relationship r : start.getRelationships("r"))
+			if (r.getStart().equals(start) && r.getEnd().equals(end) && weights.getWeight(r) == list.weights.get(0))
+				found = true;
+		assertTrue(found);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.mapped;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.GraphContractTest;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+
+public class MappedGraphTest extends GraphContractTest {
+
+	private static enum Color {RED, GREEN};
+
+	private final List<File> directories = new ArrayList<File>();
+	private final List<MappedGraph> graphs = new ArrayList<MappedGraph>();
+
+	@Override
+	protected Graph getGraphImplementation() {
+		try {
+			return open(createDirectory());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private File createDirectory() throws IOException {
+		File directory = Files.createTempDirectory("mappedgraph").toFile();
+		directories.add(directory);
+		return directory;
+	}
+
+	private MappedGraph open(File directory) throws IOException {
+		MappedGraph graph = MappedGraph.open(directory);
+		graphs.add(graph);
+		return graph;
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (MappedGraph graph : graphs)
+			graph.close();
+		for (File directory : directories) {
+			for (File f : directory.listFiles())
+				f.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Tests that a graph can be closed and reopened with its contents intact.
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		File directory = createDirectory();
+		MappedGraph graph = MappedGraph.open(directory);
+		graph.createPropertyType("name", String.class);
+		graph.createPropertyType("color", Color.class);
+		graph.createPropertyType("weight", Double.class);
+		graph.createPropertyType("count", Integer.class);
+		graph.createPropertyType("tags", ArrayList.class);
+		graph.createRelationshipType("r");
+
+		Node node1 = graph.createNode();
+		Node node2 = graph.createNode();
+		Node deleted = graph.createNode();
+		node1.createProperty("name", "\u00e9l\u00e8ve");
+		node1.createProperty("color", Color.GREEN);
+		node1.createProperty("weight", 0.25);
+		node2.createProperty("count", 42);
+		ArrayList<String> tags = new ArrayList<String>();
+		tags.add("a");
+		node2.createProperty("tags", tags);
+		node1.createRelationship("r", node2);
+		node2.createRelationship("r", node2);
+		deleted.createRelationship("r", node1);
+		deleted.delete();
+		graph.close();
+
+		graph = open(directory);
+		List<MappedNode> nodes = graph.getNodeSnapshot();
+		assertEquals(2, nodes.size());
+		Node reopened1 = nodes.get(0);
+		Node reopened2 = nodes.get(1);
+		assertEquals("\u00e9l\u00e8ve", reopened1.getAttribute("name"));
+		assertEquals(Color.GREEN, reopened1.getAttribute("color"));
+		assertEquals(0.25, reopened1.getAttribute("weight", Double.class), 0.0);
+		assertEquals(42, reopened2.getAttribute("count"));
+		assertEquals(tags, reopened2.getAttribute("tags"));
+
+		assertEquals(1, reopened1.getNoRelationships());
+		/* The self-loop is listed twice */
+		assertEquals(3, reopened2.getNoRelationships());
+		Relationship r = reopened1.getRelationshipIterator("r").next();
+		assertEquals(reopened2, r.getOtherNode(reopened1));
+		assertTrue(graph.getNodeSnapshotByAttribute("color", Color.GREEN).contains(reopened1));
+
+		/* The reopened graph can keep growing */
+		Node node3 = graph.createNode();
+		node3.createRelationship("r", reopened1);
+		assertEquals(2, reopened1.getNoRelationships());
+		assertEquals(3, graph.getNodeSnapshot().size());
+	}
+
+	/**
+	 * Tests that values spanning several segments of the mapped files are stored intact.
+	 */
+	@Test
+	public void testLargeValues() throws IOException {
+		MappedGraph graph = open(createDirectory());
+		graph.createPropertyType("text", String.class);
+
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < 3 << 20)
+			builder.append("0123456789");
+		String text = builder.toString();
+
+		Node node1 = graph.createNode();
+		Node node2 = graph.createNode();
+		node1.createProperty("text", "short");
+		node2.createProperty("text", text);
+		assertEquals("short", node1.getAttribute("text"));
+		assertEquals(text, node2.getAttribute("text"));
+	}
+}
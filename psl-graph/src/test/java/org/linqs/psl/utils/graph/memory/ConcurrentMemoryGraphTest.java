@@ -0,0 +1,269 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Graph;
+import org.linqs.psl.utils.graph.GraphContractTest;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Property;
+
+public class ConcurrentMemoryGraphTest extends GraphContractTest {
+
+	private static final int noThreads = 8;
+	private static final int noSharedNodes = 64;
+	private static final int noNodesPerThread = 2000;
+	private static final int noRelationshipsPerThread = 5000;
+
+	@Override
+	protected Graph getGraphImplementation() {
+		return new ConcurrentMemoryGraph();
+	}
+
+	/**
+	 * Tests that nodes, properties and relationships created by many threads
+	 * at once all end up in the graph.
+	 */
+	@Test
+	public void testConcurrentConstruction() throws Exception {
+		final ConcurrentMemoryGraph graph = new ConcurrentMemoryGraph();
+		graph.createPropertyType("flag", Boolean.class);
+		graph.createRelationshipType("r");
+
+		/* Shared nodes concentrate contention on a few adjacency lists */
+		final List<Node> shared = new ArrayList<Node>(noSharedNodes);
+		for (int i = 0; i < noSharedNodes; i++)
+			shared.add(graph.createNode());
+
+		ExecutorService executor = Executors.newFixedThreadPool(noThreads);
+		List<Future<List<Node>>> results = new ArrayList<Future<List<Node>>>(noThreads);
+		for (int t = 0; t < noThreads; t++) {
+			final long seed = t;
+			results.add(executor.submit(new Callable<List<Node>>() {
+				@Override
+				public List<Node> call() {
+					Random rand = new Random(seed);
+					List<Node> created = new ArrayList<Node>(noNodesPerThread);
+					for (int i = 0; i < noNodesPerThread; i++) {
+						Node n = graph.createNode();
+						n.createProperty("flag", i % 2 == 0);
+						created.add(n);
+					}
+					for (int i = 0; i < noRelationshipsPerThread; i++) {
+						Node start = created.get(rand.nextInt(created.size()));
+						Node end = shared.get(rand.nextInt(shared.size()));
+						start.createRelationship("r", end);
+					}
+					return created;
+				}
+			}));
+		}
+
+		Set<Long> uids = new HashSet<Long>();
+		int noNodes = 0;
+		for (Future<List<Node>> result : results) {
+			for (Node n : result.get()) {
+				assertTrue(uids.add(((MemoryNode) n).uid));
+				noNodes++;
+			}
+		}
+		executor.shutdown();
+
+		assertEquals(noThreads * noNodesPerThread, noNodes);
+
+		int noSnapshotNodes = 0;
+		int noRelationshipEnds = 0;
+		for (Node n : graph.getNodeSnapshot()) {
+			noSnapshotNodes++;
+			noRelationshipEnds += n.getNoRelationships();
+		}
+		assertEquals(noNodes + noSharedNodes, noSnapshotNodes);
+		assertEquals(2 * noThreads * noRelationshipsPerThread, noRelationshipEnds);
+
+		int noSharedEnds = 0;
+		for (Node n : shared)
+			noSharedEnds += n.getNoRelationships();
+		assertEquals(noThreads * noRelationshipsPerThread, noSharedEnds);
+
+		assertEquals(noNodes / 2, graph.getNodeSnapshotByAttribute("flag", true).size());
+		assertEquals(noNodes / 2, graph.getNodeSnapshotByAttribute("flag", false).size());
+	}
+
+	/**
+	 * Tests that indexes created while other threads create and delete properties
+	 * hold every remaining property exactly once.
+	 */
+	@Test
+	public void testConcurrentIndexCreation() throws Exception {
+		for (int round = 0; round < 10; round++) {
+			final ConcurrentMemoryGraph graph = new ConcurrentMemoryGraph();
+			graph.createPropertyType("name", String.class);
+			final CountDownLatch started = new CountDownLatch(noThreads);
+
+			ExecutorService executor = Executors.newFixedThreadPool(noThreads);
+			List<Future<?>> results = new ArrayList<Future<?>>(noThreads);
+			for (int t = 0; t < noThreads; t++) {
+				results.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 0; i < noNodesPerThread; i++) {
+							if (i == noNodesPerThread / 4)
+								started.countDown();
+							Property p = graph.createNode().createProperty("name", "v" + (i % 4));
+							/* Leaves only the properties with the values v0 and v2 */
+							if (i % 2 == 1)
+								p.delete();
+						}
+					}
+				}));
+			}
+			started.await();
+			graph.createIndex("name", IndexKind.HASH);
+			graph.createIndex("name", IndexKind.SORTED);
+			for (Future<?> result : results)
+				result.get();
+			executor.shutdown();
+
+			int expected = noThreads * noNodesPerThread / 4;
+			assertEquals(expected, graph.getNodeSnapshotByAttribute("name", "v0").size());
+			assertEquals(0, graph.getNodeSnapshotByAttribute("name", "v1").size());
+			assertEquals(expected, graph.getNodeSnapshotByAttribute("name", "v2").size());
+			assertEquals(0, graph.getNodeSnapshotByAttribute("name", "v3").size());
+			assertEquals(2 * expected, graph.getNodeSnapshotByAttributeRange("name", "v0", true, "v3", true).size());
+
+			/* Stale entries would keep nodes in the index after their last property is deleted */
+			List<Property> remaining = new ArrayList<Property>();
+			for (Node n : graph.getNodeSnapshot())
+				for (Property p : n.getProperties())
+					remaining.add(p);
+			for (Property p : remaining)
+				p.delete();
+			assertEquals(0, graph.getNodeSnapshotByAttribute("name", "v0").size());
+			assertEquals(0, graph.getNodeSnapshotByAttribute("name", "v2").size());
+			assertEquals(0, graph.getNodeSnapshotByAttributeRange("name", "v0", true, "v3", true).size());
+		}
+	}
+
+	/**
+	 * Tests that deleting nodes while other threads connect to them leaves no
+	 * relationship on a deleted node, and that every relationship is reported
+	 * deleted once.
+	 */
+	@Test
+	public void testConcurrentDeletion() throws Exception {
+		final ConcurrentMemoryGraph graph = new ConcurrentMemoryGraph();
+		graph.createRelationshipType("r");
+		final AtomicInteger noCreated = new AtomicInteger(0);
+		final AtomicInteger noDeleted = new AtomicInteger(0);
+		graph.addListener(new GraphListener() {
+			@Override
+			public void relationshipCreated(MemoryRelationship r) {
+				noCreated.incrementAndGet();
+			}
+
+			@Override
+			public void relationshipDeleted(MemoryRelationship r) {
+				noDeleted.incrementAndGet();
+			}
+		});
+		final List<MemoryNode> targets = graph.createNodes(noNodesPerThread);
+
+		ExecutorService executor = Executors.newFixedThreadPool(noThreads);
+		List<Future<List<MemoryNode>>> results = new ArrayList<Future<List<MemoryNode>>>(noThreads);
+		for (int t = 0; t < noThreads; t++) {
+			final long seed = t;
+			final boolean deleting = t % 2 == 0;
+			results.add(executor.submit(new Callable<List<MemoryNode>>() {
+				@Override
+				public List<MemoryNode> call() {
+					Random rand = new Random(seed);
+					List<MemoryNode> sources = graph.createNodes(100);
+					for (int i = 0; i < noRelationshipsPerThread; i++) {
+						MemoryNode target = targets.get(rand.nextInt(targets.size()));
+						if (deleting && i % 2 == 0) {
+							target.delete();
+							continue;
+						}
+						try {
+							sources.get(rand.nextInt(sources.size())).createRelationship("r", target);
+						} catch (IllegalStateException e) {
+							/* The target has been deleted */
+						}
+					}
+					return sources;
+				}
+			}));
+		}
+		List<MemoryNode> sources = new ArrayList<MemoryNode>();
+		for (Future<List<MemoryNode>> result : results)
+			sources.addAll(result.get());
+		executor.shutdown();
+
+		int noLive = 0;
+		for (MemoryNode target : targets) {
+			if (target.isDeleted())
+				assertEquals(0, target.getNoEdges());
+			else
+				noLive += target.getNoRelationships();
+		}
+		int noSourceEnds = 0;
+		for (MemoryNode source : sources) {
+			for (MemoryRelationship r : source.getRelationships()) {
+				assertFalse(r.endNode.isDeleted());
+				assertTrue(r.endNode.getRelationships().contains(r));
+			}
+			noSourceEnds += source.getNoRelationships();
+		}
+		assertEquals(noLive, noSourceEnds);
+		assertEquals(noCreated.get() - noLive, noDeleted.get());
+
+		/* Deleting the same relationships from several threads reports each deletion once */
+		final List<MemoryRelationship> remaining = new ArrayList<MemoryRelationship>();
+		for (MemoryNode source : sources)
+			remaining.addAll(source.getRelationships());
+		executor = Executors.newFixedThreadPool(noThreads);
+		List<Future<?>> deletions = new ArrayList<Future<?>>(noThreads);
+		for (int t = 0; t < noThreads; t++)
+			deletions.add(executor.submit(() -> {
+				for (MemoryRelationship r : remaining)
+					r.delete();
+			}));
+		for (Future<?> deletion : deletions)
+			deletion.get();
+		executor.shutdown();
+		assertEquals(noCreated.get(), noDeleted.get());
+		for (MemoryNode source : sources)
+			assertEquals(0, source.getNoRelationships());
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Property;
+import org.linqs.psl.utils.graph.Relationship;
+
+public class GraphJournalTest {
+
+	private MemoryGraph graph;
+	private GraphJournal journal;
+	private Recorder recorder;
+
+	@Before
+	public final void setUp() {
+		graph = new MemoryGraph();
+		graph.createPropertyType("p", String.class);
+		graph.createRelationshipType("r");
+		journal = new GraphJournal(16);
+		graph.addListener(journal);
+		recorder = new Recorder();
+	}
+
+	/** Tests that changes are replayed in the order they were made. */
+	@Test
+	public void testDrain() {
+		MemoryNode n1 = (MemoryNode) graph.createNode();
+		MemoryNode n2 = (MemoryNode) graph.createNode();
+		Property p = n1.createProperty("p", "a");
+		Relationship r = n1.createRelationship("r", n2);
+		graph.createRelationships(Arrays.asList(n1, n2), new String[] {"r"}, new int[] {1}, new int[] {0}, new int[] {0});
+		assertEquals(5, journal.size());
+
+		assertTrue(journal.drainTo(recorder));
+		assertEquals(Arrays.asList("+node", "+node", "+property", "+relationship", "+relationship"), recorder.changes);
+		assertEquals(Arrays.asList(n1, n2, p, r), recorder.elements.subList(0, 4));
+		assertEquals(0, journal.size());
+
+		/* Deleting a node reports its edges first, and deleting it again reports nothing */
+		recorder.clear();
+		n1.delete();
+		n1.delete();
+		r.delete();
+		assertTrue(journal.drainTo(recorder));
+		assertEquals(Arrays.asList("-property", "-relationship", "-relationship", "-node"), recorder.changes);
+		assertEquals(n1, recorder.elements.get(3));
+	}
+
+	/** Tests that a full journal discards the oldest changes. */
+	@Test
+	public void testOverflow() {
+		assertEquals(16, journal.getCapacity());
+		List<MemoryNode> nodes = graph.createNodes(20);
+		assertEquals(16, journal.size());
+
+		assertFalse(journal.drainTo(recorder));
+		assertEquals(16, recorder.changes.size());
+		assertEquals(nodes.get(4), recorder.elements.get(0));
+
+		graph.createNode();
+		recorder.clear();
+		assertTrue(journal.drainTo(recorder));
+		assertEquals(1, recorder.changes.size());
+	}
+
+	/** Tests that removed listeners are no longer called. */
+	@Test
+	public void testRemoveListener() {
+		graph.addListener(recorder);
+		graph.createNode();
+		graph.removeListener(recorder);
+		graph.createNode();
+		assertEquals(1, recorder.changes.size());
+		assertEquals(2, journal.size());
+	}
+
+	private static class Recorder implements GraphListener {
+		final List<String> changes = new ArrayList<String>();
+		final List<Object> elements = new ArrayList<Object>();
+
+		void clear() {
+			changes.clear();
+			elements.clear();
+		}
+
+		private void add(String change, Object element) {
+			changes.add(change);
+			elements.add(element);
+		}
+
+		@Override
+		public void nodeCreated(MemoryNode n) {
+			add("+node", n);
+		}
+
+		@Override
+		public void nodeDeleted(MemoryNode n) {
+			add("-node", n);
+		}
+
+		@Override
+		public void propertyCreated(MemoryProperty p) {
+			add("+property", p);
+		}
+
+		@Override
+		public void propertyDeleted(MemoryProperty p) {
+			add("-property", p);
+		}
+
+		@Override
+		public void relationshipCreated(MemoryRelationship r) {
+			add("+relationship", r);
+		}
+
+		@Override
+		public void relationshipDeleted(MemoryRelationship r) {
+			add("-relationship", r);
+		}
+	}
+}
@@ -17,8 +17,28 @@
  */
 package org.linqs.psl.utils.graph.memory;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Edge;
 import org.linqs.psl.utils.graph.Graph;
 import org.linqs.psl.utils.graph.GraphContractTest;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
 import org.linqs.psl.utils.graph.memory.MemoryGraph;
 
 public class MemoryGraphTest extends GraphContractTest {
@@ -28,4 +48,388 @@ public class MemoryGraphTest extends GraphContractTest {
 		return new MemoryGraph();
 	}
 
+	/** Tests that a hash index finds nodes by a String attribute. */
+	@Test
+	public void testHashIndex() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		Node node1 = graph.createNode();
+		Node node2 = graph.createNode();
+		node1.createProperty("name", "a");
+
+		/* Existing properties are indexed when the index is created */
+		graph.createIndex("name", IndexKind.HASH);
+		node2.createProperty("name", "b");
+
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "a").size() == 1);
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "a").contains(node1));
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "b").contains(node2));
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "c").size() == 0);
+
+		node1.getProperties("name").iterator().next().delete();
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "a").size() == 0);
+	}
+
+	/** Tests range lookups on a sorted index. */
+	@Test
+	public void testSortedIndex() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("age", Integer.class);
+		graph.createIndex("age", IndexKind.SORTED);
+		Node[] nodes = new Node[10];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = graph.createNode();
+			nodes[i].createProperty("age", i);
+		}
+
+		assertTrue(graph.getNodeSnapshotByAttribute("age", 3).contains(nodes[3]));
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", 2, true, 5, false).size() == 3);
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", 2, false, 5, true).size() == 3);
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", null, true, 4, true).size() == 5);
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", 7, true, null, true).size() == 3);
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", 2.5, true, 3.5, true).contains(nodes[3]));
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", 5, true, 2, true).size() == 0);
+
+		nodes[8].delete();
+		assertTrue(graph.getNodeSnapshotByAttributeRange("age", 7, true, null, true).size() == 2);
+	}
+
+	/** Tests that bounds of another number class are compared exactly, beyond the precision of doubles. */
+	@Test
+	public void testSortedIndexMixedBounds() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("id", Long.class);
+		graph.createIndex("id", IndexKind.SORTED);
+		long large = 1L << 53;
+		Node low = graph.createNode();
+		low.createProperty("id", large);
+		Node high = graph.createNode();
+		high.createProperty("id", large + 1);
+
+		Set<Node> above = graph.getNodeSnapshotByAttributeRange("id", (double) large, false, null, true);
+		assertTrue(above.size() == 1 && above.contains(high));
+		BigDecimal between = new BigDecimal(large).add(new BigDecimal("0.5"));
+		Set<Node> below = graph.getNodeSnapshotByAttributeRange("id", null, true, between, true);
+		assertTrue(below.size() == 1 && below.contains(low));
+		assertTrue(graph.getNodeSnapshotByAttributeRange("id", Double.NEGATIVE_INFINITY, true, Double.POSITIVE_INFINITY, true).size() == 2);
+		assertTrue(graph.getNodeSnapshotByAttributeRange("id", large + 1, true, (double) large, true).size() == 0);
+	}
+
+	/** Tests that lookups on unindexed property types are rejected. */
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnindexedLookup() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		graph.getNodeSnapshotByAttribute("name", "a");
+	}
+
+	/** Tests that sorted indexes are rejected for types that are not Comparable. */
+	@Test(expected=IllegalArgumentException.class)
+	public void testSortedIndexRequiresComparable() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("object", Object.class);
+		graph.createIndex("object", IndexKind.SORTED);
+	}
+
+	/** Tests that node snapshots do not change when the graph does. */
+	@Test
+	public void testSnapshotIsolation() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("flag", Boolean.class);
+		List<Node> nodes = new ArrayList<Node>();
+		for (int i = 0; i < 100; i++) {
+			Node n = graph.createNode();
+			n.createProperty("flag", true);
+			nodes.add(n);
+		}
+
+		Collection<MemoryNode> before = graph.getNodeSnapshot();
+		Set<Node> flagged = graph.getNodeSnapshotByAttribute("flag", true);
+
+		/* Deletes enough nodes to compact the node store */
+		for (int i = 0; i < 80; i++)
+			nodes.get(i).delete();
+		Node added = graph.createNode();
+		added.createProperty("flag", true);
+
+		int count = 0;
+		for (Node n : before) {
+			assertTrue(nodes.contains(n));
+			count++;
+		}
+		assertTrue(count == 100);
+		assertTrue(before.size() == 100);
+		assertTrue(before.contains(nodes.get(0)));
+		assertFalse(before.contains(added));
+		assertTrue(flagged.size() == 100);
+
+		Collection<MemoryNode> after = graph.getNodeSnapshot();
+		count = 0;
+		for (Node n : after) {
+			assertTrue(n == added || nodes.indexOf(n) >= 80);
+			count++;
+		}
+		assertTrue(count == 21);
+		assertTrue(after.size() == 21);
+		assertFalse(after.contains(nodes.get(0)));
+		assertTrue(graph.getNodeSnapshotByAttribute("flag", true).size() == 21);
+	}
+
+	/** Tests that a node leaves an index only once all its matching properties are deleted. */
+	@Test
+	public void testIndexDuplicateAttributes() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		graph.createIndex("name", IndexKind.HASH);
+		Node node = graph.createNode();
+		node.createProperty("name", "a");
+		node.createProperty("name", "a");
+		node.createProperty("name", "b");
+
+		Iterator<MemoryProperty> properties = ((MemoryNode) node).getProperties("name").iterator();
+		MemoryProperty first = properties.next();
+		assertTrue(first.getAttribute().equals("a"));
+		first.delete();
+		first.delete();
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "a").contains(node));
+
+		for (MemoryProperty p : new ArrayList<MemoryProperty>(((MemoryNode) node).getProperties("name")))
+			if (p.getAttribute().equals("a"))
+				p.delete();
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "a").isEmpty());
+		assertTrue(graph.getNodeSnapshotByAttribute("name", "b").contains(node));
+	}
+
+	/** Tests that random deletions keep the adjacency of all nodes consistent. */
+	@Test
+	public void testDeleteRelationships() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+		List<MemoryNode> nodes = graph.createNodes(20);
+
+		Random rand = new Random(0);
+		List<Relationship> relationships = new ArrayList<Relationship>();
+		for (int i = 0; i < 500; i++) {
+			Node start = nodes.get(rand.nextInt(nodes.size()));
+			Node end = nodes.get(rand.nextInt(5));
+			relationships.add(start.createRelationship(rand.nextBoolean() ? "r1" : "r2", end));
+		}
+
+		Collections.shuffle(relationships, rand);
+		List<Relationship> deleted = relationships.subList(0, 300);
+		for (Relationship r : deleted)
+			r.delete();
+		deleted.get(0).delete();
+		List<Relationship> remaining = relationships.subList(300, relationships.size());
+
+		int total = 0;
+		for (MemoryNode n : nodes) {
+			Map<Relationship, Integer> expected = new HashMap<Relationship, Integer>();
+			for (Relationship r : remaining)
+				for (Node incident : r.getNodes())
+					if (incident == n)
+						expected.put(r, (expected.containsKey(r) ? expected.get(r) : 0) + 1);
+
+			Map<Relationship, Integer> actual = new HashMap<Relationship, Integer>();
+			for (String type : new String[] {"r1", "r2"})
+				for (Relationship r : n.getRelationships(type)) {
+					assertTrue(r.getRelationshipType().equals(type));
+					actual.put(r, (actual.containsKey(r) ? actual.get(r) : 0) + 1);
+				}
+			assertTrue(expected.equals(actual));
+			total += n.getNoRelationships();
+		}
+		assertTrue(total == 2 * remaining.size());
+
+		/* Deleting a node removes its relationships from its neighbors */
+		nodes.get(0).delete();
+		for (MemoryNode n : nodes.subList(1, nodes.size()))
+			for (Relationship r : n.getRelationships())
+				assertFalse(r.isIncidentOn(nodes.get(0)));
+	}
+
+	/** Tests storing numeric values of nodes in columns. */
+	@Test
+	public void testColumns() {
+		MemoryGraph graph = new MemoryGraph();
+		DoubleColumn weights = graph.createDoubleColumn("weight", Double.POSITIVE_INFINITY);
+		LongColumn counts = graph.createLongColumn("count", 0);
+		List<MemoryNode> nodes = graph.createNodes(3);
+
+		weights.set(nodes.get(1), 2.5);
+		nodes.get(2).setLong("count", 7);
+		assertTrue(weights.get(nodes.get(0)) == Double.POSITIVE_INFINITY);
+		assertTrue(nodes.get(1).getDouble("weight") == 2.5);
+		assertTrue(counts.get(nodes.get(2)) == 7);
+		assertTrue(nodes.get(2).getNoProperties() == 0);
+
+		/* Nodes created after a column grows get the default value */
+		MemoryNode late = graph.createNodes(1000).get(999);
+		assertTrue(weights.get(late) == Double.POSITIVE_INFINITY);
+		weights.set(late, 1.0);
+		assertTrue(weights.get(late) == 1.0);
+		assertTrue(weights.get(nodes.get(1)) == 2.5);
+
+		assertTrue(graph.createDoubleColumn("weight", Double.POSITIVE_INFINITY) == weights);
+		try {
+			graph.createPropertyType("count", Long.class);
+			fail("Name of a column should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+		try {
+			graph.getDoubleColumn("count");
+			fail("Column of another data type should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+	}
+
+	/** Tests counting the contents of a graph and estimating its footprint. */
+	@Test
+	public void testStats() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		graph.createPropertyType("flag", Boolean.class);
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+		List<MemoryNode> nodes = graph.createNodes(4);
+		nodes.get(0).createProperty("name", "a");
+		nodes.get(1).createProperty("flag", true);
+		nodes.get(0).createRelationship("r1", nodes.get(1));
+		nodes.get(1).createRelationship("r1", nodes.get(2));
+		nodes.get(2).createRelationship("r2", nodes.get(2));
+		nodes.get(3).delete();
+
+		GraphStats stats = graph.getStats();
+		assertTrue(stats.getNoNodes() == 3);
+		assertTrue(stats.getNoRelationships() == 3);
+		assertTrue(stats.getNoProperties() == 2);
+		assertTrue(stats.getRelationshipCounts().get("r1") == 2);
+		assertTrue(stats.getRelationshipCounts().get("r2") == 1);
+		assertTrue(stats.getPropertyCounts().get("name") == 1);
+		assertTrue(stats.getNodeBytes() > 0 && stats.getRelationshipBytes() > 0 && stats.getIndexBytes() > 0);
+		assertTrue(stats.getColumnBytes() == 0);
+
+		/* Estimates grow with the graph */
+		graph.createDoubleColumn("weight", 0.0).set(nodes.get(0), 1.0);
+		for (int i = 0; i < 100; i++)
+			nodes.get(0).createRelationship("r2", graph.createNode());
+		GraphStats grown = graph.getStats();
+		assertTrue(grown.getNoRelationships() == 103);
+		assertTrue(grown.getColumnBytes() > 0);
+		assertTrue(grown.getAdjacencyBytes() > stats.getAdjacencyBytes());
+		assertTrue(grown.getTotalBytes() > stats.getTotalBytes());
+	}
+
+	/** Tests batches that reference few nodes of a long node list, some of which belong to another graph. */
+	@Test
+	public void testCreateRelationshipsSparseBatch() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+		List<Node> nodes = new LinkedList<Node>(graph.createNodes(1000));
+		nodes.add(new MemoryGraph().createNode());
+
+		for (int batch = 0; batch < 10; batch++)
+			graph.createRelationships(nodes, new String[] {"r1", "r2"}, new int[] {batch, batch, 999},
+					new int[] {batch + 1, batch + 1, 999}, new int[] {0, 1, 0});
+		assertTrue(nodes.get(0).getNoRelationships() == 2);
+		assertTrue(nodes.get(5).getNoRelationships() == 4);
+		assertTrue(nodes.get(999).getNoRelationships() == 20);
+
+		/* A foreign node is only rejected when the batch references it */
+		try {
+			graph.createRelationships(nodes, new String[] {"r1"}, new int[] {0, 1}, new int[] {1, 1000}, new int[] {0, 0});
+			fail("Node of another graph should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+		assertTrue(nodes.get(0).getNoRelationships() == 2);
+		assertTrue(nodes.get(1).getNoRelationships() == 4);
+	}
+
+	/** Tests that the adjacency views of a node cannot be modified. */
+	@Test
+	public void testReadOnlyViews() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		graph.createRelationshipType("r1");
+		MemoryNode node = (MemoryNode) graph.createNode();
+		node.createProperty("name", "a");
+		node.createRelationship("r1", graph.createNode());
+
+		assertReadOnly(node.getEdges());
+		assertReadOnly(node.getProperties());
+		assertReadOnly(node.getProperties("name"));
+		assertReadOnly(node.getRelationships());
+		assertReadOnly(node.getRelationships("r1"));
+		assertTrue(node.getNoEdges() == 2);
+	}
+
+	private static <E> void assertReadOnly(Collection<E> view) {
+		E first = view.iterator().next();
+		try {
+			view.add(first);
+			fail("View should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			/* Expected */
+		}
+		try {
+			view.remove(first);
+			fail("View should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			/* Expected */
+		}
+		try {
+			view.clear();
+			fail("View should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			/* Expected */
+		}
+		Iterator<E> it = view.iterator();
+		it.next();
+		try {
+			it.remove();
+			fail("View should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			/* Expected */
+		}
+	}
+
+	/** Tests deleting a node while a view of its adjacency is being iterated. */
+	@Test
+	public void testDeleteWhileIterating() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createPropertyType("name", String.class);
+		graph.createRelationshipType("r1");
+		MemoryNode hub = (MemoryNode) graph.createNode();
+		hub.createProperty("name", "hub");
+		List<MemoryNode> leaves = graph.createNodes(3);
+		for (MemoryNode leaf : leaves)
+			hub.createRelationship("r1", leaf);
+		leaves.get(0).createRelationship("r1", leaves.get(1));
+		hub.createRelationship("r1", hub);
+
+		Collection<MemoryRelationship> relationships = hub.getRelationships();
+		Collection<? extends Edge> edges = hub.getEdges();
+		int noVisited = 0;
+		for (Relationship r : relationships) {
+			assertTrue(r.isIncidentOn(hub));
+			noVisited++;
+			hub.delete();
+			break;
+		}
+		assertTrue(noVisited == 1);
+
+		/* The views are live and show the deleted node's empty adjacency */
+		assertTrue(relationships.isEmpty());
+		assertTrue(edges.isEmpty());
+		assertTrue(hub.getNoEdges() == 0);
+		assertFalse(graph.getNodeSnapshot().contains(hub));
+		assertTrue(leaves.get(0).getNoRelationships() == 1);
+		assertTrue(leaves.get(1).getNoRelationships() == 1);
+		assertTrue(leaves.get(2).getNoRelationships() == 0);
+	}
 }
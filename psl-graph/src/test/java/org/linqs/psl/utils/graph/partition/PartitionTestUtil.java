@@ -0,0 +1,70 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
+
+/**
+ * Graphs and checks shared by the partitioner tests.
+ */
+public class PartitionTestUtil {
+
+	public static final RelationshipWeighter unitWeighter = new RelationshipWeighter() {
+		@Override
+		public double getWeight(Relationship r) {
+			return 1.0;
+		}
+	};
+
+	/**
+	 * Creates clusters of densely connected nodes with a few relationships between them.
+	 */
+	public static MemoryGraph createClusteredGraph(int noClusters, int clusterSize, long seed) {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("r");
+		List<MemoryNode> nodes = graph.createNodes(noClusters * clusterSize);
+		Random rand = new Random(seed);
+		for (int c = 0; c < noClusters; c++)
+			for (int i = 0; i < clusterSize * 4; i++)
+				nodes.get(c * clusterSize + rand.nextInt(clusterSize))
+						.createRelationship("r", nodes.get(c * clusterSize + rand.nextInt(clusterSize)));
+		for (int i = 0; i < noClusters * 2; i++)
+			nodes.get(rand.nextInt(nodes.size())).createRelationship("r", nodes.get(rand.nextInt(nodes.size())));
+		return graph;
+	}
+
+	/**
+	 * Returns the number of relationships between blocks, counting every relationship once.
+	 */
+	public static double edgeCut(Map<Node, Integer> assign) {
+		double cut = 0.0;
+		for (Map.Entry<Node, Integer> e : assign.entrySet())
+			for (Relationship r : e.getKey().getRelationships())
+				if (r.getStart().equals(e.getKey()) && !assign.get(r.getEnd()).equals(e.getValue()))
+					cut += unitWeighter.getWeight(r);
+		return cut;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GainQueueTest {
+
+	/** Tests that elements are polled by decreasing gain as gains change. */
+	@Test
+	public void testOrder() {
+		GainQueue queue = new GainQueue(3);
+		queue.put(0, 1.0);
+		queue.put(1, 3.0);
+		queue.put(2, 2.0);
+		queue.add(0, 5.0);
+		queue.put(1, 0.5);
+		assertEquals(0, queue.peek());
+		assertEquals(6.0, queue.peekGain(), 0.0);
+		assertTrue(queue.remove(2));
+		assertFalse(queue.remove(2));
+		assertEquals(0, queue.poll());
+		assertEquals(1, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	/** Tests random operations against a map of gains. */
+	@Test
+	public void testRandomOperations() {
+		GainQueue queue = new GainQueue(200);
+		Map<Integer, Double> gains = new HashMap<Integer, Double>();
+		Random rand = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			int e = rand.nextInt(200);
+			switch (rand.nextInt(4)) {
+				case 0:
+					double gain = rand.nextDouble();
+					queue.put(e, gain);
+					gains.put(e, gain);
+					break;
+				case 1:
+					queue.add(e, 0.5);
+					gains.put(e, (gains.containsKey(e)) ? gains.get(e) + 0.5 : 0.5);
+					break;
+				case 2:
+					assertEquals(gains.remove(e) != null, queue.remove(e));
+					break;
+				default:
+					if (!gains.isEmpty()) {
+						double max = Double.NEGATIVE_INFINITY;
+						for (double g : gains.values())
+							max = Math.max(max, g);
+						assertEquals(max, queue.peekGain(), 0.0);
+						int top = queue.poll();
+						assertEquals(max, gains.remove(top), 0.0);
+					}
+			}
+			assertEquals(gains.size(), queue.size());
+		}
+	}
+}
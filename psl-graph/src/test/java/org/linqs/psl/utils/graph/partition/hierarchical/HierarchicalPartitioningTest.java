@@ -0,0 +1,222 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.linqs.psl.utils.graph.partition.PartitionTestUtil.createClusteredGraph;
+import static org.linqs.psl.utils.graph.partition.PartitionTestUtil.edgeCut;
+import static org.linqs.psl.utils.graph.partition.PartitionTestUtil.unitWeighter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+import org.linqs.psl.utils.graph.weight.ConstantOneNodeWeighter;
+import org.linqs.psl.utils.graph.weight.RelationshipWeighter;
+
+public class HierarchicalPartitioningTest {
+
+	/** Tests that refinement reduces the cut of a poor partition by the amount it reports. */
+	@Test
+	public void testRefinement() {
+		MemoryGraph graph = createClusteredGraph(2, 200, 1);
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		PartitionKernel.Level level = HierarchicalPartitioning.createLevel(graph, nodes,
+				new ConstantOneNodeWeighter(), unitWeighter);
+		/* Puts a quarter of each cluster into the wrong block */
+		int[] assign = new int[nodes.size()];
+		for (int v = 0; v < nodes.size(); v++) {
+			int cluster = v / 200;
+			assign[v] = (v % 200 < 150) ? cluster : 1 - cluster;
+		}
+		double before = PartitionKernel.edgeCut(level, assign);
+
+		double reduction = new FMRefinement(level, assign, 2, 0.05).refine(10);
+		double after = PartitionKernel.edgeCut(level, assign);
+		assertEquals(before - reduction, after, 1e-9);
+		assertTrue(after < before / 4);
+
+		int[] sizes = new int[2];
+		for (int pid : assign)
+			sizes[pid]++;
+		assertTrue(sizes[0] <= 210 && sizes[1] <= 210);
+	}
+
+	/** Tests that the returned edge cut is the cut of the returned partition. */
+	@Test
+	public void testPartitionEdgeCut() {
+		MemoryGraph graph = createClusteredGraph(4, 300, 2);
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		List<List<Node>> partition = new ArrayList<List<Node>>();
+		for (int pid = 0; pid < 4; pid++)
+			partition.add(new ArrayList<Node>());
+		double cut = new HierarchicalPartitioning(4).partition(graph, nodes, unitWeighter, partition);
+
+		Map<Node, Integer> assign = new HashMap<Node, Integer>();
+		for (int pid = 0; pid < 4; pid++)
+			for (Node n : partition.get(pid))
+				assign.put(n, pid);
+		assertEquals(edgeCut(assign), cut, 1e-6);
+	}
+
+	/** Tests that every trial runs on the configured executor. */
+	@Test
+	public void testExecutor() {
+		MemoryGraph graph = createClusteredGraph(2, 300, 3);
+		final AtomicInteger noSubmitted = new AtomicInteger(0);
+		HierarchicalPartitioning partitioner = new HierarchicalPartitioning(2);
+		partitioner.setNoPartitioningTrials(5);
+		partitioner.setExecutor(r -> {
+			noSubmitted.incrementAndGet();
+			r.run();
+		});
+		List<List<Node>> partition = partitioner.partition(graph, graph.getNodeSnapshot(), unitWeighter);
+		assertEquals(5, noSubmitted.get());
+		assertEquals(600, partition.get(0).size() + partition.get(1).size());
+	}
+
+	/** Tests that seeded partitioners give the same partition every time. */
+	@Test
+	public void testSeed() {
+		MemoryGraph graph = createClusteredGraph(4, 300, 4);
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		HierarchicalPartitioning partitioner = new HierarchicalPartitioning(4);
+		partitioner.setSeed(42);
+		List<List<Node>> first = partitioner.partition(graph, nodes, unitWeighter);
+		for (int run = 0; run < 3; run++)
+			assertEquals(first, partitioner.partition(graph, nodes, unitWeighter));
+	}
+
+	/** Tests that partitioning assigns every node once and leaves the graph unchanged. */
+	@Test
+	public void testPartitionLeavesGraphUnchanged() {
+		MemoryGraph graph = createClusteredGraph(4, 500, 0);
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		int noRelationships = 0;
+		for (Node n : nodes)
+			noRelationships += n.getNoRelationships();
+
+		HierarchicalPartitioning partitioner = new HierarchicalPartitioning(4);
+		for (int run = 0; run < 3; run++) {
+			List<List<Node>> partition = partitioner.partition(graph, nodes, unitWeighter);
+			assertEquals(4, partition.size());
+			Set<Node> assigned = new HashSet<Node>();
+			for (List<Node> block : partition)
+				for (Node n : block)
+					assertTrue(assigned.add(n));
+			assertEquals(new HashSet<Node>(nodes), assigned);
+		}
+
+		assertEquals(nodes.size(), graph.getNodeSnapshot().size());
+		assertEquals(1, graph.getRelationshipTypes().size());
+		assertTrue(graph.getPropertyTypes().isEmpty());
+		int after = 0;
+		for (Node n : graph.getNodeSnapshot())
+			after += n.getNoRelationships();
+		assertEquals(noRelationships, after);
+	}
+
+	/** Tests that every node is assigned once and that the cut separates the clusters. */
+	@Test
+	public void testPartitionSeparatesClusters() {
+		MemoryGraph graph = createClusteredGraph(4, 500, 5);
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		HierarchicalPartitioning partitioner = new HierarchicalPartitioning(4);
+		partitioner.setSeed(3);
+		List<List<Node>> partition = new ArrayList<List<Node>>();
+		for (int pid = 0; pid < 4; pid++)
+			partition.add(new ArrayList<Node>());
+		double cut = partitioner.partition(graph, nodes, unitWeighter, partition);
+
+		Set<Node> assigned = new HashSet<Node>();
+		Map<Node, Integer> assign = new HashMap<Node, Integer>();
+		for (int pid = 0; pid < 4; pid++) {
+			for (Node n : partition.get(pid)) {
+				assertTrue(assigned.add(n));
+				assign.put(n, pid);
+			}
+		}
+		assertEquals(new HashSet<Node>(nodes), assigned);
+		assertEquals(edgeCut(assign), cut, 1e-6);
+		/* Far fewer than the 8000 relationships within clusters are cut */
+		assertTrue(cut < 800);
+
+		assertEquals(partition, partitioner.partition(graph, nodes, unitWeighter));
+	}
+
+	/**
+	 * Tests that hyper partitioning assigns every node once, gives the same partition
+	 * every time once seeded and leaves the graph unchanged.
+	 */
+	@Test
+	public void testHyperPartitioning() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("member");
+		List<MemoryNode> elements = graph.createNodes(400);
+		final Map<Node, Double> hyperWeights = new HashMap<Node, Double>();
+		Random rand = new Random(6);
+		for (int i = 0; i < 600; i++) {
+			/* Most hyperedges stay within one of four clusters of elements */
+			int cluster = rand.nextInt(4);
+			Node hyperedge = graph.createNode();
+			for (int j = 0; j < 3; j++) {
+				int element = (i % 50 == 0) ? rand.nextInt(400) : cluster * 100 + rand.nextInt(100);
+				hyperedge.createRelationship("member", elements.get(element));
+			}
+			hyperWeights.put(hyperedge, (i % 20 == 0) ? Double.POSITIVE_INFINITY : 1.0 + rand.nextInt(8));
+		}
+		RelationshipWeighter rweight = new RelationshipWeighter() {
+			@Override
+			public double getWeight(Relationship r) {
+				return hyperWeights.get(r.getStart());
+			}
+		};
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+
+		HyperPartitioning partitioner = new HyperPartitioning();
+		partitioner.setSize(4);
+		partitioner.setSeed(7);
+		List<List<Node>> partition = partitioner.partition(graph, nodes, rweight);
+		assertEquals(4, partition.size());
+		Set<Node> assigned = new HashSet<Node>();
+		for (List<Node> block : partition)
+			for (Node n : block)
+				assertTrue(assigned.add(n));
+		assertEquals(new HashSet<Node>(nodes), assigned);
+		assertEquals(partition, partitioner.partition(graph, nodes, rweight));
+
+		assertEquals(1000, graph.getNodeSnapshot().size());
+		assertEquals(1, graph.getRelationshipTypes().size());
+		assertTrue(graph.getPropertyTypes().isEmpty());
+		int noRelationships = 0;
+		for (Node n : graph.getNodeSnapshot())
+			noRelationships += n.getNoRelationships();
+		assertEquals(2 * 600 * 3, noRelationships);
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.hierarchical;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PartitionKernelTest {
+
+	/** Tests that coarsening keeps the node weights and the edges between merged nodes. */
+	@Test
+	public void testCoarsen() {
+		/* A path 0 - 1 - 2 - 3 with a heavy edge in the middle */
+		PartitionKernel.LevelBuilder builder = new PartitionKernel.LevelBuilder(4);
+		int[][] edges = new int[][] {{1}, {0, 2}, {1, 3}, {2}};
+		double[][] weights = new double[][] {{1.0}, {1.0, 5.0}, {5.0, 2.0}, {2.0}};
+		for (int v = 0; v < 4; v++) {
+			for (int i = 0; i < edges[v].length; i++)
+				builder.add(edges[v][i], weights[v][i]);
+			builder.endNode();
+		}
+		PartitionKernel.Level fine = builder.build(new double[] {1.0, 1.0, 1.0, 1.0});
+		PartitionKernel.Level coarse = PartitionKernel.coarsen(fine);
+
+		assertTrue(coarse.noNodes < 4);
+		double total = 0.0;
+		for (double w : coarse.nodeWeights)
+			total += w;
+		assertEquals(4.0, total, 0.0);
+		assertEquals(fine.coarseMap[1], fine.coarseMap[2]);
+
+		/* The cut of any partition of the coarse level is the cut of its projection */
+		int[] coarseAssign = new int[coarse.noNodes];
+		for (int c = 0; c < coarse.noNodes; c++)
+			coarseAssign[c] = c % 2;
+		int[] fineAssign = new int[4];
+		for (int v = 0; v < 4; v++)
+			fineAssign[v] = coarseAssign[fine.coarseMap[v]];
+		assertEquals(PartitionKernel.edgeCut(fine, fineAssign), PartitionKernel.edgeCut(coarse, coarseAssign), 1e-9);
+	}
+}
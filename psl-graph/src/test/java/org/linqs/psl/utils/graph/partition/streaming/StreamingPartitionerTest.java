@@ -0,0 +1,99 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.partition.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.linqs.psl.utils.graph.partition.PartitionTestUtil.createClusteredGraph;
+import static org.linqs.psl.utils.graph.partition.PartitionTestUtil.edgeCut;
+import static org.linqs.psl.utils.graph.partition.PartitionTestUtil.unitWeighter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+
+public class StreamingPartitionerTest {
+
+	private static void checkPartition(List<MemoryNode> nodes, List<List<Node>> partition, double cut, int maxSize) {
+		Set<Node> assigned = new HashSet<Node>();
+		Map<Node, Integer> assign = new HashMap<Node, Integer>();
+		for (int pid = 0; pid < partition.size(); pid++) {
+			assertTrue(partition.get(pid).size() <= maxSize);
+			for (Node n : partition.get(pid)) {
+				assertTrue(assigned.add(n));
+				assign.put(n, pid);
+			}
+		}
+		assertEquals(new HashSet<Node>(nodes), assigned);
+		assertEquals(edgeCut(assign), cut, 1e-9);
+	}
+
+	/** Tests that both objectives assign every node once within capacity and cut few relationships. */
+	@Test
+	public void testObjectives() {
+		MemoryGraph graph = createClusteredGraph(4, 500, 0);
+		List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		/* Nodes in random order, as streamed from an unordered source */
+		Collections.shuffle(nodes, new Random(1));
+		for (StreamingPartitioner.Objective objective : StreamingPartitioner.Objective.values()) {
+			StreamingPartitioner partitioner = new StreamingPartitioner(4);
+			partitioner.setObjective(objective);
+			List<List<Node>> partition = new ArrayList<List<Node>>();
+			for (int pid = 0; pid < 4; pid++)
+				partition.add(new ArrayList<Node>());
+			double cut = partitioner.partition(graph, nodes, unitWeighter, partition);
+			checkPartition(nodes, partition, cut, 550);
+			/* A random partition cuts three quarters of the 8000 relationships */
+			assertTrue(objective + " cut " + cut, cut < 4500);
+		}
+	}
+
+	/** Tests partitioning nodes that are not a Collection. */
+	@Test
+	public void testIterable() {
+		MemoryGraph graph = createClusteredGraph(2, 200, 2);
+		final List<MemoryNode> nodes = new ArrayList<MemoryNode>(graph.getNodeSnapshot());
+		Iterable<MemoryNode> stream = () -> nodes.iterator();
+		StreamingPartitioner partitioner = new StreamingPartitioner(2);
+		try {
+			partitioner.partition(graph, stream, unitWeighter);
+			fail("Unknown number of nodes should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+
+		partitioner.setExpectedNoNodes(nodes.size());
+		partitioner.setSlack(0.0);
+		List<List<Node>> partition = new ArrayList<List<Node>>();
+		partition.add(new ArrayList<Node>());
+		partition.add(new ArrayList<Node>());
+		double cut = partitioner.partition(graph, stream, unitWeighter, partition);
+		checkPartition(nodes, partition, cut, 200);
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.subgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.Relationship;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+import org.linqs.psl.utils.graph.traversal.Components;
+import org.linqs.psl.utils.graph.traversal.ConnectedComponents;
+
+import com.google.common.base.Predicates;
+
+public class SubgraphTest {
+
+	private MemoryGraph graph;
+	private List<MemoryNode> nodes;
+
+	/**
+	 * Creates a path 0 - 1 - ... - 9 of "r" relationships, a "s" relationship 0 - 9
+	 * and a self-loop on 4. Even nodes have the property flag.
+	 */
+	@Before
+	public final void setUp() {
+		graph = new MemoryGraph();
+		graph.createPropertyType("flag", Boolean.class);
+		graph.createRelationshipType("r");
+		graph.createRelationshipType("s");
+		nodes = graph.createNodes(10);
+		for (int i = 0; i < 9; i++)
+			nodes.get(i).createRelationship("r", nodes.get(i + 1));
+		nodes.get(0).createRelationship("s", nodes.get(9));
+		nodes.get(4).createRelationship("r", nodes.get(4));
+		for (int i = 0; i < 10; i += 2)
+			nodes.get(i).createProperty("flag", true);
+	}
+
+	/** Tests that a view only contains the relationships between its nodes. */
+	@Test
+	public void testInducedSubgraph() {
+		Subgraph view = graph.subgraph(n -> ((MemoryNode) n).getId() < 5, Predicates.alwaysTrue());
+
+		assertEquals(5, view.getNoNodes());
+		assertEquals(5, view.getNodeSnapshot().size());
+		assertEquals(5, view.nodes().count());
+		assertNull(view.getNode(7));
+		assertEquals(graph.getIdBound(), view.getIdBound());
+
+		SubgraphNode n0 = view.getNode(0);
+		assertEquals(nodes.get(0), n0.getNode());
+		assertEquals(1, n0.getNoRelationships());
+		assertTrue(n0.getRelationships("s").isEmpty());
+		assertEquals(Boolean.TRUE, n0.getAttribute("flag"));
+		assertEquals(1, n0.getNoProperties());
+
+		/* The self-loop is listed twice at its node, as in the underlying graph */
+		SubgraphNode n4 = view.getNode(4);
+		assertEquals(3, n4.getNoRelationships());
+		for (Relationship r : n4.getRelationships()) {
+			assertTrue(r.isIncidentOn(n4));
+			assertEquals(view, ((SubgraphNode) r.getOtherNode(n4)).graph);
+		}
+
+		assertEquals(5, view.relationships("r").count());
+		assertEquals(0, view.relationships("s").count());
+		assertEquals(3, view.getNodeSnapshotByAttribute("flag", true).size());
+		assertEquals(4, view.getNodeId(n4));
+	}
+
+	/** Tests filtering the relationships of a view. */
+	@Test
+	public void testRelationshipFilter() {
+		Subgraph view = graph.subgraph(Predicates.alwaysTrue(), r -> !r.isSelfLoop(r.getStart()));
+
+		assertEquals(10, view.getNoNodes());
+		assertEquals(2, view.getNode(4).getNoRelationships());
+		assertEquals(9, view.relationships("r").count());
+		assertEquals(1, view.relationships("s").count());
+	}
+
+	/** Tests traversing views of partition blocks and narrowing views further. */
+	@Test
+	public void testComponentsOfViews() {
+		/* Cutting the path between 4 and 5 and dropping "s" leaves two components */
+		Subgraph view = graph.subgraph(Predicates.alwaysTrue(),
+				r -> r.getRelationshipType().equals("r")
+						&& !(r.isIncidentOn(nodes.get(4)) && r.isIncidentOn(nodes.get(5))));
+		Components components = new ConnectedComponents(view, null).compute();
+		assertEquals(2, components.getNoComponents());
+		assertTrue(components.isConnected(view.getNode(0), view.getNode(4)));
+		assertFalse(components.isConnected(view.getNode(4), view.getNode(5)));
+
+		for (List<Node> component : components.getComponents()) {
+			Subgraph block = new Subgraph(view, component);
+			assertEquals(5, block.getNoNodes());
+			assertEquals(1, new ConnectedComponents(block, null).compute().getNoComponents());
+
+			Subgraph narrowed = block.subgraph(n -> n.getAttribute("flag") == null, Predicates.alwaysTrue());
+			assertEquals(component.get(0).equals(view.getNode(0)) ? 2 : 3, narrowed.getNoNodes());
+			assertEquals(narrowed.getNoNodes(), new ConnectedComponents(narrowed, null).compute().getNoComponents());
+		}
+	}
+
+	/** Tests that views cannot be modified. */
+	@Test
+	public void testReadOnly() {
+		Subgraph view = new Subgraph(graph, nodes.subList(0, 2));
+		try {
+			view.createNode();
+			fail("Subgraph should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			/* Expected */
+		}
+		try {
+			view.getNode(0).createRelationship("r", view.getNode(1));
+			fail("Subgraph should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			/* Expected */
+		}
+		try {
+			view.getNodeId(nodes.get(0));
+			fail("Nodes of the underlying graph should have been rejected.");
+		} catch (IllegalArgumentException e) {
+			/* Expected */
+		}
+	}
+}
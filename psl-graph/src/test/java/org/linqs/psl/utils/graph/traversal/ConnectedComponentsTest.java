@@ -0,0 +1,95 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+
+public class ConnectedComponentsTest {
+
+	/** Tests components of a small graph, with and without a type filter. */
+	@Test
+	public void testComponents() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+		List<MemoryNode> nodes = graph.createNodes(7);
+		nodes.get(1).createRelationship("r1", nodes.get(0));
+		nodes.get(2).createRelationship("r2", nodes.get(1));
+		nodes.get(4).createRelationship("r1", nodes.get(3));
+		nodes.get(5).createRelationship("r1", nodes.get(5));
+		nodes.get(6).createRelationship("r1", nodes.get(4));
+		nodes.get(6).delete();
+
+		Components components = new ConnectedComponents(graph).compute();
+		assertEquals(3, components.getNoComponents());
+		assertEquals(0, components.getComponent(nodes.get(2)));
+		assertEquals(1, components.getComponent(nodes.get(4)));
+		assertEquals(2, components.getComponent(nodes.get(5)));
+		assertTrue(components.isConnected(nodes.get(0), nodes.get(2)));
+		assertFalse(components.isConnected(nodes.get(0), nodes.get(3)));
+		assertEquals(Arrays.<Node>asList(nodes.get(0), nodes.get(1), nodes.get(2)), components.getComponents().get(0));
+		assertEquals(Arrays.<Node>asList(nodes.get(5)), components.getComponents().get(2));
+
+		ConnectedComponents typed = new ConnectedComponents(graph, null);
+		typed.setRelationshipTypes("r1");
+		components = typed.compute();
+		assertEquals(4, components.getNoComponents());
+		assertFalse(components.isConnected(nodes.get(1), nodes.get(2)));
+	}
+
+	/** Tests that parallel union-find agrees with breadth-first search on a random graph. */
+	@Test
+	public void testParallelComponents() {
+		MemoryGraph graph = new MemoryGraph();
+		graph.createRelationshipType("r");
+		List<MemoryNode> nodes = graph.createNodes(50000);
+		Random rand = new Random(0);
+		for (int i = 0; i < 30000; i++)
+			nodes.get(rand.nextInt(nodes.size())).createRelationship("r", nodes.get(rand.nextInt(nodes.size())));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Components components = new ConnectedComponents(graph, pool).compute();
+		pool.shutdown();
+
+		Traversal traversal = new Traversal(graph, null);
+		int noNodes = 0;
+		for (List<Node> component : components.getComponents()) {
+			noNodes += component.size();
+			/* Checks only the larger components to keep the test fast */
+			if (component.size() < 3)
+				continue;
+			TraversalResult reached = traversal.breadthFirst(component.get(0));
+			assertEquals(component.size(), reached.getNoVisited());
+			for (Node n : component)
+				assertTrue(reached.isVisited(n));
+		}
+		assertEquals(nodes.size(), noNodes);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of the PSL software.
+ * Copyright 2011-2015 University of Maryland
+ * Copyright 2013-2018 The Regents of the University of California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.linqs.psl.utils.graph.traversal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.linqs.psl.utils.graph.Node;
+import org.linqs.psl.utils.graph.memory.MemoryGraph;
+import org.linqs.psl.utils.graph.memory.MemoryNode;
+import org.linqs.psl.utils.graph.subgraph.Subgraph;
+
+public class TraversalTest {
+
+	private MemoryGraph graph;
+	private List<MemoryNode> nodes;
+
+	/**
+	 * Creates the path 0 -> 1 -> 2 -> 3 of type r1 and the relationship 4 -> 0 of type r2.
+	 */
+	@Before
+	public final void setUp() {
+		graph = new MemoryGraph();
+		graph.createRelationshipType("r1");
+		graph.createRelationshipType("r2");
+		nodes = graph.createNodes(6);
+		for (int i = 0; i < 3; i++)
+			nodes.get(i).createRelationship("r1", nodes.get(i + 1));
+		nodes.get(4).createRelationship("r2", nodes.get(0));
+	}
+
+	/** Tests distances, levels and paths of a full search. */
+	@Test
+	public void testBreadthFirst() {
+		TraversalResult result = new Traversal(graph).breadthFirst(nodes.get(1));
+		assertEquals(5, result.getNoVisited());
+		assertEquals(3, result.getNoLevels());
+		assertEquals(0, result.getDistance(nodes.get(1)));
+		assertEquals(1, result.getDistance(nodes.get(0)));
+		assertEquals(2, result.getDistance(nodes.get(3)));
+		assertEquals(2, result.getDistance(nodes.get(4)));
+		assertEquals(-1, result.getDistance(nodes.get(5)));
+		assertFalse(result.isVisited(nodes.get(5)));
+		assertEquals(new HashSet<Node>(Arrays.asList(nodes.get(0), nodes.get(2))),
+				new HashSet<Node>(result.getLevel(1)));
+		assertEquals(Arrays.asList(nodes.get(1), nodes.get(0), nodes.get(4)), result.getPath(nodes.get(4)));
+		assertNull(result.getPath(nodes.get(5)));
+	}
+
+	/** Tests k-hop neighborhoods. */
+	@Test
+	public void testNeighborhood() {
+		Traversal traversal = new Traversal(graph, null);
+		assertEquals(Arrays.asList(nodes.get(0)), traversal.getNeighborhood(nodes.get(0), 0));
+		assertEquals(new HashSet<Node>(nodes.subList(0, 3)),
+				new HashSet<Node>(traversal.getNeighborhood(nodes.get(1), 1)));
+		assertEquals(5, traversal.getNeighborhood(nodes.get(0), 10).size());
+	}
+
+	/** Tests that directions and relationship types restrict searches. */
+	@Test
+	public void testDirectionAndTypes() {
+		Traversal traversal = new Traversal(graph);
+		assertTrue(traversal.isReachable(nodes.get(3), nodes.get(4)));
+		assertFalse(traversal.isReachable(nodes.get(3), nodes.get(5)));
+
+		traversal.setDirection(Direction.OUTGOING);
+		assertTrue(traversal.isReachable(nodes.get(4), nodes.get(3)));
+		assertFalse(traversal.isReachable(nodes.get(3), nodes.get(4)));
+		assertEquals(Arrays.asList(nodes.get(4), nodes.get(0), nodes.get(1)),
+				traversal.getShortestPath(nodes.get(4), nodes.get(1)));
+
+		traversal.setDirection(Direction.INCOMING);
+		assertTrue(traversal.isReachable(nodes.get(3), nodes.get(4)));
+
+		traversal.setRelationshipTypes("r1");
+		assertFalse(traversal.isReachable(nodes.get(3), nodes.get(4)));
+		traversal.setRelationshipTypes();
+		assertTrue(traversal.isReachable(nodes.get(3), nodes.get(4)));
+	}
+
+	/** Tests that parallel searches visit the same nodes at the same distances as sequential ones. */
+	@Test
+	public void testParallelSearch() {
+		MemoryGraph random = new MemoryGraph();
+		random.createRelationshipType("r");
+		List<MemoryNode> created = random.createNodes(20000);
+		Random rand = new Random(0);
+		for (int i = 0; i < 60000; i++)
+			created.get(rand.nextInt(created.size())).createRelationship("r", created.get(rand.nextInt(created.size())));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		TraversalResult parallel = new Traversal(random, pool).breadthFirst(created.get(0));
+		TraversalResult sequential = new Traversal(random, null).breadthFirst(created.get(0));
+		pool.shutdown();
+
+		assertEquals(sequential.getNoVisited(), parallel.getNoVisited());
+		assertEquals(sequential.getNoLevels(), parallel.getNoLevels());
+		assertEquals(new HashSet<Node>(sequential.getVisited()), new HashSet<Node>(parallel.getVisited()));
+		for (Node n : new ArrayList<Node>(sequential.getVisited()).subList(0, 1000)) {
+			assertEquals(sequential.getDistance(n), parallel.getDistance(n));
+			assertEquals(parallel.getDistance(n) + 1, parallel.getPath(n).size());
+		}
+	}
+
+	/** Tests that levels below the parallel threshold are expanded on the calling thread only. */
+	@Test
+	public void testSmallLevelStaysOnCaller() {
+		MemoryGraph star = new MemoryGraph();
+		star.createRelationshipType("r");
+		List<MemoryNode> created = star.createNodes(1001);
+		for (int i = 1; i <= 500; i++) {
+			created.get(0).createRelationship("r", created.get(i));
+			created.get(i).createRelationship("r", created.get(i + 500));
+		}
+
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		Subgraph recording = new Subgraph(star, n -> true, r -> threads.add(Thread.currentThread()) || true);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		TraversalResult result = new Traversal(recording, pool).breadthFirst(recording.getNode(0));
+		pool.shutdown();
+
+		assertEquals(1001, result.getNoVisited());
+		assertEquals(3, result.getNoLevels());
+		assertEquals(0, pool.getPoolSize());
+		assertEquals(new HashSet<Thread>(Arrays.asList(Thread.currentThread())), threads);
+	}
+}